@@ -0,0 +1,82 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.Utilities;
+
+/**
+ * Alpha-beta tracker. Predicts the next position from the current position
+ * and velocity, then corrects both by a fixed fraction of the prediction error.
+ * Higher gains track faster but pass more noise.
+ * @author Jeremy
+ */
+public class AlphaBetaVelocityEstimator implements VelocityEstimator {
+
+    private double m_alpha;
+    private double m_beta;
+    private double position = 0;
+    private double velocity = 0;
+    private double prevT = 0;
+    private boolean initialized = false;
+    private double residualVariance = 0;    //Running variance of the prediction error
+    private double dT = 0;
+    private final double VARIANCE_FILTER = 0.05;
+
+    /**
+     * Constructor
+     * @param alpha position correction gain, 0-1
+     * @param beta velocity correction gain, 0-2. Keep below alpha squared over (2 - alpha)
+     */
+    public AlphaBetaVelocityEstimator(double alpha, double beta) {
+        this.m_alpha = alpha;
+        this.m_beta = beta;
+    }
+
+    public void update(double measured, double time) {
+        if (!initialized) {
+            position = measured;
+            velocity = 0;
+            prevT = time;
+            initialized = true;
+            return;
+        }
+        dT = time - prevT;
+        prevT = time;
+        if (dT <= 0) {
+            return;
+        }
+
+        double predicted = position + velocity * dT;
+        double residual = measured - predicted;
+        position = predicted + m_alpha * residual;
+        velocity += (m_beta / dT) * residual;
+        residualVariance += VARIANCE_FILTER * (residual * residual - residualVariance);
+    }
+
+    public double getVelocity() {
+        return velocity;
+    }
+
+    public double getVariance() {
+        if (dT <= 0) {
+            return 0;
+        }
+        double gain = m_beta / dT;
+        return gain * gain * residualVariance;
+    }
+
+    public double getLatency() {
+        if (m_beta <= 0) {
+            return 0;
+        }
+        return dT / m_beta;
+    }
+
+    public void reset() {
+        initialized = false;
+        position = 0;
+        velocity = 0;
+        residualVariance = 0;
+        dT = 0;
+    }
+}
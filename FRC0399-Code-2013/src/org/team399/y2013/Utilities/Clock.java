@@ -0,0 +1,71 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.Utilities;
+
+/**
+ * Holds the TimeSource code reads the time from and the Sleeper it waits
+ * with. Defaults to real time; a simulation sets a VirtualTimeSource for
+ * both before it builds the subsystems. Read the time through here rather
+ * than System.currentTimeMillis(), and wait with sleep() rather than
+ * Timer.delay(), so the code runs the same on virtual time
+ * @author Jeremy
+ */
+public class Clock {
+
+    private static volatile TimeSource instance;
+    private static volatile Sleeper sleeper;
+
+    static {
+        RealTimeSource real = new RealTimeSource();
+        instance = real;
+        sleeper = real;
+    }
+
+    private Clock() {
+    }
+
+    public static TimeSource getInstance() {
+        return instance;
+    }
+
+    public static void setInstance(TimeSource source) {
+        instance = source;
+    }
+
+    /**
+     * Sets the time source and the sleeper together, usually to the same
+     * VirtualTimeSource
+     */
+    public static void setInstance(TimeSource source, Sleeper sleeper) {
+        Clock.instance = source;
+        Clock.sleeper = sleeper;
+    }
+
+    public static Sleeper getSleeper() {
+        return sleeper;
+    }
+
+    /**
+     * @return the current time, ms
+     */
+    public static long millis() {
+        return instance.getMillis();
+    }
+
+    /**
+     * @return the current time, seconds
+     */
+    public static double seconds() {
+        return instance.getSeconds();
+    }
+
+    /**
+     * Waits on the current Sleeper
+     * @param seconds time to wait
+     */
+    public static void sleep(double seconds) {
+        sleeper.sleep(seconds);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.Utilities;
+
+/**
+ * Least squares fit of a motor feedforward model,
+ *      volts = kS * sign(velocity) + velocity / kV + kA * acceleration
+ * from logged samples. kV is in speed per volt, like the kV constants in
+ * Constants. Only the regression sums are kept, so samples can be added
+ * one at a time without storing them.
+ * @author Jeremy
+ */
+public class FeedforwardFit {
+
+    private double[][] xx = new double[3][3];  //Sum of x * x transposed
+    private double[] xy = new double[3];        //Sum of x * volts
+    private double yy = 0, sumY = 0;
+    private int count = 0;
+    private double kS = 0, kV = 0, kA = 0, rSquared = 0;
+
+    /**
+     * Adds a sample
+     * @param volts voltage applied
+     * @param velocity speed, in any unit
+     * @param acceleration rate of change of speed, same unit per second
+     */
+    public void add(double volts, double velocity, double acceleration) {
+        double[] x = {EagleMath.signum(velocity), velocity, acceleration};
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                xx[i][j] += x[i] * x[j];
+            }
+            xy[i] += x[i] * volts;
+        }
+        yy += volts * volts;
+        sumY += volts;
+        count++;
+    }
+
+    /**
+     * Solves for the gains
+     * @return false if there is not enough data to tell them apart. The
+     * gains are left as they were
+     */
+    public boolean solve() {
+        if (count < 10) {
+            return false;
+        }
+        //Gaussian elimination with partial pivoting on a copy of the normal equations
+        double[][] a = new double[3][4];
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                a[i][j] = xx[i][j];
+            }
+            a[i][3] = xy[i];
+        }
+        for (int col = 0; col < 3; col++) {
+            int pivot = col;
+            for (int row = col + 1; row < 3; row++) {
+                if (Math.abs(a[row][col]) > Math.abs(a[pivot][col])) {
+                    pivot = row;
+                }
+            }
+            if (Math.abs(a[pivot][col]) < 1e-9 * (1 + Math.abs(xx[col][col]))) {
+                return false;   //Degenerate, such as a test with no acceleration
+            }
+            double[] swap = a[col];
+            a[col] = a[pivot];
+            a[pivot] = swap;
+            for (int row = 0; row < 3; row++) {
+                if (row != col) {
+                    double f = a[row][col] / a[col][col];
+                    for (int k = col; k < 4; k++) {
+                        a[row][k] -= f * a[col][k];
+                    }
+                }
+            }
+        }
+        double[] b = {a[0][3] / a[0][0], a[1][3] / a[1][1], a[2][3] / a[2][2]};
+        if (b[1] <= 0) {
+            return false;   //Faster for more volts, or the data is bad
+        }
+        //Residual sum of squares from the sums: y'y - 2b'X'y + b'X'Xb
+        double rss = yy;
+        for (int i = 0; i < 3; i++) {
+            rss -= 2 * b[i] * xy[i];
+            for (int j = 0; j < 3; j++) {
+                rss += b[i] * xx[i][j] * b[j];
+            }
+        }
+        double tss = yy - sumY * sumY / count;
+        rSquared = (tss > 0) ? 1 - rss / tss : 0;
+        kS = b[0];
+        kV = 1.0 / b[1];
+        kA = b[2];
+        return true;
+    }
+
+    /**
+     * @return voltage to overcome friction, volts
+     */
+    public double getKS() {
+        return kS;
+    }
+
+    /**
+     * @return steady state speed per volt above kS
+     */
+    public double getKV() {
+        return kV;
+    }
+
+    /**
+     * @return volts per unit of acceleration
+     */
+    public double getKA() {
+        return kA;
+    }
+
+    /**
+     * @return fraction of the voltage variation the model explains, 1 is a perfect fit
+     */
+    public double getRSquared() {
+        return rSquared;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void reset() {
+        xx = new double[3][3];
+        xy = new double[3];
+        yy = 0;
+        sumY = 0;
+        count = 0;
+    }
+
+    public String toString() {
+        return "kS " + kS + " V, kV " + kV + " per V, kA " + kA + " V s, R^2 " + rSquared
+                + " (" + count + ")";
+    }
+}
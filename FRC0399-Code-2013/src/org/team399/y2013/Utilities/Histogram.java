@@ -0,0 +1,105 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.Utilities;
+
+/**
+ * Running histogram with fixed-width bins. Adding a value never allocates,
+ * so it is safe to feed from a control loop. Percentiles are accurate to
+ * one bin width; the maximum is exact. Values past the last bin are counted
+ * in it.
+ * @author Jeremy
+ */
+public class Histogram {
+
+    private final double binWidth;
+    private final int[] bins;
+    private int count = 0;
+    private double total = 0;
+    private double max = 0;
+
+    /**
+     * Constructor
+     * @param binWidth width of each bin, in the units of the values
+     * @param binCount number of bins. Covers 0 to binWidth * binCount
+     */
+    public Histogram(double binWidth, int binCount) {
+        this.binWidth = binWidth;
+        this.bins = new int[binCount];
+    }
+
+    /**
+     * Adds a value. Negative values count as 0
+     */
+    public synchronized void add(double value) {
+        if (value < 0) {
+            value = 0;
+        }
+        int bin = (int) (value / binWidth);
+        if (bin >= bins.length) {
+            bin = bins.length - 1;
+        }
+        bins[bin]++;
+        total += value;
+        if (count == 0 || value > max) {
+            max = value;
+        }
+        count++;
+    }
+
+    /**
+     * @param fraction percentile as a fraction, such as 0.95
+     * @return the upper edge of the bin holding that percentile, no more than
+     * the maximum. 0 if nothing has been added
+     */
+    public synchronized double getPercentile(double fraction) {
+        if (count == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(fraction * count);
+        if (rank < 1) {
+            rank = 1;
+        }
+        int seen = 0;
+        for (int i = 0; i < bins.length; i++) {
+            seen += bins[i];
+            if (seen >= rank) {
+                return Math.min((i + 1) * binWidth, max);
+            }
+        }
+        return max;
+    }
+
+    public synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * @return the mean, 0 if nothing has been added
+     */
+    public synchronized double getMean() {
+        return (count == 0) ? 0 : total / count;
+    }
+
+    /**
+     * @return the largest value added, 0 if nothing has been added
+     */
+    public synchronized double getMax() {
+        return max;
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < bins.length; i++) {
+            bins[i] = 0;
+        }
+        count = 0;
+        total = 0;
+        max = 0;
+    }
+
+    public synchronized String toString() {
+        return "p50 " + (long) getPercentile(0.5) + ", p95 " + (long) getPercentile(0.95)
+                + ", max " + (long) max + " (" + count + ")";
+    }
+}
@@ -9,15 +9,26 @@ package org.team399.y2013.Utilities;
  * @author Jeremy
  */
 public class Integrator {
+    private final TimeSource time;
     private double value = 0.0;
     private long dT = 0, prevT = 0;
     
     public Integrator(double initialValue) {
+        this(initialValue, Clock.getInstance());
+    }
+
+    /**
+     * @param initialValue starting value
+     * @param time where update() reads the time step from
+     */
+    public Integrator(double initialValue, TimeSource time) {
+        this.time = time;
         value += initialValue;
+        prevT = time.getMillis();   //The first update integrates from construction, not from time 0
     }
     
     public void update(double input) {
-        long time = System.currentTimeMillis();
+        long time = this.time.getMillis();
         dT = time - prevT;
         prevT = time;
         value += input*dT;
@@ -0,0 +1,106 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.Utilities;
+
+/**
+ * Lookup table with linear interpolation. Rows are a key and one or more
+ * values, held in primitive arrays sorted by key, so a lookup is a binary
+ * search and doesn't allocate. Keys outside the table give the first or
+ * last row. The table can't be changed once built; build a new one and
+ * swap the reference to update it from another thread.
+ * @author Jeremy
+ */
+public class InterpolatingTable {
+
+    private final double[] keys;
+    private final double[][] values;    //values[column][row]
+
+    /**
+     * Constructor
+     * @param rows each row is the key followed by the values. Must have at
+     * least one row, all the same length. Any order; they are sorted by key
+     */
+    public InterpolatingTable(double[][] rows) {
+        if (rows.length == 0) {
+            throw new IllegalArgumentException("Table needs at least one row");
+        }
+        int columns = rows[0].length - 1;
+        keys = new double[rows.length];
+        values = new double[columns][rows.length];
+        //Insertion sort; tables are short and only built at boot or calibration
+        for (int n = 0; n < rows.length; n++) {
+            if (rows[n].length != columns + 1) {
+                throw new IllegalArgumentException("Row " + n + " has " + rows[n].length + " columns");
+            }
+            int i = n;
+            while (i > 0 && keys[i - 1] > rows[n][0]) {
+                keys[i] = keys[i - 1];
+                for (int c = 0; c < columns; c++) {
+                    values[c][i] = values[c][i - 1];
+                }
+                i--;
+            }
+            keys[i] = rows[n][0];
+            for (int c = 0; c < columns; c++) {
+                values[c][i] = rows[n][c + 1];
+            }
+        }
+    }
+
+    /**
+     * Looks up a value
+     * @param key the key
+     * @param column which value, 0 for the first after the key
+     * @return the value, interpolated between the rows either side of the key
+     */
+    public double get(double key, int column) {
+        double[] v = values[column];
+        int last = keys.length - 1;
+        if (key <= keys[0]) {
+            return v[0];
+        }
+        if (key >= keys[last]) {
+            return v[last];
+        }
+        //Find the last row at or below the key
+        int low = 0, high = last;
+        while (high - low > 1) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] <= key) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        double span = keys[high] - keys[low];
+        if (span <= 0) {
+            return v[low];     //Duplicate keys
+        }
+        return v[low] + (v[high] - v[low]) * (key - keys[low]) / span;
+    }
+
+    /**
+     * @return true if the key is within the table, not off either end
+     */
+    public boolean contains(double key) {
+        return key >= keys[0] && key <= keys[keys.length - 1];
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    public int getColumnCount() {
+        return values.length;
+    }
+
+    public double getKey(int row) {
+        return keys[row];
+    }
+
+    public double getValue(int row, int column) {
+        return values[column][row];
+    }
+}
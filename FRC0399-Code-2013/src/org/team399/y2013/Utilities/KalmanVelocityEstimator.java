@@ -0,0 +1,97 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.Utilities;
+
+/**
+ * Kalman filter on a constant velocity model. The state is position and
+ * velocity; only position is measured. Unlike the alpha-beta tracker the
+ * gains adapt to the actual sample spacing, and the velocity variance comes
+ * straight out of the covariance matrix.
+ * @author Jeremy
+ */
+public class KalmanVelocityEstimator implements VelocityEstimator {
+
+    private double q;   //Process noise, (units/s^2)^2 per second
+    private double r;   //Measurement noise, units^2
+    private double position = 0, velocity = 0;
+    private double p00, p01, p11;   //Covariance matrix, symmetric
+    private double velocityGain = 0;
+    private double prevT = 0;
+    private boolean initialized = false;
+    private final double INITIAL_VELOCITY_VARIANCE = 1.0e6;
+
+    /**
+     * Constructor
+     * @param processNoise acceleration noise density. Raise to track faster
+     * @param measurementNoise position measurement variance. Raise to smooth more
+     */
+    public KalmanVelocityEstimator(double processNoise, double measurementNoise) {
+        this.q = processNoise;
+        this.r = measurementNoise;
+        reset();
+    }
+
+    public void update(double measured, double time) {
+        if (!initialized) {
+            position = measured;
+            velocity = 0;
+            p00 = r;
+            p01 = 0;
+            p11 = INITIAL_VELOCITY_VARIANCE;
+            prevT = time;
+            initialized = true;
+            return;
+        }
+        double dT = time - prevT;
+        prevT = time;
+        if (dT <= 0) {
+            return;
+        }
+
+        //Predict
+        position += velocity * dT;
+        double dT2 = dT * dT;
+        p00 += dT * (2 * p01 + dT * p11) + q * dT2 * dT / 3;
+        p01 += dT * p11 + q * dT2 / 2;
+        p11 += q * dT;
+
+        //Correct
+        double s = p00 + r;
+        double k0 = p00 / s;
+        double k1 = p01 / s;
+        double residual = measured - position;
+        position += k0 * residual;
+        velocity += k1 * residual;
+        p11 -= k1 * p01;
+        p01 -= k0 * p01;
+        p00 -= k0 * p00;
+        velocityGain = k1;
+    }
+
+    public double getVelocity() {
+        return velocity;
+    }
+
+    public double getVariance() {
+        return p11;
+    }
+
+    public double getLatency() {
+        if (velocityGain <= 0) {
+            return 0;
+        }
+        return 1.0 / velocityGain;
+    }
+
+    public void reset() {
+        initialized = false;
+        position = 0;
+        velocity = 0;
+        p00 = r;
+        p01 = 0;
+        p11 = INITIAL_VELOCITY_VARIANCE;
+        velocityGain = 0;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.Utilities;
+
+/**
+ * Velocity estimator that fits a line through the last N position samples.
+ * The slope of the line is the velocity. The regression sums are kept as
+ * running totals, so each update is O(1). Samples are stored relative to an
+ * origin which is moved to the newest sample once per window, to keep the
+ * running sums from losing precision as position and time grow.
+ * @author Jeremy
+ */
+public class LeastSquaresVelocityEstimator implements VelocityEstimator {
+
+    private double[] times;
+    private double[] positions;
+    private int length;
+    private int index = 0;
+    private int count = 0;
+    private int sinceRebase = 0;
+    private double originT = 0, originX = 0;
+    private double sumT = 0, sumX = 0, sumTT = 0, sumTX = 0, sumXX = 0;
+    private double velocity = 0;
+    private double variance = 0;
+    private double latency = 0;
+
+    /**
+     * Constructor
+     * @param length number of samples in the fit window. Must be at least 3
+     */
+    public LeastSquaresVelocityEstimator(int length) {
+        if (length < 3) {
+            length = 3;
+        }
+        this.length = length;
+        times = new double[length];
+        positions = new double[length];
+    }
+
+    public void update(double position, double time) {
+        if (count == 0) {
+            originT = time;
+            originX = position;
+        }
+
+        if (count == length) {  //Drop the oldest sample from the sums
+            remove(times[index], positions[index]);
+        } else {
+            count++;
+        }
+        double t = time - originT;
+        double x = position - originX;
+        times[index] = t;
+        positions[index] = x;
+        add(t, x);
+        index++;
+        if (index >= length) {
+            index = 0;
+        }
+
+        sinceRebase++;
+        if (sinceRebase >= length) {
+            rebase(time, position);
+        }
+        fit();
+    }
+
+    private void add(double t, double x) {
+        sumT += t;
+        sumX += x;
+        sumTT += t * t;
+        sumTX += t * x;
+        sumXX += x * x;
+    }
+
+    private void remove(double t, double x) {
+        sumT -= t;
+        sumX -= x;
+        sumTT -= t * t;
+        sumTX -= t * x;
+        sumXX -= x * x;
+    }
+
+    /**
+     * Moves the origin to the given sample and recomputes the sums. Runs once
+     * per window, so the cost is still O(1) per sample on average
+     */
+    private void rebase(double time, double position) {
+        double dT = originT - time;
+        double dX = originX - position;
+        sumT = sumX = sumTT = sumTX = sumXX = 0;
+        for (int i = 0; i < count; i++) {
+            times[i] += dT;
+            positions[i] += dX;
+            add(times[i], positions[i]);
+        }
+        originT = time;
+        originX = position;
+        sinceRebase = 0;
+    }
+
+    private void fit() {
+        if (count < 2) {
+            velocity = 0;
+            variance = 0;
+            latency = 0;
+            return;
+        }
+        double n = count;
+        double sTT = sumTT - sumT * sumT / n;     //Centered sums of squares
+        double sTX = sumTX - sumT * sumX / n;
+        double sXX = sumXX - sumX * sumX / n;
+        if (sTT <= 0) {
+            return;
+        }
+        velocity = sTX / sTT;
+
+        if (count > 2) {
+            double residual = sXX - velocity * sTX;
+            if (residual < 0) {
+                residual = 0;
+            }
+            variance = residual / (n - 2) / sTT;
+        } else {
+            variance = 0;
+        }
+
+        //The fitted slope is the velocity at the middle of the window
+        int newest = (index == 0) ? length - 1 : index - 1;
+        latency = times[newest] - sumT / n;
+    }
+
+    public double getVelocity() {
+        return velocity;
+    }
+
+    public double getVariance() {
+        return variance;
+    }
+
+    public double getLatency() {
+        return latency;
+    }
+
+    public void reset() {
+        index = 0;
+        count = 0;
+        sinceRebase = 0;
+        sumT = sumX = sumTT = sumTX = sumXX = 0;
+        velocity = 0;
+        variance = 0;
+        latency = 0;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.Utilities;
+
+/**
+ * A rate limited logging call site. Create one per place in the code that
+ * logs, usually as a static field. A message that repeats within the
+ * minimum period is not queued, only counted, and the count is printed with
+ * the next message that gets through as "(suppressed N times)". A different
+ * message from the same site always gets through.
+ * @author Jeremy
+ */
+public class LogSite {
+
+    private final String prefix;
+    private final int level;
+    private final long minPeriod;
+    private String lastMessage = null;
+    private long lastTime = 0;
+    private int suppressedCount = 0;
+
+    /**
+     * Constructor
+     * @param prefix text printed before each message, such as "[SHOOTER] "
+     * @param level the level messages from this site are logged at
+     * @param minPeriod minimum time between repeats of the same message, ms
+     */
+    public LogSite(String prefix, int level, long minPeriod) {
+        this.prefix = prefix;
+        this.level = level;
+        this.minPeriod = minPeriod;
+    }
+
+    /**
+     * @return true if this site's level is enabled
+     */
+    public boolean isEnabled() {
+        return Logger.isEnabled(level);
+    }
+
+    /**
+     * Logs a message
+     * @param message the message. Pass a constant string in hot paths
+     */
+    public void log(String message) {
+        if (allow(message)) {
+            Logger.getInstance().enqueue(level, prefix, message, 0, false, takeSuppressed());
+        }
+    }
+
+    /**
+     * Logs a message followed by a number. The number is formatted on the drain thread
+     * @param message the message. Pass a constant string in hot paths
+     * @param value number printed after the message
+     */
+    public void log(String message, double value) {
+        if (allow(message)) {
+            Logger.getInstance().enqueue(level, prefix, message, value, true, takeSuppressed());
+        }
+    }
+
+    private boolean allow(String message) {
+        if (!Logger.isEnabled(level)) {
+            return false;
+        }
+        long now = Clock.millis();
+        if (message.equals(lastMessage) && now - lastTime < minPeriod) {
+            suppressedCount++;
+            return false;
+        }
+        lastMessage = message;
+        lastTime = now;
+        return true;
+    }
+
+    private int takeSuppressed() {
+        int s = suppressedCount;
+        suppressedCount = 0;
+        return s;
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.Utilities;
+
+/**
+ * Asynchronous logger. Callers copy a message into a preallocated ring
+ * buffer and return; a low priority thread formats the entries and prints
+ * them. Console output is slow on the cRIO, so this keeps control loops from
+ * waiting on it. Messages are stored as a fixed string plus an optional
+ * number, and the two are only joined on the drain thread. Nothing is
+ * concatenated when a level is disabled.
+ *
+ * Squawk has no atomic compare-and-set, so producers hold a short lock while
+ * copying into a slot. The drain thread never takes that lock, and no
+ * producer ever waits on I/O. When the buffer is full, new entries are
+ * dropped and counted.
+ * @author Jeremy
+ */
+public class Logger implements Runnable {
+
+    public static final int DEBUG = 0;
+    public static final int INFO = 1;
+    public static final int WARN = 2;
+    public static final int ERROR = 3;
+    public static final int OFF = 4;
+    private static final String[] LEVEL_NAMES = {"DEBUG", "INFO", "WARN", "ERROR"};
+    private static final int BUFFER_SIZE = 256;
+    private static final double DRAIN_RATE = 20.0;     //Hz
+    private static volatile int level = INFO;
+    private static Logger instance = null;
+    //Ring buffer, one array per field so no entry objects are allocated
+    private final long[] times = new long[BUFFER_SIZE];
+    private final int[] levels = new int[BUFFER_SIZE];
+    private final String[] prefixes = new String[BUFFER_SIZE];
+    private final String[] messages = new String[BUFFER_SIZE];
+    private final double[] values = new double[BUFFER_SIZE];
+    private final boolean[] hasValues = new boolean[BUFFER_SIZE];
+    private final int[] suppressed = new int[BUFFER_SIZE];
+    private volatile int writeIndex = 0;    //Only advanced by producers, under writeLock
+    private volatile int readIndex = 0;     //Only advanced by the drain thread
+    private final Object writeLock = new Object();
+    private volatile long dropped = 0;
+    private long reportedDropped = 0;
+    private StringBuffer line = new StringBuffer(128);
+    private PeriodicExecutor drain;
+
+    private Logger() {
+        drain = new PeriodicExecutor(this, DRAIN_RATE, "Logger");
+        drain.setPriority(Thread.MIN_PRIORITY);
+        drain.start();
+    }
+
+    /**
+     * Returns the logger, starting the drain thread on first use
+     * @return the logger instance
+     */
+    public static synchronized Logger getInstance() {
+        if (instance == null) {
+            instance = new Logger();
+        }
+        return instance;
+    }
+
+    /**
+     * Sets the minimum level that is logged
+     * @param newLevel DEBUG, INFO, WARN, ERROR or OFF
+     */
+    public static void setLevel(int newLevel) {
+        level = newLevel;
+    }
+
+    public static int getLevel() {
+        return level;
+    }
+
+    /**
+     * Check this before building a message string that is only needed for logging
+     * @param messageLevel the level of the message
+     * @return true if messages at this level are logged
+     */
+    public static boolean isEnabled(int messageLevel) {
+        return messageLevel >= level && messageLevel < OFF;
+    }
+
+    /**
+     * Logs a message
+     * @param messageLevel the level of the message
+     * @param prefix text printed before the message, such as "[SHOOTER] "
+     * @param message the message
+     */
+    public static void log(int messageLevel, String prefix, String message) {
+        if (isEnabled(messageLevel)) {
+            getInstance().enqueue(messageLevel, prefix, message, 0, false, 0);
+        }
+    }
+
+    /**
+     * Logs a message followed by a number. The number is formatted on the drain thread
+     * @param messageLevel the level of the message
+     * @param prefix text printed before the message, such as "[SHOOTER] "
+     * @param message the message
+     * @param value number printed after the message
+     */
+    public static void log(int messageLevel, String prefix, String message, double value) {
+        if (isEnabled(messageLevel)) {
+            getInstance().enqueue(messageLevel, prefix, message, value, true, 0);
+        }
+    }
+
+    void enqueue(int messageLevel, String prefix, String message,
+            double value, boolean hasValue, int suppressedCount) {
+        long now = Clock.millis();
+        synchronized (writeLock) {
+            int w = writeIndex;
+            if (w - readIndex >= BUFFER_SIZE) {
+                dropped++;
+                return;
+            }
+            int slot = w % BUFFER_SIZE;
+            times[slot] = now;
+            levels[slot] = messageLevel;
+            prefixes[slot] = prefix;
+            messages[slot] = message;
+            values[slot] = value;
+            hasValues[slot] = hasValue;
+            suppressed[slot] = suppressedCount;
+            writeIndex = w + 1;     //Publish the slot last
+        }
+    }
+
+    /**
+     * Drain thread run method. don't call this in user code
+     */
+    public void run() {
+        while (readIndex != writeIndex) {
+            int slot = readIndex % BUFFER_SIZE;
+            line.setLength(0);
+            if (prefixes[slot] != null) {
+                line.append(prefixes[slot]);
+            }
+            if (levels[slot] >= WARN) {
+                line.append(LEVEL_NAMES[levels[slot]]).append(": ");
+            }
+            line.append(messages[slot]);
+            if (hasValues[slot]) {
+                line.append(values[slot]);
+            }
+            if (suppressed[slot] > 0) {
+                line.append(" (suppressed ").append(suppressed[slot]).append(" times)");
+            }
+            boolean isError = levels[slot] >= WARN;
+            prefixes[slot] = null;  //Don't hold on to the strings
+            messages[slot] = null;
+            readIndex = readIndex + 1;
+
+            if (isError) {
+                System.err.println(line.toString());
+            } else {
+                System.out.println(line.toString());
+            }
+        }
+
+        long d = dropped;
+        if (d != reportedDropped) {
+            System.err.println("[LOGGER] Log buffer full, dropped " + (d - reportedDropped) + " messages");
+            reportedDropped = d;
+        }
+    }
+
+    /**
+     * @return the number of messages dropped because the buffer was full
+     */
+    public long getDroppedCount() {
+        return dropped;
+    }
+}
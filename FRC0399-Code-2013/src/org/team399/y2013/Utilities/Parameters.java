@@ -0,0 +1,61 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.Utilities;
+
+import java.util.Enumeration;
+import java.util.Hashtable;
+
+/**
+ * Runtime parameter store. Tuned values that can change without a code
+ * download live here under a name, and code reads them with the value in
+ * Constants as the default. The store itself is only in memory; on the
+ * robot, Main loads it from and saves it to the cRIO preferences file.
+ * @author Jeremy
+ */
+public class Parameters {
+
+    private static final Hashtable values = new Hashtable();
+
+    private Parameters() {
+    }
+
+    /**
+     * @param key parameter name
+     * @param defaultValue value to use if the parameter has not been set
+     * @return the parameter value
+     */
+    public static synchronized double get(String key, double defaultValue) {
+        Double value = (Double) values.get(key);
+        return (value == null) ? defaultValue : value.doubleValue();
+    }
+
+    /**
+     * Sets a parameter. Code that already read it is not told
+     * @param key parameter name
+     * @param value new value
+     */
+    public static synchronized void set(String key, double value) {
+        values.put(key, new Double(value));
+    }
+
+    /**
+     * @return true if the parameter has been set
+     */
+    public static synchronized boolean contains(String key) {
+        return values.containsKey(key);
+    }
+
+    /**
+     * @return the names of every parameter that has been set
+     */
+    public static synchronized String[] getKeys() {
+        String[] keys = new String[values.size()];
+        Enumeration e = values.keys();
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = (String) e.nextElement();
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.Utilities;
+
+/**
+ * Fixed rate executor. Runs a task on its own thread at a constant rate.
+ * Iterations are scheduled against absolute deadlines (start + n * period)
+ * instead of sleeping after the work is done, so the loop neither drifts nor
+ * busy-spins when an iteration finishes early. Iterations that run past their
+ * deadline are counted as overruns, and the missed slots are skipped rather
+ * than run back to back.
+ *
+ * In a simulation, setSimulated(true) before anything is built: executors
+ * started after that get no thread, and the simulation calls runSimulated()
+ * each time it moves virtual time on to run the ones that are due, so the
+ * whole robot steps in one thread.
+ * @author Jeremy
+ */
+public class PeriodicExecutor implements Runnable {
+
+    private Runnable task;
+    private String name;
+    private long period;            //Period in milliseconds
+    private int priority = Thread.NORM_PRIORITY;
+    private Thread thread = null;   //The thread of the current run. A stopped run's thread exits when it sees it isn't this one
+    private boolean running = false;
+    private final Object statsLock = new Object();
+    private long iterations = 0;
+    private long overruns = 0;
+    private long maxJitter = 0;     //Worst case lateness of an iteration start, ms
+    private long totalJitter = 0;
+    private long maxExecTime = 0;   //Worst case task execution time, ms
+    private long lastExecTime = 0;
+    private long nextRun = 0;       //Clock.millis() the next simulated iteration is due
+    private static boolean simulated = false;
+    private static PeriodicExecutor[] simulatedExecutors = new PeriodicExecutor[0];  //Copy on write
+
+    /**
+     * Constructor
+     * @param task the task to run once per period
+     * @param rate execution rate in Hz. 100 and 200 Hz are the usual choices
+     * @param name name used when printing status
+     */
+    public PeriodicExecutor(Runnable task, double rate, String name) {
+        this.task = task;
+        this.name = name;
+        setRate(rate);
+    }
+
+    /**
+     * Sets the execution rate. Takes effect on the next iteration
+     * @param rate execution rate in Hz
+     */
+    public synchronized void setRate(double rate) {
+        long newPeriod = (long) (1000.0 / rate);
+        if (newPeriod < 1) {
+            newPeriod = 1;
+        }
+        period = newPeriod;
+    }
+
+    /**
+     * @return the execution period in milliseconds
+     */
+    public synchronized long getPeriod() {
+        return period;
+    }
+
+    /**
+     * Sets the priority the executor thread is started with
+     * @param priority a Thread priority
+     */
+    public synchronized void setPriority(int priority) {
+        this.priority = priority;
+        if (thread != null) {
+            thread.setPriority(priority);
+        }
+    }
+
+    /**
+     * Start running the task
+     * @return flag indicating a successful start
+     */
+    public synchronized boolean start() {
+        if (!running) {
+            running = true;
+            if (isSimulated()) {
+                nextRun = Clock.millis();
+                addSimulated(this);
+                return true;
+            }
+            try {
+                thread = new Thread(this);
+                thread.setPriority(priority);
+                thread.start();
+                System.out.println(name + " executor started at " + (1000 / period) + "Hz");
+            } catch (Exception error) {
+                System.out.println(error);
+                running = false;
+                thread = null;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stop running the task. The thread exits after the current iteration.
+     * A start() before then gets a new thread, and the old one still exits
+     */
+    public synchronized void stop() {
+        running = false;
+        thread = null;
+    }
+
+    /**
+     * @return true if the executor thread is running
+     */
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return true if the calling thread is the one the current run started
+     */
+    private synchronized boolean isCurrentThread() {
+        return running && thread == Thread.currentThread();
+    }
+
+    /**
+     * Thread run method. don't call this in user code
+     */
+    public void run() {
+        long deadline = System.currentTimeMillis();
+        while (isCurrentThread()) {
+            long scheduled = deadline;
+            long start = System.currentTimeMillis();
+            task.run();
+            long end = System.currentTimeMillis();
+
+            long currentPeriod = getPeriod();
+            deadline = scheduled + currentPeriod;
+            boolean overrun = end > deadline;
+            if (overrun) {
+                //Skip the slots that were missed instead of running them back to back
+                deadline += ((end - deadline) / currentPeriod + 1) * currentPeriod;
+            }
+            record(start - scheduled, end - start, overrun);
+
+            long sleepTime = deadline - System.currentTimeMillis();
+            if (sleepTime > 0) {
+                try {
+                    Thread.sleep(sleepTime);
+                } catch (InterruptedException e) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs executors from runSimulated() instead of on threads. Call before
+     * any executor is started
+     * @param simulated true in a simulation
+     */
+    public static synchronized void setSimulated(boolean simulated) {
+        PeriodicExecutor.simulated = simulated;
+    }
+
+    public static synchronized boolean isSimulated() {
+        return simulated;
+    }
+
+    private static synchronized void addSimulated(PeriodicExecutor executor) {
+        for (int i = 0; i < simulatedExecutors.length; i++) {
+            if (simulatedExecutors[i] == executor) {
+                return;
+            }
+        }
+        PeriodicExecutor[] newExecutors = new PeriodicExecutor[simulatedExecutors.length + 1];
+        System.arraycopy(simulatedExecutors, 0, newExecutors, 0, simulatedExecutors.length);
+        newExecutors[simulatedExecutors.length] = executor;
+        simulatedExecutors = newExecutors;
+    }
+
+    /**
+     * Runs each started simulated executor whose next iteration is due on
+     * the Clock, in the order they were started. Call after every step of
+     * virtual time, with steps shorter than the fastest period
+     */
+    public static void runSimulated() {
+        PeriodicExecutor[] executors;
+        synchronized (PeriodicExecutor.class) {
+            executors = simulatedExecutors;
+        }
+        long now = Clock.millis();
+        for (int i = 0; i < executors.length; i++) {
+            executors[i].runIfDue(now);
+        }
+    }
+
+    private void runIfDue(long now) {
+        if (!isRunning() || now < nextRun) {
+            return;
+        }
+        task.run();
+        nextRun += getPeriod();
+        if (nextRun <= now) {   //Fell behind, as after a rate change. Skip the missed slots
+            nextRun = now + getPeriod();
+        }
+        record(0, 0, false);
+    }
+
+    private void record(long jitter, long execTime, boolean overrun) {
+        if (jitter < 0) {
+            jitter = 0;
+        }
+        synchronized (statsLock) {
+            iterations++;
+            if (overrun) {
+                overruns++;
+            }
+            totalJitter += jitter;
+            if (jitter > maxJitter) {
+                maxJitter = jitter;
+            }
+            lastExecTime = execTime;
+            if (execTime > maxExecTime) {
+                maxExecTime = execTime;
+            }
+        }
+    }
+
+    /**
+     * @return the number of iterations run since the last stats reset
+     */
+    public long getIterations() {
+        synchronized (statsLock) {
+            return iterations;
+        }
+    }
+
+    /**
+     * @return the number of iterations that ran past their deadline
+     */
+    public long getOverruns() {
+        synchronized (statsLock) {
+            return overruns;
+        }
+    }
+
+    /**
+     * @return the worst case lateness of an iteration start in milliseconds
+     */
+    public long getMaxJitter() {
+        synchronized (statsLock) {
+            return maxJitter;
+        }
+    }
+
+    /**
+     * @return the average lateness of an iteration start in milliseconds
+     */
+    public double getMeanJitter() {
+        synchronized (statsLock) {
+            if (iterations == 0) {
+                return 0;
+            }
+            return (double) totalJitter / iterations;
+        }
+    }
+
+    /**
+     * @return the execution time of the last iteration in milliseconds
+     */
+    public long getLastExecTime() {
+        synchronized (statsLock) {
+            return lastExecTime;
+        }
+    }
+
+    /**
+     * @return the worst case execution time of an iteration in milliseconds
+     */
+    public long getMaxExecTime() {
+        synchronized (statsLock) {
+            return maxExecTime;
+        }
+    }
+
+    /**
+     * Zeros the overrun and jitter statistics
+     */
+    public void resetStats() {
+        synchronized (statsLock) {
+            iterations = 0;
+            overruns = 0;
+            maxJitter = 0;
+            totalJitter = 0;
+            maxExecTime = 0;
+            lastExecTime = 0;
+        }
+    }
+}
@@ -6,13 +6,14 @@ package org.team399.y2013.Utilities;
 
 /**
  * Standard print stream utility class. Contains various functions to modify the print stream
- * for easy debugging or readability
+ * for easy debugging or readability. Output goes through the asynchronous Logger
  * @author Jeremy
  */
 public class PrintStream {
 
     String prefix;
     String suffix = " ";
+    int level = Logger.INFO;
     
     
 
@@ -35,15 +36,33 @@ public class PrintStream {
         this.suffix = suffix;
     }
 
+    /**
+     * Sets the level this stream logs at
+     * @param level one of the Logger levels
+     */
+    public void setLevel(int level) {
+        this.level = level;
+    }
+
+    /**
+     * @return true if this stream's output is currently logged. Check this
+     * before building an expensive message
+     */
+    public boolean isEnabled() {
+        return Logger.isEnabled(level);
+    }
+
     /**
      * Prints data with suffix and prefix
      * @param data 
      */
     public void println(String data) {
-        System.out.println(prefix + data + suffix);
+        if (isEnabled()) {
+            Logger.log(level, prefix, data + suffix);
+        }
     }
     
     public void print(String data)  {
-        System.out.print(data);
+        Logger.log(level, null, data);
     }
 }
@@ -0,0 +1,27 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.Utilities;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Time from the FPGA. Both readings come from the same counter, so they
+ * share its origin, power on
+ * @author Jeremy
+ */
+public class RealTimeSource implements TimeSource, Sleeper {
+
+    public long getMillis() {
+        return (long) (Timer.getFPGATimestamp() * 1000);
+    }
+
+    public double getSeconds() {
+        return Timer.getFPGATimestamp();
+    }
+
+    public void sleep(double seconds) {
+        Timer.delay(seconds);
+    }
+}
@@ -0,0 +1,19 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.Utilities;
+
+/**
+ * Waits. The robot uses RealTimeSource, which blocks the thread;
+ * simulations use a VirtualTimeSource, which moves virtual time on instead
+ * @author Jeremy
+ */
+public interface Sleeper {
+
+    /**
+     * Returns once the time has passed
+     * @param seconds time to wait
+     */
+    void sleep(double seconds);
+}
@@ -36,7 +36,7 @@ public class StringUtils {
         if (nodes.size() > 0) {
             for (int loop = 0; loop < nodes.size(); loop++) {
                 result[loop] = (String) nodes.elementAt(loop);
-                System.out.println(result[loop]);
+                Logger.log(Logger.DEBUG, "[STRING-UTILS] ", result[loop]);
             }
 
         }
@@ -0,0 +1,329 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.Utilities;
+
+import com.sun.squawk.microedition.io.FileConnection;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Vector;
+import javax.microedition.io.Connector;
+
+/**
+ * Binary telemetry recorder. Replaces the text DataLogger.
+ *
+ * Channels are declared up front. Each record is then a fixed-size block: an
+ * 8 byte timestamp followed by every channel in declaration order. Records
+ * are written into one of two preallocated buffers. When a buffer fills, it
+ * is handed to a low priority writer thread and recording continues in the
+ * other. The writer is the only thread that touches the file, so the control
+ * loop never waits on flash. If the writer falls a whole buffer behind,
+ * records are dropped and counted.
+ *
+ * File format, all values big-endian (java.io.DataOutput):
+ *   int   magic "T399" (0x54333939)
+ *   short format version
+ *   short channel count
+ *   per channel: UTF name, byte type
+ *   int   record size in bytes
+ *   records: long timestamp (ms), then each channel (double 8, float 4, int 4, boolean 1)
+ * @author Jeremy
+ */
+public class TelemetryRecorder implements Runnable {
+
+    public static final byte TYPE_DOUBLE = 0;
+    public static final byte TYPE_FLOAT = 1;
+    public static final byte TYPE_INT = 2;
+    public static final byte TYPE_BOOLEAN = 3;
+    public static final int MAGIC = 0x54333939;
+    public static final short VERSION = 1;
+    private static final int TIMESTAMP_SIZE = 8;
+    private String filenamePrefix;
+    private Vector names = new Vector();
+    private Vector types = new Vector();
+    private int[] offsets = new int[0];
+    private int recordSize = TIMESTAMP_SIZE;
+    private int blockSize;
+    private byte[][] buffers = new byte[2][];
+    private int active = 0;
+    private int position = 0;
+    private int recordBase = -1;    //Offset of the open record, -1 if it is being dropped
+    private final Object lock = new Object();
+    private byte[] pendingBlock = null;     //Block owned by the writer until it is written
+    private int pendingLength = 0;
+    private boolean started = false;
+    private boolean running = false;
+    private long recorded = 0;
+    private long dropped = 0;
+    private String filename = null;
+
+    /**
+     * Constructor
+     * @param filenamePrefix file path without extension, such as "file:///telemetry".
+     * An index is added so earlier logs are not overwritten
+     * @param blockSize size of each buffer, in bytes. Also the size of each flash write
+     */
+    public TelemetryRecorder(String filenamePrefix, int blockSize) {
+        this.filenamePrefix = filenamePrefix;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Declares a channel. Only allowed before start()
+     * @param name channel name
+     * @param type one of the TYPE constants
+     * @return the channel index to record values with, or -1 if already started
+     */
+    public int addChannel(String name, byte type) {
+        if (started) {
+            return -1;
+        }
+        names.addElement(name);
+        types.addElement(new Integer(type));
+        int[] newOffsets = new int[offsets.length + 1];
+        System.arraycopy(offsets, 0, newOffsets, 0, offsets.length);
+        newOffsets[offsets.length] = recordSize;
+        offsets = newOffsets;
+        recordSize += sizeOf(type);
+        return offsets.length - 1;
+    }
+
+    private static int sizeOf(byte type) {
+        switch (type) {
+            case TYPE_DOUBLE:
+                return 8;
+            case TYPE_BOOLEAN:
+                return 1;
+            default:
+                return 4;
+        }
+    }
+
+    /**
+     * Allocates the buffers and starts the writer thread. The file is opened
+     * on the writer thread
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        int size = blockSize;
+        if (size < recordSize) {
+            size = recordSize;
+        }
+        size -= size % recordSize;  //Whole records only
+        buffers[0] = new byte[size];
+        buffers[1] = new byte[size];
+        started = true;
+        running = true;
+        Thread writer = new Thread(this);
+        writer.setPriority(Thread.MIN_PRIORITY);
+        writer.start();
+    }
+
+    /**
+     * Opens a new record. Channels not set keep the value from the last record
+     * that used the same slot, so set every channel each time
+     * @param timestamp record time, ms
+     */
+    public void beginRecord(long timestamp) {
+        if (!started) {
+            recordBase = -1;
+            return;
+        }
+        if (position + recordSize > buffers[active].length && !swap()) {
+            recordBase = -1;    //Writer is behind. Drop this record
+            dropped++;
+            return;
+        }
+        recordBase = position;
+        putLong(buffers[active], recordBase, timestamp);
+    }
+
+    public void setDouble(int channel, double value) {
+        if (recordBase >= 0) {
+            putLong(buffers[active], recordBase + offsets[channel], Double.doubleToLongBits(value));
+        }
+    }
+
+    public void setFloat(int channel, double value) {
+        if (recordBase >= 0) {
+            putInt(buffers[active], recordBase + offsets[channel], Float.floatToIntBits((float) value));
+        }
+    }
+
+    public void setInt(int channel, int value) {
+        if (recordBase >= 0) {
+            putInt(buffers[active], recordBase + offsets[channel], value);
+        }
+    }
+
+    public void setBoolean(int channel, boolean value) {
+        if (recordBase >= 0) {
+            buffers[active][recordBase + offsets[channel]] = (byte) (value ? 1 : 0);
+        }
+    }
+
+    /**
+     * Closes the open record
+     */
+    public void endRecord() {
+        if (recordBase >= 0) {
+            position = recordBase + recordSize;
+            recorded++;
+            recordBase = -1;
+        }
+    }
+
+    /**
+     * Hands the partly filled buffer to the writer, so everything recorded so
+     * far reaches flash. Call at the end of a match. Never blocks
+     * @return false if the writer was busy and nothing was handed over
+     */
+    public boolean flush() {
+        if (!started || position == 0) {
+            return true;
+        }
+        return swap();
+    }
+
+    private boolean swap() {
+        synchronized (lock) {
+            if (pendingBlock != null) {
+                return false;
+            }
+            pendingBlock = buffers[active];
+            pendingLength = position;
+            lock.notify();
+        }
+        active ^= 1;
+        position = 0;
+        return true;
+    }
+
+    /**
+     * Flushes what has been recorded and stops the writer thread once it is written
+     */
+    public void stop() {
+        flush();
+        synchronized (lock) {
+            running = false;
+            lock.notify();
+        }
+    }
+
+    /**
+     * Writer thread run method. don't call this in user code
+     */
+    public void run() {
+        DataOutputStream out = null;
+        try {
+            out = open();
+            writeHeader(out);
+        } catch (IOException e) {
+            System.err.println("[TELEMETRY] Could not open log file: " + e);
+        }
+
+        while (true) {
+            byte[] block;
+            int length;
+            synchronized (lock) {
+                while (pendingBlock == null && running) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                    }
+                }
+                if (pendingBlock == null) {
+                    break;
+                }
+                block = pendingBlock;
+                length = pendingLength;
+            }
+
+            if (out != null) {
+                try {
+                    out.write(block, 0, length);
+                    out.flush();
+                } catch (IOException e) {
+                    System.err.println("[TELEMETRY] Write failed: " + e);
+                }
+            }
+
+            synchronized (lock) {
+                pendingBlock = null;    //Give the block back to the recorder
+            }
+        }
+
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+            }
+        }
+    }
+
+    /**
+     * Opens the first unused telemetry_N.bin file
+     */
+    private DataOutputStream open() throws IOException {
+        for (int i = 0; i < 1000; i++) {
+            String name = filenamePrefix + "_" + i + ".bin";
+            FileConnection fc = (FileConnection) Connector.open(name, Connector.READ_WRITE);
+            if (!fc.exists()) {
+                fc.create();
+                filename = name;
+                System.out.println("[TELEMETRY] Recording to " + name);
+                return fc.openDataOutputStream();
+            }
+            fc.close();
+        }
+        throw new IOException("No free telemetry file name");
+    }
+
+    private void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeShort(names.size());
+        for (int i = 0; i < names.size(); i++) {
+            out.writeUTF((String) names.elementAt(i));
+            out.writeByte(((Integer) types.elementAt(i)).intValue());
+        }
+        out.writeInt(recordSize);
+        out.flush();
+    }
+
+    private static void putLong(byte[] buf, int offset, long value) {
+        putInt(buf, offset, (int) (value >>> 32));
+        putInt(buf, offset + 4, (int) value);
+    }
+
+    private static void putInt(byte[] buf, int offset, int value) {
+        buf[offset] = (byte) (value >>> 24);
+        buf[offset + 1] = (byte) (value >>> 16);
+        buf[offset + 2] = (byte) (value >>> 8);
+        buf[offset + 3] = (byte) value;
+    }
+
+    /**
+     * @return the number of records written into the buffers
+     */
+    public long getRecordedCount() {
+        return recorded;
+    }
+
+    /**
+     * @return the number of records dropped because the writer was behind
+     */
+    public long getDroppedCount() {
+        return dropped;
+    }
+
+    /**
+     * @return the file being written, or null if it is not open yet
+     */
+    public String getFilename() {
+        return filename;
+    }
+}
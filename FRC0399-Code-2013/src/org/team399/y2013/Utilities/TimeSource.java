@@ -0,0 +1,26 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.Utilities;
+
+/**
+ * A source of time. The robot uses RealTimeSource; simulations use a
+ * VirtualTimeSource so they can run faster than real time.
+ *
+ * getMillis() and getSeconds() must count from the same origin, so a time
+ * read one way can be compared with a time read the other. Code mixes them.
+ * @author Jeremy
+ */
+public interface TimeSource {
+
+    /**
+     * @return the time in ms. Only differences between readings are meaningful
+     */
+    long getMillis();
+
+    /**
+     * @return the time in seconds, with microsecond resolution on the robot
+     */
+    double getSeconds();
+}
@@ -0,0 +1,110 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.Utilities;
+
+/**
+ * Trapezoidal motion profile. Moves a setpoint toward a goal no faster than
+ * a maximum velocity and no harder than a maximum acceleration, so a
+ * position loop following it never sees a step.
+ *
+ * The profile is computed online: each update it speeds up toward the
+ * fastest speed it could still stop from in the distance left,
+ * sqrt(2 * accel * distance), capped at the maximum velocity. That gives the
+ * accelerate, cruise and decelerate segments, and also handles a goal that
+ * changes mid move or one that is behind the current velocity.
+ * @author Jeremy
+ */
+public class TrapezoidProfile {
+
+    private double maxVelocity;
+    private double maxAcceleration;
+    private double position = 0.0;
+    private double velocity = 0.0;
+    private double goal = 0.0;
+
+    /**
+     * Constructor
+     * @param maxVelocity maximum speed, units per second
+     * @param maxAcceleration maximum acceleration, units per second squared
+     */
+    public TrapezoidProfile(double maxVelocity, double maxAcceleration) {
+        setLimits(maxVelocity, maxAcceleration);
+    }
+
+    public void setLimits(double maxVelocity, double maxAcceleration) {
+        this.maxVelocity = Math.abs(maxVelocity);
+        this.maxAcceleration = Math.abs(maxAcceleration);
+    }
+
+    /**
+     * Sets where the profile is headed. Takes effect on the next update
+     * @param goal goal position
+     */
+    public void setGoal(double goal) {
+        this.goal = goal;
+    }
+
+    /**
+     * Puts the profile at rest at a position, such as the measured position
+     * of the mechanism when it has not been following the profile
+     * @param position position to restart from
+     */
+    public void reset(double position) {
+        this.position = position;
+        this.velocity = 0.0;
+    }
+
+    /**
+     * Advances the profile
+     * @param dt time since the last update, seconds
+     */
+    public void update(double dt) {
+        double error = goal - position;
+        if (dt <= 0 || (error == 0 && velocity == 0)) {
+            return;
+        }
+        double direction = (error >= 0) ? 1 : -1;
+        double dv = maxAcceleration * dt;
+        //sqrt(2 * accel * distance), corrected for stopping in steps of dv:
+        //v^2 / 2a + v dt / 2 = distance
+        double stopSpeed = (Math.sqrt(dv * dv + 8 * maxAcceleration * Math.abs(error)) - dv) / 2;
+        double target = direction * Math.min(maxVelocity, stopSpeed);
+        velocity += EagleMath.cap(target - velocity, -dv, dv);
+
+        double step = velocity * dt;
+        if (step * error >= 0 && Math.abs(step) >= Math.abs(error)) {
+            //Arrives this update, at no more than about accel * dt
+            position = goal;
+            velocity = 0.0;
+        } else {
+            position += step;
+        }
+    }
+
+    /**
+     * @return the profiled setpoint
+     */
+    public double getPosition() {
+        return position;
+    }
+
+    /**
+     * @return the profiled velocity, units per second
+     */
+    public double getVelocity() {
+        return velocity;
+    }
+
+    public double getGoal() {
+        return goal;
+    }
+
+    /**
+     * @return true once the profile has stopped at the goal
+     */
+    public boolean isFinished() {
+        return position == goal && velocity == 0;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.Utilities;
+
+/**
+ * Estimates a velocity from timestamped position samples. Implementations
+ * run in constant time per sample, so they can be used inside fast control
+ * loops. Latency and variance are reported so estimators can be compared by
+ * how much phase lag they add against how much noise they let through.
+ * @author Jeremy
+ */
+public interface VelocityEstimator {
+
+    /**
+     * Update the estimator with a new sample
+     * @param position measured position, in any unit
+     * @param time time the sample was taken, in seconds
+     */
+    public void update(double position, double time);
+
+    /**
+     * @return the estimated velocity, in position units per second
+     */
+    public double getVelocity();
+
+    /**
+     * @return the variance of the velocity estimate, in (units per second)^2
+     */
+    public double getVariance();
+
+    /**
+     * @return the approximate delay of the estimate behind the true velocity, in seconds
+     */
+    public double getLatency();
+
+    /**
+     * Clears all history
+     */
+    public void reset();
+}
@@ -0,0 +1,51 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.Utilities;
+
+/**
+ * Time that only moves when advance() is called. Starts at 0.
+ *
+ * Sleeping advances time rather than blocking: a simulation is one thread
+ * that runs the loops itself, so code that waits just moves the clock on.
+ * @author Jeremy
+ */
+public class VirtualTimeSource implements TimeSource, Sleeper {
+
+    private volatile long micros = 0;
+
+    /**
+     * Moves time forward
+     * @param seconds time step
+     */
+    public synchronized void advance(double seconds) {
+        micros += (long) (seconds * 1e6 + 0.5);
+    }
+
+    /**
+     * Moves time forward
+     * @param step time step, microseconds
+     */
+    public synchronized void advanceMicros(long step) {
+        micros += step;
+    }
+
+    public long getMicros() {
+        return micros;
+    }
+
+    public long getMillis() {
+        return micros / 1000;
+    }
+
+    public double getSeconds() {
+        return micros / 1e6;
+    }
+
+    public void sleep(double seconds) {
+        if (seconds > 0) {
+            advance(seconds);
+        }
+    }
+}
@@ -4,7 +4,6 @@
  */
 package org.team399.y2013.robot.Autonomous;
 
-import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import org.team399.y2013.Utilities.EagleMath;
 import org.team399.y2013.robot.Constants;
@@ -18,72 +17,202 @@ import org.team399.y2013.robot.Main;
  */
 public class AutonCommon {
 
-    private static long timeDelay = 0;
-    private static double waitForArmDelay = .75;
     private static double feedToRollerDelay = .5;
     private static double kickerResetDelay = .25;
     private static double feedToKickerDelay = 1.0;
+    /**
+     * Runs the selected routine. Started by the routine's start(), ticked by its run()
+     */
+    public static final Sequencer sequencer = new Sequencer();
 
     /**
-     * timed sequence for shooting one disc
+     * @return a step that sends the arm to a setpoint, without waiting
      */
-    public static void shootOneDisc() {
-        Main.robot.feeder.setKicker(Constants.KICKER_OUT);
-        Main.robot.feeder.setRoller(0);
-        Timer.delay(feedToRollerDelay);
+    public static Step setArm(final double setpoint) {
+        return new Steps.Action() {
+
+            public void run() {
+                Main.robot.arm.setPointRotations(setpoint);
+            }
+        };
+    }
 
-        Main.robot.feeder.setKicker(Constants.KICKER_IN);
-        Timer.delay(kickerResetDelay);
+    /**
+     * @param timeout longest to wait, seconds
+     * @return a step that waits for the arm to settle at its setpoint
+     */
+    public static Step armSettled(double timeout) {
+        return Steps.waitUntil("arm", new Steps.Condition() {
 
-        Main.robot.feeder.setRoller(1.0);
-        Timer.delay(feedToKickerDelay);
+            public boolean isMet() {
+                return Main.robot.arm.isSettled();
+            }
+        }, timeout);
     }
-    
+
     /**
-     * timed sequence for shooting one disc
+     * @return a step that sends the arm to a setpoint and waits for it to settle
      */
-    public static void shootOneDiscFast() {
-        Main.robot.feeder.setKicker(Constants.KICKER_OUT);
-        Main.robot.feeder.setRoller(0);
-        Timer.delay(.25);
+    public static Step moveArm(double setpoint, double timeout) {
+        return Steps.sequence(new Step[]{setArm(setpoint), armSettled(timeout)});
+    }
 
-        Main.robot.feeder.setKicker(Constants.KICKER_IN);
-        Timer.delay(kickerResetDelay);
+    /**
+     * @return a step that sets the shooter speed, without waiting
+     */
+    public static Step setShooter(final double rpm) {
+        return new Steps.Action() {
 
-        Main.robot.feeder.setRoller(1.0);
-        Timer.delay(.5);
+            public void run() {
+                Main.robot.shooter.setShooterSpeed(rpm);
+            }
+        };
     }
-    
 
     /**
-     * Open loop drive distance function. Use caution with lower speeds in high
+     * @param timeout longest to wait, seconds
+     * @return a step that waits for the shooter to reach its set speed
+     */
+    public static Step shooterReady(double timeout) {
+        return Steps.waitUntil("shooter", new Steps.Condition() {
+
+            public boolean isMet() {
+                return Main.robot.shooter.isAtTargetSpeed();
+            }
+        }, timeout);
+    }
+
+    /**
+     * @return a step that sets the intake roller
+     */
+    public static Step setRoller(final double speed) {
+        return new Steps.Action() {
+
+            public void run() {
+                Main.robot.feeder.setRoller(speed);
+            }
+        };
+    }
+
+    private static Step setKicker(final boolean state) {
+        return new Steps.Action() {
+
+            public void run() {
+                Main.robot.feeder.setKicker(state);
+            }
+        };
+    }
+
+    /**
+     * Timed sequence for shooting one disc: kick, retract, then feed the next
+     * disc to the kicker
+     * @param fast shorter kick and feed times
+     * @param last leave out feeding the next disc, since there isn't one
+     */
+    public static Step shootDisc(boolean fast, boolean last) {
+        Step kick = Steps.sequence(new Step[]{
+                    setKicker(Constants.KICKER_OUT),
+                    setRoller(0),
+                    Steps.delay(fast ? .25 : feedToRollerDelay),
+                    setKicker(Constants.KICKER_IN),
+                    Steps.delay(kickerResetDelay)
+                });
+        if (last) {
+            return kick;
+        }
+        return Steps.sequence(new Step[]{
+                    kick,
+                    setRoller(1.0),
+                    Steps.delay(fast ? .5 : feedToKickerDelay)
+                });
+    }
+
+    /**
+     * @param count discs to shoot
+     * @param fast shorter kick and feed times
+     * @return a step that shoots discs one after another
+     */
+    public static Step shootDiscs(int count, boolean fast) {
+        Step[] shots = new Step[count];
+        for (int i = 0; i < count; i++) {
+            shots[i] = shootDisc(fast, i == count - 1);
+        }
+        return Steps.sequence(shots);
+    }
+
+    /**
+     * Open loop drive distance step. Use caution with lower speeds in high
      * gear, short distances in high gear.
      *
      * @param speed
      * @param distance
      * @param gear
      */
-    public static void driveDistanceNaive(double speed, double distance, boolean gear) {
+    public static Step driveDistanceNaive(final double speed, final double distance, final boolean gear) {
         if (gear == Constants.LOW_GEAR) {
             //    speed = EagleMath.cap(speed, -Constants.DRIVE_LOW_MAX_SPEED_FPS, 
             //                                  Constants.DRIVE_LOW_MAX_SPEED_FPS);
         }
-        double delayTime = distance / speed;
-        Main.robot.drive.setShifter(gear);
-        Main.robot.drive.driveSpeed(speed, speed);
-        Timer.delay(delayTime);
-        Main.robot.drive.driveSpeed(-.2*EagleMath.signum(speed), //quick power reversal to brake
-                -.2*EagleMath.signum(speed));
-        Timer.delay(.1);
-        Main.robot.drive.driveSpeed(0, 0);
+        final double driveTime = distance / speed;
+        return new Step() {
+
+            private double start;
+
+            public void start(double now) {
+                start = now;
+                Main.robot.drive.setShifter(gear);
+            }
+
+            public boolean update(double now) {
+                double t = now - start;
+                if (t < driveTime) {
+                    Main.robot.drive.driveSpeed(speed, speed);
+                    return false;
+                } else if (t < driveTime + .1) {
+                    Main.robot.drive.driveSpeed(-.2 * EagleMath.signum(speed), //quick power reversal to brake
+                            -.2 * EagleMath.signum(speed));
+                    return false;
+                }
+                return true;
+            }
+
+            public void end(boolean interrupted) {
+                Main.robot.drive.driveSpeed(0, 0);
+            }
+        };
     }
 
-    public void waitForArm() {
-        int ctr = 0;
-        while ((Main.robot.arm.getSetpoint() - Main.robot.arm.getActual() > .075) || ctr >= 12) {
-            System.out.println("Waiting for arm to reach position");
-            Timer.delay(125);
-            ctr++;
+    /**
+     * @return a step that drives open loop for a time
+     */
+    public static Step tankDrive(final double left, final double right, final boolean gear, final double seconds) {
+        return new Step() {
+
+            private double end;
+
+            public void start(double now) {
+                end = now + seconds;
+                Main.robot.drive.setShifter(gear);
+            }
+
+            public boolean update(double now) {
+                Main.robot.drive.tankDrive(left, right);
+                return now >= end;
+            }
+
+            public void end(boolean interrupted) {
+                Main.robot.drive.tankDrive(0, 0);
+            }
+        };
+    }
+
+    /**
+     * Stops the running routine and everything it drives. Call when auton ends early
+     */
+    public static void cancel() {
+        if (sequencer.isRunning()) {
+            sequencer.cancel();
+            stop();
         }
     }
 
@@ -95,60 +224,29 @@ public class AutonCommon {
     }
 
     public static double autoPitch() {
-
-        double altitude = SmartDashboard.getNumber("altitude", 0.0);
-        double range = SmartDashboard.getNumber("TargetRange", 0.0);
-        SmartDashboard.putNumber("pitch", 90.0 - Main.robot.arm.toDegrees(Main.robot.arm.getActual()));
-
-        double offset = 0;
-
-
-        altitude = -altitude + 90;      //Get te complement of the altitude angle because arm is referenced from vertical.
-        //Auto range logic. Use at your own risk.
-        if (range < 300) {
-            //altitude += Constants.VISION_OFFSET_FRNT_CTR;
-            //System.out.println("Front Pyr Shot");
-        } else if (range >= 300 && range <= 550) {
-            //altitude += Constants.VISION_OFFSET_REAR_CTR;
-            //System.out.println("Rear Pyr Shot");
-        } else {
-            //altitude += Constants.VISION_OFFSET_REAR_CNR;
-            //System.out.println("Corner Pyr Shot");
-        }
-//            altitude += Constants.VISION_OFFSET_REAR_CTR;   //Offset for shots from scoring position
-        altitude = Main.robot.arm.fromDegrees(altitude);     //Convert to pot rotations for the arm
-        if (!SmartDashboard.getBoolean("found", false)) {
-            //altitude = 30;
-        }
-        altitude = EagleMath.cap(altitude, 5, 75);
-        return altitude;
+        return autoPitch(0);
     }
-    
+
+    /**
+     * Arm setpoint to shoot at the target vision sees. From the shot table
+     * by range when there is a target, otherwise from the target altitude
+     * @param offset degrees added to the angle
+     * @return arm setpoint, rotations
+     */
     public static double autoPitch(double offset) {
 
         double altitude = SmartDashboard.getNumber("altitude", 0.0);
         double range = SmartDashboard.getNumber("TargetRange", 0.0);
         SmartDashboard.putNumber("pitch", 90.0 - Main.robot.arm.toDegrees(Main.robot.arm.getActual()));
 
-        
-        altitude = -altitude + 90;      //Get te complement of the altitude angle because arm is referenced from vertical.
-        altitude += offset;
-        //Auto range logic. Use at your own risk.
-        if (range < 300) {
-            //altitude += Constants.VISION_OFFSET_FRNT_CTR;
-            //System.out.println("Front Pyr Shot");
-        } else if (range >= 300 && range <= 550) {
-            //altitude += Constants.VISION_OFFSET_REAR_CTR;
-            //System.out.println("Rear Pyr Shot");
+        double angle;
+        if (SmartDashboard.getBoolean("found", false)) {
+            angle = Main.robot.shots.getArmAngle(range);
         } else {
-            //altitude += Constants.VISION_OFFSET_REAR_CNR;
-            //System.out.println("Corner Pyr Shot");
-        }
-//            altitude += Constants.VISION_OFFSET_REAR_CTR;   //Offset for shots from scoring position
-        altitude = Main.robot.arm.fromDegrees(altitude);     //Convert to pot rotations for the arm
-        if (!SmartDashboard.getBoolean("found", false)) {
-            //altitude = 30;
+            angle = -altitude + 90;      //Get te complement of the altitude angle because arm is referenced from vertical.
         }
+        angle += offset;
+        altitude = Main.robot.arm.fromDegrees(angle);     //Convert to pot rotations for the arm
         altitude = EagleMath.cap(altitude, 5, 75);
         return altitude;
     }
@@ -0,0 +1,62 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Autonomous;
+
+/**
+ * Runs an autonomous routine one loop at a time. Call update() once per
+ * autonomousPeriodic(); it returns straight away, so the rest of the loop
+ * keeps running while the routine does.
+ * @author Jeremy
+ */
+public class Sequencer {
+
+    private Step routine = null;
+    private boolean running = false;
+    private double startTime = 0;
+
+    /**
+     * Starts a routine, cancelling any that is still running
+     * @param routine the routine, usually a Steps.sequence()
+     * @param now loop time, seconds
+     */
+    public void start(Step routine, double now) {
+        cancel();
+        this.routine = routine;
+        running = true;
+        startTime = now;
+        routine.start(startTime);
+    }
+
+    /**
+     * Advances the routine. Call once per loop
+     * @param now loop time, seconds
+     * @return true while the routine is still running
+     */
+    public boolean update(double now) {
+        if (!running) {
+            return false;
+        }
+        if (routine.update(now)) {
+            routine.end(false);
+            running = false;
+            System.out.println("[AUTON] Routine finished in " + (now - startTime) + " s");
+        }
+        return running;
+    }
+
+    /**
+     * Stops the routine where it is
+     */
+    public void cancel() {
+        if (running) {
+            routine.end(true);
+            running = false;
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+}
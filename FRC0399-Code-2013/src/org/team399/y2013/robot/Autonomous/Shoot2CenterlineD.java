@@ -4,8 +4,8 @@
  */
 package org.team399.y2013.robot.Autonomous;
 
-import edu.wpi.first.wpilibj.Timer;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import org.team399.y2013.Utilities.LogSite;
+import org.team399.y2013.Utilities.Logger;
 import org.team399.y2013.robot.Constants;
 import org.team399.y2013.robot.Main;
 import org.team399.y2013.robot.Robot;
@@ -17,90 +17,53 @@ import org.team399.y2013.robot.Robot;
  */
 public class Shoot2CenterlineD {
 
-    static AutonomousTimer timer = new AutonomousTimer();
-    private static long elapsedTime = 0, start = 0;
+    private static final LogSite runLog = new LogSite("[AUTON] Centerline ", Logger.INFO, 1000);
     private static long timeDelay = 0;
     static double waitForArmDelay = .75;
     static double ARM_POSITION_OFFSET = 0.04;// used to be .04;
-    static double BACK_DIST = 22.0;  //Drive back distance
+    public static double BACK_DIST = 22.0;  //Drive back distance
     static double TOP_SPEED = 16.0; //driving speed will be 12.0 ft/s
+    static double SPINUP_TIMEOUT = 1.0; //Fires by then even below 8600 RPM, as the fixed delay did. The drive back needs the time
 
     public static void start() {
-        start = System.currentTimeMillis();
         Main.robot.shooter.start();
         Main.robot.shooter.setShooterSpeed(8600);
         Main.robot.arm.setPointRotations(Constants.ARM_MID_SHOT + ARM_POSITION_OFFSET);
         Main.robot.arm.setEnabled(true);
         System.out.println("Init'd auton");
-        finished = false;
+        AutonCommon.sequencer.start(build(), Main.clock.seconds());
     }
 
     public static void start(long delay) {
         timeDelay = delay;
         start();
-        timer.start();
         System.out.println("Beginning centerline auton!");
-    }   
-    static boolean finished = false;
-
-    public static void run() {
-
-
-        System.out.println("Running auton, Timer: " + timer.get());
-        elapsedTime = System.currentTimeMillis() - start;
-        System.out.println("Centerline Auton");
-
-        if (!finished) {
-            //Set arm to shooting position
-            Main.robot.arm.setPointRotations(Constants.ARM_HIGH_SHOT + ARM_POSITION_OFFSET);
-            //Timer delay
-            Timer.delay(waitForArmDelay + (timeDelay / 1000));
-            //Timer.delay(1.0);
-            int vision_ctr = 0; //Vision counter to calcuate 
-//            while (vision_ctr <= 10) {
-//                System.out.println("Waiting For Vision");
-//                SmartDashboard.putNumber("pitch", 90.0 - Main.robot.arm.toDegrees(Main.robot.arm.getActual()));
-//                Main.robot.arm.setPointRotations(AutonCommon.autoPitch(0));
-//                Timer.delay(.1);
-//                vision_ctr++;
-//            }
-            Timer.delay(.25);
-
-            for (int i = 0; i < 4; i++) {
-//                SmartDashboard.putNumber("pitch", 90.0-Main.robot.arm.toDegrees(Main.robot.arm.getActual()));
-//                Main.robot.arm.setPointRotations(AutonCommon.autoPitch());
-                AutonCommon.shootOneDiscFast();
-            }
-
-            Main.robot.arm.setPointRotations(Constants.ARM_STOW_DOWN);
+    }
 
-            Main.robot.feeder.setRoller(0);//Stop roller when done
+    /**
+     * Shoot from the pyramid, stow the arm down and drive back under the
+     * pyramid to the centerline
+     */
+    static Step build() {
+        return Steps.sequence(new Step[]{
+                    AutonCommon.setArm(Constants.ARM_HIGH_SHOT + ARM_POSITION_OFFSET),   //Set arm to shooting position
+                    Steps.delay(timeDelay / 1000.0),
+                    Steps.parallel(new Step[]{ //Moves on as soon as the arm is there and the wheel is up to speed
+                        AutonCommon.armSettled(waitForArmDelay),
+                        AutonCommon.shooterReady(SPINUP_TIMEOUT)
+                    }),
+                    AutonCommon.shootDiscs(4, true),
+                    AutonCommon.setRoller(0), //Stop roller when done
+                    AutonCommon.moveArm(10.0, 1.75), //Stow arm down to drive out of pyramid. It must be down before the drive goes under
+                    AutonCommon.driveDistanceNaive(TOP_SPEED, BACK_DIST, Constants.HIGH_GEAR)
+                });
+    }
 
-            //Stow arm down to drive out of pyramid
-            System.out.println("Stowing arm...");
-            Main.robot.arm.setPointRotations(10.0);
-            Timer.delay(.5);
-            int arm_ctr = 0;    //Safety caunter to prevent a faulty arm condition from blocking all user code from running
-//            while (Math.abs(Main.robot.arm.getActual()  - Main.robot.arm.getSetpoint())
-//                    > .1 || arm_ctr >= 8) {
-//                Main.robot.arm.setPointRotations(10.0);
-//                Timer.delay(.25);
-//                System.out.println("Waiting for arm to stow...");
-//                arm_ctr++;
-//            }
+    public static void run() {
+        runLog.log("Running auton, Timer: ", Main.clock.getPhaseElapsed());
 
-            Timer.delay(1.25);
-            System.out.println("Driving Back.");
-            //if(arm_ctr < 8) {
-            AutonCommon.driveDistanceNaive(TOP_SPEED, BACK_DIST, Constants.HIGH_GEAR);
-            //}
-            System.out.println("stopping.");
+        if (!AutonCommon.sequencer.update(Main.clock.seconds())) {
             AutonCommon.stop();
-            System.out.println("Done.");
-
-            finished = true;
         }
-
-        AutonCommon.stop();
     }
 }
@@ -4,8 +4,8 @@
  */
 package org.team399.y2013.robot.Autonomous;
 
-import edu.wpi.first.wpilibj.Timer;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import org.team399.y2013.Utilities.LogSite;
+import org.team399.y2013.Utilities.Logger;
 import org.team399.y2013.robot.Constants;
 import org.team399.y2013.robot.Main;
 
@@ -17,75 +17,54 @@ import org.team399.y2013.robot.Robot;
  */
 public class Shoot3AutonHigh {
 
-    static AutonomousTimer timer = new AutonomousTimer();
-    private static long elapsedTime = 0, start = 0;
-    
+    private static final LogSite runLog = new LogSite("[AUTON] ", Logger.INFO, 1000);
+
     private static long timeDelay = 0;
     private static double waitForArmDelay = 1.05;
+    private static double driveTime = 3.0;  //Drive forward after shooting, seconds
 
 
     public static void start() {
-        start = System.currentTimeMillis();
         Main.robot.shooter.start();
         Main.robot.shooter.setShooterSpeed(7900);
         Main.robot.arm.setPointRotations(Constants.ARM_MID_SHOT);
         Main.robot.arm.setEnabled(true);
         System.out.println("Init'd auton");
-        finished = false;
+        AutonCommon.sequencer.start(build(), Main.clock.seconds());
     }
 
     public static void start(long delay) {
         timeDelay = delay;
-        start = System.currentTimeMillis();
-        Main.robot.shooter.start();
-        Main.robot.shooter.setShooterSpeed(7900);
-        Main.robot.arm.setPointRotations(Constants.ARM_MID_SHOT);
-        Main.robot.arm.setEnabled(true);
-        System.out.println("Init'd auton");
-        finished = false;
-        timer.start();
+        start();
     }
-    static boolean finished = false;
-
-    public static void run() {
-
 
-        System.out.println("Running auton, Timer: " + timer.get());
-        elapsedTime = System.currentTimeMillis() - start;
+    /**
+     * Shoot from the pyramid, then drive forward
+     */
+    static Step build() {
+        return Steps.sequence(new Step[]{
+                    AutonCommon.setArm(Constants.ARM_AUTON_SHOT),
+                    Steps.delay(timeDelay / 1000.0),
+                    Steps.parallel(new Step[]{ //Moves on as soon as the arm is there and the wheel is up to speed
+                        AutonCommon.armSettled(waitForArmDelay),
+                        AutonCommon.shooterReady(Constants.SHOOTER_SPINUP_TIMEOUT)
+                    }),
+                    AutonCommon.shootDiscs(5, false),
+                    AutonCommon.setShooter(0),
+                    Steps.parallel(new Step[]{ //Stows on the way. Driving forward, the arm is clear of the pyramid
+                        AutonCommon.moveArm(Constants.ARM_STOW_UP, driveTime),
+                        AutonCommon.tankDrive(.5, .5, Constants.LOW_GEAR, driveTime)
+                    })
+                });
+    }
 
-        if (!finished) {
-            Main.robot.arm.setPointRotations(Constants.ARM_AUTON_SHOT);
-            Timer.delay(waitForArmDelay + (timeDelay / 1000));
-            //Timer.delay(1.0);
-            int vision_ctr = 0;
-//            while(vision_ctr <= 10) {
-//                SmartDashboard.putNumber("pitch", 90.0-Main.robot.arm.toDegrees(Main.robot.arm.getActual()));
-//                Main.robot.arm.setPointRotations(AutonCommon.autoPitch());
-//                Timer.delay(.05);
-//                vision_ctr++;
-//            }
-            Timer.delay(.25);
-            
-            for(int i = 0; i < 5; i++) {
-//                SmartDashboard.putNumber("pitch", 90.0-Main.robot.arm.toDegrees(Main.robot.arm.getActual()));
-//                Main.robot.arm.setPointRotations(AutonCommon.autoPitch());
-                AutonCommon.shootOneDisc();
-            }
-            Main.robot.shooter.setShooterSpeed(0);
-            
-            Main.robot.arm.setPointRotations(Constants.ARM_STOW_UP);
-            Timer.delay(waitForArmDelay);
-            
-            Main.robot.drive.setShifter(Constants.LOW_GEAR);
-            Main.robot.drive.tankDrive(.5, .5);
-            Timer.delay(3.0);
+    public static void run() {
+        runLog.log("Running auton, Timer: ", Main.clock.getPhaseElapsed());
 
-            finished = true;
+        if (!AutonCommon.sequencer.update(Main.clock.seconds())) {
+            AutonCommon.stop();
         }
-
-        AutonCommon.stop();
-
     }
 
-    
+
 }
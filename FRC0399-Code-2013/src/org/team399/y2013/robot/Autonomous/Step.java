@@ -0,0 +1,37 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Autonomous;
+
+/**
+ * One step of an autonomous routine. A step is started once, updated once
+ * per loop until it reports it is finished, then ended. It must never
+ * block; anything that takes time is spread over updates. Steps are
+ * combined with the groups in Steps and run by a Sequencer.
+ * @author Jeremy
+ */
+public abstract class Step {
+
+    /**
+     * Called once when the step begins
+     * @param now Clock time, seconds
+     */
+    public void start(double now) {
+    }
+
+    /**
+     * Called once per loop while the step runs, starting in the same loop as start()
+     * @param now Clock time, seconds
+     * @return true once the step is finished
+     */
+    public abstract boolean update(double now);
+
+    /**
+     * Called once when the step stops
+     * @param interrupted true if it was cut short, by a race or a cancel,
+     * rather than finishing
+     */
+    public void end(boolean interrupted) {
+    }
+}
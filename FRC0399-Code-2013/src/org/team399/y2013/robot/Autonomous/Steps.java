@@ -0,0 +1,214 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Autonomous;
+
+import org.team399.y2013.Utilities.LogSite;
+import org.team399.y2013.Utilities.Logger;
+
+/**
+ * The building blocks of an autonomous routine: groups that run steps one
+ * after another, all together, or until the first finishes, plus waits and
+ * one-shot actions. Steps in a sequence that finish immediately all run in
+ * the same loop, so a chain of actions costs no time.
+ *
+ * Usage:
+ *  Steps.sequence(new Step[]{
+ *      AutonCommon.setArm(Constants.ARM_AUTON_SHOT),
+ *      Steps.parallel(new Step[]{AutonCommon.armSettled(1.0), Steps.delay(.25)}),
+ *      ...
+ *  })
+ * @author Jeremy
+ */
+public class Steps {
+
+    private static final LogSite timeoutLog = new LogSite("[AUTON] ", Logger.WARN, 250);
+
+    private Steps() {
+    }
+
+    /**
+     * Something a WaitUntil waits on
+     */
+    public interface Condition {
+
+        boolean isMet();
+    }
+
+    /**
+     * A step that does something once and finishes straight away
+     */
+    public static abstract class Action extends Step {
+
+        public abstract void run();
+
+        public boolean update(double now) {
+            run();
+            return true;
+        }
+    }
+
+    /**
+     * @return a step that runs the steps one after another
+     */
+    public static Step sequence(Step[] steps) {
+        return new Sequence(steps);
+    }
+
+    /**
+     * @return a step that runs the steps together and finishes when they all have
+     */
+    public static Step parallel(Step[] steps) {
+        return new Parallel(steps, false);
+    }
+
+    /**
+     * @return a step that runs the steps together and finishes when any of
+     * them does. The others are interrupted
+     */
+    public static Step race(Step[] steps) {
+        return new Parallel(steps, true);
+    }
+
+    /**
+     * @return a step that waits
+     * @param seconds time to wait
+     */
+    public static Step delay(final double seconds) {
+        return new Step() {
+
+            private double end;
+
+            public void start(double now) {
+                end = now + seconds;
+            }
+
+            public boolean update(double now) {
+                return now >= end;
+            }
+        };
+    }
+
+    /**
+     * @param name what is being waited for, for the timeout log
+     * @param condition finishes the step once it is met
+     * @param timeout longest to wait, seconds. The routine carries on after
+     * a timeout, as it would have with a fixed delay
+     * @return a step that waits for the condition
+     */
+    public static Step waitUntil(final String name, final Condition condition, final double timeout) {
+        return new Step() {
+
+            private double end;
+
+            public void start(double now) {
+                end = now + timeout;
+            }
+
+            public boolean update(double now) {
+                if (condition.isMet()) {
+                    return true;
+                }
+                if (now >= end) {
+                    timeoutLog.log("Timed out waiting for " + name);
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    private static class Sequence extends Step {
+
+        private final Step[] steps;
+        private int current = 0;
+
+        Sequence(Step[] steps) {
+            this.steps = steps;
+        }
+
+        public void start(double now) {
+            current = 0;
+            if (steps.length > 0) {
+                steps[0].start(now);
+            }
+        }
+
+        public boolean update(double now) {
+            while (current < steps.length) {
+                if (!steps[current].update(now)) {
+                    return false;
+                }
+                steps[current].end(false);
+                current++;
+                if (current < steps.length) {
+                    steps[current].start(now);
+                }
+            }
+            return true;
+        }
+
+        public void end(boolean interrupted) {
+            if (interrupted && current < steps.length) {
+                steps[current].end(true);
+            }
+        }
+    }
+
+    private static class Parallel extends Step {
+
+        private final Step[] steps;
+        private final boolean race;
+        private final boolean[] finished;
+
+        Parallel(Step[] steps, boolean race) {
+            this.steps = steps;
+            this.race = race;
+            this.finished = new boolean[steps.length];
+        }
+
+        public void start(double now) {
+            for (int i = 0; i < steps.length; i++) {
+                finished[i] = false;
+                steps[i].start(now);
+            }
+        }
+
+        public boolean update(double now) {
+            boolean all = true, any = false;
+            for (int i = 0; i < steps.length; i++) {
+                if (!finished[i]) {
+                    if (steps[i].update(now)) {
+                        steps[i].end(false);
+                        finished[i] = true;
+                    } else {
+                        all = false;
+                        continue;
+                    }
+                }
+                any = true;
+            }
+            if (race && any) {
+                interruptRunning();
+                return true;
+            }
+            return all;
+        }
+
+        public void end(boolean interrupted) {
+            if (interrupted) {
+                interruptRunning();
+            }
+        }
+
+        private void interruptRunning() {
+            for (int i = 0; i < steps.length; i++) {
+                if (!finished[i]) {
+                    steps[i].end(true);
+                    finished[i] = true;
+                }
+            }
+        }
+    }
+}
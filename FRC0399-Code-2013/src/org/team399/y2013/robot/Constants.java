@@ -81,13 +81,57 @@ public class Constants {
     public static final double SHOOTER_KO = 1.5;    //Open loop tuning constant
     public static final double SHOOTER_KV         = 1608.0; //Motor rpm/v constant
     public static final double SHOOTER_GEAR_RATIO = 0.44642857142;  //Shooter gear ratio
+    public static final double SHOOTER_MOTOR_RESISTANCE = 12.0 / 85.0;  //Ohms. RS550 stall current is 85A at 12V
+    public static final double SHOOTER_COAST_RATE = 800;            //Wheel slowdown while coasting at 6000 RPM, RPM/s. From a coast-down
+    public static final double SHOOTER_ENCODER_FAULT_ERROR = 1500;  //Encoder vs motor model disagreement that counts as a fault, RPM
+    public static final long SHOOTER_ENCODER_FAULT_TIME = 250;      //Disagreement time before the encoder is faulted, ms
+    public static final long SHOOTER_ENCODER_RECOVER_TIME = 2000;   //Agreement time before a faulted encoder is trusted again, ms
     public static final int SHOOTER_INDICATOR_PORT = 5;
+    public static final double SHOOTER_TBH_GAIN = 0.0002;   //Take-back-half output change per RPM of error per second
+    public static final double SHOOTER_PI_P = 0.0004;       //Feed forward + PI output per RPM of error
+    public static final double SHOOTER_PI_I = 0.001;        //Feed forward + PI output per RPM of error per second
+    public static final double[] SHOOTER_SCHEDULE_SPEEDS = {2000, 6000, 8600};  //Gain schedule breakpoints, RPM
+    public static final double[] SHOOTER_SCHEDULE_P = {0.0002, 0.0003, 0.0005};
+    public static final double[] SHOOTER_SCHEDULE_I = {0.0005, 0.0008, 0.0015};
+    public static final double SHOOTER_LOOP_RATE = 100.0;   //Control loop rate in Hz. 100 or 200
+    public static final double SHOOTER_READY_TOLERANCE = 500;       //Error to get within to become ready, RPM
+    public static final double SHOOTER_READY_EXIT_TOLERANCE = 600;  //Error that ends readiness, RPM
+    public static final long SHOOTER_READY_TIME = 250;              //Time within tolerance before ready, ms
+    public static final double SHOOTER_SPINUP_TIMEOUT = 3.0;        //Longest an autonomous routine waits for spin-up from a stop, seconds
+    public static final double SHOOTER_SHOT_DIP = 150;              //Velocity drop that can mark a shot, RPM
+    public static final double SHOOTER_SHOT_CURRENT_RISE = 4.0;     //Mean current rise that can mark a shot, amps
+    public static final long SHOOTER_SHOT_WINDOW = 150;             //Longest gap between the drop and the rise, ms
+    public static final double SHOOTER_SHOT_RECOVERY_TOLERANCE = 100;   //Shot has recovered within this of the pre-shot speed, RPM
+    public static final double SHOOTER_KICK_BOOST = 0.25;           //Output added to the shooter after a kick
+    public static final long SHOOTER_KICK_BOOST_DELAY = 60;         //Kick to start of the boost, ms. Kicker-to-contact time
+    public static final long SHOOTER_KICK_BOOST_TIME = 80;          //Length of the boost, ms
+    public static final int SHOOTER_VELOCITY_WINDOW = 10;   //Samples in the velocity fit window
+    public static final double SHOOTER_VELOCITY_DEADBAND = 50;  //Raw estimates below this, in RPM, read as 0
+    public static final double SHOOTER_ENCODER_SCALE = -2.0;    //Encoder RPM to wheel RPM. Testing showed output was approx 1/2 of actual, reversed
     
     public static final double SHOOTER_SHOT      = 8600;
     public static final double SHOOTER_INTAKE    =-3000;
     public static final double SHOOTER_STOP      = 0;
     public static final double SHOOTER_AUTON_HIGH=7900;
     
+    //CAN status polling rates, Hz
+    public static final double CAN_POLL_RATE = 200.0;  //Poller base rate; no signal refreshes faster
+    public static final double SHOOTER_POSITION_POLL_RATE = 100.0;
+    public static final double SHOOTER_CURRENT_POLL_RATE = 20.0;
+    public static final double BUS_VOLTAGE_POLL_RATE = 10.0;
+    public static final double DRIVE_ENCODER_POLL_RATE = 50.0;    //Drive encoders on shooter B and C. Read once a loop
+    public static final double ARM_POSITION_POLL_RATE = 50.0;
+    public static final double ARM_CURRENT_POLL_RATE = 10.0;
+    
+    //CAN command buffering
+    public static final double CAN_COMMAND_EPSILON = 0.001;  //Output changes smaller than this are not sent
+    public static final long CAN_COMMAND_REFRESH = 100;     //Unchanged outputs are re-sent after this many ms
+
+    //CAN device bring-up
+    public static final double CAN_BRINGUP_RATE = 50.0;     //Hz. Each due device gets one attempt per pass
+    public static final long CAN_BRINGUP_BACKOFF = 50;      //Wait after a first failed attempt, ms. Doubles per failure
+    public static final long CAN_BRINGUP_MAX_BACKOFF = 2000; //Longest wait between attempts, ms
+
     //Arm constants
     public static final int ARM_ID = 5;     //CAN ID
     public static final double ARM_P = 850; //PID constants
@@ -95,6 +139,21 @@ public class Constants {
     public static final double ARM_D = 0.0;
     public static final int ZERO_SWITCH_SENSOR = 14;
     public static final double DEGREES_PER_TURN = 61.7142857143;
+    public static final double ARM_LOOP_RATE = 100.0;       //Setpoint profile rate, Hz
+    public static final double ARM_MAX_VELOCITY = 2.0;      //Profile limits, pot rotations/s
+    public static final double ARM_MAX_ACCELERATION = 8.0;  //Pot rotations/s^2
+    public static final double ARM_SETTLE_ERROR = 0.04;     //Settled within this of the goal, rotations (~2.5 degrees)
+    public static final double ARM_SETTLE_VELOCITY = 0.1;   //and moving slower than this, rotations/s
+    //cRIO arm control. The Jag runs in voltage mode and the arm thread closes the loop
+    public static final boolean ARM_CRIO_CONTROL = false;   //Start in cRIO mode rather than Jag PID
+    public static final double ARM_CRIO_LOOP_RATE = 200.0;  //Hz
+    public static final double ARM_CRIO_POSITION_POLL_RATE = 200.0;    //Pot poll rate in cRIO mode, Hz
+    public static final double ARM_KP = 40.0;   //Volts per rotation of error
+    public static final double ARM_KI = 20.0;   //Volts per rotation second
+    public static final double ARM_KD = 1.5;    //Volts per rotation/s of error
+    public static final double ARM_KG = -1.0;   //Volts to hold the arm horizontal. Negative: gravity pulls the pot reading up
+    public static final double ARM_I_LIMIT = 3.0;   //Most the integral term can add, volts
+    public static final double ARM_HORIZONTAL_ANGLE = 90.0; //Arm.toDegrees() with the arm horizontal. autoPitch reads it from vertical
     
     public static double ARM_LOWER_LIM = 4.65;//4.79 <-SD limit5.185 <-pre spring hook limit //is actually vertical most limit
     public static double ARM_UPPER_LIM = ARM_LOWER_LIM+1.65;
@@ -120,7 +179,33 @@ public class Constants {
     public static double VISION_OFFSET_REAR_CTR = -15.0;        //pbot is -15
     public static double VISION_OFFSET_FRNT_CTR = -8.0;
     public static double VISION_OFFSET_REAR_CNR = -12.0;
+    
+    //Shot table. Rows of {vision TargetRange, arm angle in Arm.toDegrees() degrees, shooter RPM}.
+    //Placeholders from the preset shots, until calibration shots replace them
+    public static final double[][] SHOT_TABLE = {
+        {250, 53.4, 6000},  //ARM_HIGH_SHOT_FRNT, front of the pyramid
+        {425, 57.7, 6000},  //ARM_HIGH_SHOT, back of the pyramid
+        {600, 58.8, 8600}   //ARM_AUTON_SHOT at SHOOTER_SHOT, corner
+    };
+    public static final double SHOT_TABLE_MERGE_RANGE = 10.0;  //A calibration shot this close in range replaces the old one
+    public static final int SHOT_TABLE_MAX_SHOTS = 32;
 
     public static final int RING_PORT = 6;
+    
+    //Telemetry constants
+    public static final boolean TELEMETRY_ENABLED = true;
+    public static final String TELEMETRY_FILE = "file:///telemetry";    //_N.bin is appended
+    public static final int TELEMETRY_BLOCK_SIZE = 16384;   //Bytes per buffer and per flash write
+
+    //Match schedule
+    public static final double MATCH_AUTON_LENGTH = 15.0;   //seconds
+    public static final double MATCH_TELEOP_LENGTH = 135.0; //seconds
+
+    //System identification (test mode). Run with the drive on blocks
+    public static final double SYSID_RAMP_RATE = 1.0;      //Quasistatic ramp, volts per second
+    public static final double SYSID_RAMP_VOLTAGE = 8.0;   //Ramp ends here, volts
+    public static final double SYSID_STEP_VOLTAGE = 6.0;   //Dynamic step, volts
+    public static final double SYSID_STEP_TIME = 3.0;      //Step length, seconds
+    public static final double SYSID_COAST_TIME = 8.0;     //Longest wait for a mechanism to spin down, seconds
     //todo: organize these
 }
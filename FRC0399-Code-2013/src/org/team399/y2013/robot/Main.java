@@ -7,15 +7,30 @@
 package org.team399.y2013.robot;
 
 import edu.wpi.first.wpilibj.*;
+import java.util.Vector;
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
+import org.team399.y2013.Utilities.Clock;
 import org.team399.y2013.Utilities.EagleMath;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import org.team399.y2013.Utilities.GamePad;
+import org.team399.y2013.Utilities.Histogram;
+import org.team399.y2013.Utilities.LogSite;
+import org.team399.y2013.Utilities.Parameters;
+import org.team399.y2013.Utilities.Logger;
 import org.team399.y2013.Utilities.PulseTriggerBoolean;
+import org.team399.y2013.Utilities.TelemetryRecorder;
+import org.team399.y2013.Utilities.VelocityEstimator;
+import org.team399.y2013.robot.Autonomous.AutonCommon;
 import org.team399.y2013.robot.Autonomous.Shoot2CenterlineD;
 import org.team399.y2013.robot.Autonomous.Shoot3AutonHigh;
 import org.team399.y2013.robot.Autonomous.Shoot3AutonMid;
+import org.team399.y2013.robot.Systems.Automation.SystemIdentifier;
+import org.team399.y2013.robot.Systems.DeviceBringup;
+import org.team399.y2013.robot.Systems.FlywheelController;
+import org.team399.y2013.robot.Systems.FlywheelStats;
+import org.team399.y2013.robot.Systems.ShotDetector;
 import org.team399.y2013.robot.Systems.Shooter;
+import org.team399.y2013.robot.Systems.ShooterState;
 
 /**
  * The VM is configured to automatically run this class, and to call the
@@ -30,8 +45,17 @@ public class Main extends IterativeRobot {
     Joystick rightJoy = new Joystick(Constants.DRIVER_RIGHT_USB);
     GamePad operatorJoy = new GamePad(Constants.OPERATOR_USB);
     public static Robot robot = null;
+    public static SensorFrame frame = new SensorFrame();    //Sensor values for the current loop
+    public static MatchClock clock = new MatchClock();      //Time and match phase for the current loop
+    long loopTime = 0;      //Time taken by the last periodic call, ms
+    TelemetryRecorder telemetry = new TelemetryRecorder(Constants.TELEMETRY_FILE, Constants.TELEMETRY_BLOCK_SIZE);
+    boolean telemetryFlushPending = false;  //The end of match flush found the writer busy
+    int tShooterVel, tShooterSet, tShooterA, tShooterB, tShooterC, tShooterReady,
+            tArmActual, tArmSet, tArmCurrent, tYaw, tDisc, tLoopTime, tMode;
     SendableChooser autonChooser = new SendableChooser();
     SendableChooser defArmPositionChooser = new SendableChooser();
+    SendableChooser flywheelChooser = new SendableChooser();
+    SendableChooser armControlChooser = new SendableChooser();
 
     public Main() {
     }
@@ -41,6 +65,7 @@ public class Main extends IterativeRobot {
      * used for any initialization code.
      */
     public void robotInit() {
+        loadParameters();   //Before the subsystems read them
         robot = Robot.getInstance();
         autonChooser.addObject("HIGH", (new Integer(0)));
         autonChooser.addObject("MID", (new Integer(1)));
@@ -53,20 +78,78 @@ public class Main extends IterativeRobot {
         defArmPositionChooser.addObject("UNDER-PYR-STOW", (new Integer(0)));
         defArmPositionChooser.addObject("CURRENT-POS", (new Integer(0)));
         SmartDashboard.putData("arm_position_chooser", defArmPositionChooser);
+
+        FlywheelController[] controllers = robot.shooter.getControllers();
+        flywheelChooser.addDefault(controllers[0].getName(), controllers[0]);
+        for (int i = 1; i < controllers.length; i++) {
+            flywheelChooser.addObject(controllers[i].getName(), controllers[i]);
+        }
+        SmartDashboard.putData("flywheel_chooser", flywheelChooser);
+        Boolean jagPid = new Boolean(false), crioPid = new Boolean(true);
+        if (Constants.ARM_CRIO_CONTROL) {
+            armControlChooser.addDefault("cRIO PID", crioPid);
+            armControlChooser.addObject("Jaguar PID", jagPid);
+        } else {
+            armControlChooser.addDefault("Jaguar PID", jagPid);
+            armControlChooser.addObject("cRIO PID", crioPid);
+        }
+        SmartDashboard.putData("arm_control_chooser", armControlChooser);
+        SmartDashboard.putBoolean("Record Shot", false);
+        System.out.println(robot.shots);
+        initTelemetry();
         System.out.println("Robot Done Initializing...");
         System.out.println("System states at boot: ");
         System.out.println("Arm Position: " + robot.arm.getActual());
         System.out.println("Drive Yaw: " + robot.drive.getYaw());
+        DeviceBringup.getInstance().printReport();
         System.out.println("");
     }
 
+    /**
+     * Puts the p50, p95 and max of a histogram on the dashboard
+     */
+    private void putHistogram(String name, Histogram histogram) {
+        SmartDashboard.putNumber(name + " p50", histogram.getPercentile(0.5));
+        SmartDashboard.putNumber(name + " p95", histogram.getPercentile(0.95));
+        SmartDashboard.putNumber(name + " Max", histogram.getMax());
+    }
+
     public void disabledInit() {
+        clock.update(MatchClock.DISABLED);
+        AutonCommon.cancel();   //Don't pick an unfinished routine back up on the next enable
+        if (sysid != null) {
+            sysid.stop();
+        }
+        telemetryFlushPending = !telemetry.flush();  //Get the last match onto flash. Retried while disabled if the writer is busy
+        FlywheelController[] controllers = robot.shooter.getControllers();
+        for (int i = 0; i < controllers.length; i++) {     //Compare the flywheel modes used this session
+            if (controllers[i].getStats().getTimeToReadyCount() > 0) {
+                System.out.println("[SHOOTER] " + controllers[i].getName() + ": " + controllers[i].getStats());
+            }
+        }
+        if (robot.shooter.getShots().getShotCount() > 0) {
+            System.out.println("[SHOOTER] " + robot.shooter.getShots());
+        }
         robot.arm.setBrake(true);
         robot.arm.setPointRotations(Constants.ARM_STOW_UP);    //Set arm setpoint to stowed up when disabled
     }
     int auton = 0;
 
+    /**
+     * Selects the autonomous routine as the chooser does: 0 HIGH, 1 MID,
+     * 2 ANTICENTERLINE, 99 DONOTHING. disabledPeriodic() selects from the
+     * chooser again, so this is for running without a dashboard
+     */
+    public void setAuton(int auton) {
+        this.auton = auton;
+    }
+
     public void disabledPeriodic() {
+        clock.update(MatchClock.DISABLED);
+        if (telemetryFlushPending) {
+            telemetryFlushPending = !telemetry.flush();
+        }
+        frame.capture(robot, clock);
         robot.arm.autoZero();
         updateDashboard();                               //Update diagnostic dashboard
         //SmartDashboard.putData("autonchooser", autonChooser);
@@ -90,12 +173,13 @@ public class Main extends IterativeRobot {
         } else if (defaultArmPositionIndex == 2) {   //default to angle stow once enabled
             armSet = Constants.ARM_STOW_UP + .2;    //tune this for an under pyramid stow for the centerline auton
         } else if (defaultArmPositionIndex == 3) {   //default to current arm position once enabled
-            armSet = robot.arm.getActual();
+            armSet = frame.armPosition;
         } else {
             armSet = Constants.ARM_STOW_UP;
         }
 
         robot.arm.setPointRotations(armSet);    //Set arm setpoint to stowed up when disabled
+        robot.arm.resetProfile();   //The Jag isn't driving the arm; profile from wherever it is on enable
 
         String autonName = "";
         if (auton == 0) {                               //Displays selected auton
@@ -110,9 +194,11 @@ public class Main extends IterativeRobot {
             autonName = "INVALID";
         }
         SmartDashboard.putString("Auton", autonName);
+        loopTime = Clock.millis() - frame.timestamp;
     }
 
     public void autonomousInit() {
+        clock.update(MatchClock.AUTONOMOUS);
         robot.arm.setBrake(true);
         if (auton == 0) {
             Shoot3AutonHigh.start();
@@ -129,6 +215,9 @@ public class Main extends IterativeRobot {
      * This function is called periodically during autonomous
      */
     public void autonomousPeriodic() {
+        clock.update(MatchClock.AUTONOMOUS);
+        frame.capture(robot, clock);
+        recordTelemetry();
         robot.arm.autoZero();
         if (auton == 0) {
             Shoot3AutonHigh.run();
@@ -141,11 +230,10 @@ public class Main extends IterativeRobot {
         
     }
 
-    long teleopStart = 0;
-    
     public void teleopInit() {
+        clock.update(MatchClock.TELEOP);
+        AutonCommon.cancel();
         robot.arm.setBrake(true);
-        teleopStart = System.currentTimeMillis();
     }
     PulseTriggerBoolean autoAimWatcher = new PulseTriggerBoolean();
     boolean autoAimOut = false;
@@ -154,11 +242,14 @@ public class Main extends IterativeRobot {
      * This function is called periodically during operator control
      */
     public void teleopPeriodic() {
-        Timer.delay(.001);
+        Clock.sleep(.001);
+        clock.update(MatchClock.TELEOP);
+        frame.capture(robot, clock);
+        recordTelemetry();
         updateDashboard();  //Update diagnostic dashboard
-        SmartDashboard.putNumber("pitch", 90.0 - robot.arm.toDegrees(robot.arm.getActual()));
+        SmartDashboard.putNumber("pitch", 90.0 - robot.arm.toDegrees(frame.armPosition));
 
-        double teleopElapsed = ((double) System.currentTimeMillis() - teleopStart)/1000;
+        double teleopElapsed = clock.getPhaseElapsed();
         
         if((int)teleopElapsed % 10 == 0 && 
                 DriverStation.getInstance().isFMSAttached()) {
@@ -173,6 +264,21 @@ public class Main extends IterativeRobot {
         autoAimWatcher.set(operatorJoy.getDPad(GamePad.DPadStates.LEFT));
         autoAimOut = autoAimWatcher.get();
 
+        //Calibration: after a shot scores, record where it was taken from
+        recordShotWatcher.set(SmartDashboard.getBoolean("Record Shot", false));
+        if (recordShotWatcher.get()) {
+            SmartDashboard.putBoolean("Record Shot", false);
+            if (SmartDashboard.getBoolean("found", false)) {
+                //Stored without the trim: autoPitch() adds it on top of the table
+                robot.shots.addShot(SmartDashboard.getNumber("TargetRange", 0.0),
+                        robot.arm.toDegrees(frame.armPosition) - aimOffset(), robot.shooter.getShooterSetSpeed());
+                saveParameters();
+                System.out.println(robot.shots);
+            } else {
+                System.out.println("No target in view, shot not recorded");
+            }
+        }
+
      
         
             robot.shooter.setAimLight(leftJoy.getRawButton(1));
@@ -209,7 +315,7 @@ public class Main extends IterativeRobot {
             rightAdjust = -.25;
         }
 
-        if (robot.drive.gear == Constants.LOW_GEAR) {
+        if (frame.gear == Constants.LOW_GEAR) {
             leftAdjust *= .75;
             rightAdjust *= .75;
         }
@@ -238,6 +344,7 @@ public class Main extends IterativeRobot {
         robot.arm.autoZero();
 
         operator();
+        loopTime = Clock.millis() - frame.timestamp;
     }
 
     double autoYaw() {
@@ -250,33 +357,36 @@ public class Main extends IterativeRobot {
     }
 
     
+    private static final LogSite offsetLog = new LogSite("", Logger.DEBUG, 250);
+
+    double aimedShooterSpeed = 6000.0;  //From the shot table at the last auto aim
+    PulseTriggerBoolean recordShotWatcher = new PulseTriggerBoolean();
+
+    /**
+     * @return the driver's aim trim, degrees
+     */
+    double aimOffset() {
+        return EagleMath.map((float)leftJoy.getRawAxis(3), 
+                (float)-1, (float)1, (float)-10, (float)10);   //Offset for shots from scoring position
+    }
+
     double autoPitch() {
 
         double altitude = SmartDashboard.getNumber("altitude", 0.0);
         double range = SmartDashboard.getNumber("TargetRange", 0.0);
 
-        double offset = EagleMath.map((float)leftJoy.getRawAxis(3), 
-                (float)-1, (float)1, (float)-10, (float)10);   //Offset for shots from scoring position
-        System.out.println("Targetting Offset: " + offset);
+        double offset = aimOffset();
+        offsetLog.log("Targetting Offset: ", offset);
 
         if (autoAimOut) {
-            altitude = -altitude + 90;      //Get te complement of the altitude angle because arm is referenced from vertical.
-            //Auto range logic. Use at your own risk.
-            if (range < 300) {
-                //altitude += Constants.VISION_OFFSET_FRNT_CTR;
-                //System.out.println("Front Pyr Shot");
-            } else if (range >= 300 && range <= 550) {
-                //altitude += Constants.VISION_OFFSET_REAR_CTR;
-                //System.out.println("Rear Pyr Shot");
+            if (SmartDashboard.getBoolean("found", false)) {
+                altitude = robot.shots.getArmAngle(range);  //Calibrated shot for this range
+                aimedShooterSpeed = robot.shots.getRPM(range);
             } else {
-                //altitude += Constants.VISION_OFFSET_REAR_CNR;
-                //System.out.println("Corner Pyr Shot");
+                altitude = -altitude + 90;      //Get te complement of the altitude angle because arm is referenced from vertical.
             }
             altitude += offset;
             altitude = robot.arm.fromDegrees(altitude);     //Convert to pot rotations for the arm
-            if (!SmartDashboard.getBoolean("found", false)) {
-                //altitude = 30;
-            }
             return altitude;
         } else {
             return 0;
@@ -314,7 +424,7 @@ public class Main extends IterativeRobot {
             shooterSet = 6000.0;
         } else if (operatorJoy.getButton(2)) {
             isShooting = true;
-            shooterSet = 6000.0;
+            shooterSet = aimedShooterSpeed;     //Speed for the range auto aim last saw
         } else if (operatorJoy.getButton(3)) {
             isShooting = true;
             shooterSet = Constants.SHOOTER_SHOT;
@@ -374,7 +484,7 @@ public class Main extends IterativeRobot {
             fineAdjust *= EagleMath.deadband(fineAdjustInput, .005);
             
 
-            armSet = robot.arm.getSetpoint() + coarseAdjust + fineAdjust;
+            armSet = frame.armSetpoint + coarseAdjust + fineAdjust;
         }
 
         robot.shooter.setShooterSpeed(shooterSet);
@@ -382,30 +492,157 @@ public class Main extends IterativeRobot {
     }
 
     public void updateDashboard() {
-        SmartDashboard.putNumber("Shooter Actual Velocity", robot.shooter.getVelocity());     //shooter current vel
-        SmartDashboard.putNumber("Shooter Set Velocity", robot.shooter.getShooterSetSpeed()); //Shooter set vel
-        SmartDashboard.putNumber("Shooter A current", robot.shooter.getCurrent(0));
-        SmartDashboard.putNumber("Shooter B current", robot.shooter.getCurrent(1));
-        SmartDashboard.putNumber("Shooter C current", robot.shooter.getCurrent(2));
-        SmartDashboard.putBoolean("Shooter IsAtTarget", robot.shooter.isAtTargetSpeed());
-
-        SmartDashboard.putNumber("Arm Actual Position", robot.arm.getActual());               //arm actual pos
-        SmartDashboard.putNumber("Arm Set Position", robot.arm.getSetpoint());                //arm set pos
-        SmartDashboard.putNumber("Arm offset", robot.arm.getActual() - Constants.ARM_LOWER_LIM);//Arm offset from vertical most limt
-        SmartDashboard.putNumber("Arm current", robot.arm.getCurrentOutput());
-        SmartDashboard.putNumber("Arm Actual - Deg", robot.arm.toDegrees(robot.arm.getActual()));
-        SmartDashboard.putNumber("Arm Set - Deg", robot.arm.toDegrees(robot.arm.getSetpoint()));
-
-        SmartDashboard.putNumber("yaw", robot.drive.getYaw());
+        ShooterState shooterState = frame.shooter;
+        SmartDashboard.putNumber("Shooter Actual Velocity", shooterState.velocity);     //shooter current vel
+        SmartDashboard.putNumber("Shooter Set Velocity", frame.shooterSetpoint); //Shooter set vel
+        SmartDashboard.putNumber("Shooter A current", shooterState.currentA);
+        SmartDashboard.putNumber("Shooter B current", shooterState.currentB);
+        SmartDashboard.putNumber("Shooter C current", shooterState.currentC);
+        SmartDashboard.putBoolean("Shooter IsAtTarget", shooterState.ready);
+        VelocityEstimator shooterEstimator = robot.shooter.getVelocityEstimator();
+        SmartDashboard.putNumber("Shooter Velocity StdDev",      //In wheel RPM
+                Math.sqrt(shooterEstimator.getVariance()) * 60.0 * Math.abs(Constants.SHOOTER_ENCODER_SCALE));
+        SmartDashboard.putNumber("Shooter Velocity Latency", shooterEstimator.getLatency() * 1000.0);   //In ms
+        SmartDashboard.putNumber("Shooter CAN Writes Sent", robot.shooter.getCommandBuffer().getSentCount());
+        SmartDashboard.putNumber("Shooter CAN Writes Suppressed", robot.shooter.getCommandBuffer().getSuppressedCount());
+        SmartDashboard.putNumber("Shooter Loop Overruns", robot.shooter.getExecutor().getOverruns());
+        SmartDashboard.putNumber("Shooter Loop Max Jitter", robot.shooter.getExecutor().getMaxJitter());
+        SmartDashboard.putNumber("Shooter Model Velocity", robot.shooter.getObserver().getEstimate());
+        SmartDashboard.putBoolean("Shooter Encoder Faulted", robot.shooter.getObserver().isEncoderFaulted());
+        SmartDashboard.putBoolean("Shooter Initialized", robot.shooter.isInitialized());
+        SmartDashboard.putBoolean("Arm Initialized", robot.arm.isInitialized());
+        SmartDashboard.putBoolean("Arm Settled", robot.arm.isSettled());
+        Boolean armCrio = (Boolean) armControlChooser.getSelected();
+        if (armCrio != null) {
+            robot.arm.setCrioControl(armCrio.booleanValue());   //Switched over by the arm thread
+        }
+        SmartDashboard.putBoolean("Arm cRIO Control", robot.arm.isCrioControl());
+        SmartDashboard.putNumber("Arm Output Voltage", robot.arm.getOutputVoltage());
+
+        FlywheelController selected = (FlywheelController) flywheelChooser.getSelected();
+        if (selected != null && selected != robot.shooter.getController()) {
+            robot.shooter.setController(selected);  //Switched over by the shooter thread
+        }
+        FlywheelStats flywheelStats = robot.shooter.getController().getStats();
+        SmartDashboard.putString("Flywheel Mode", robot.shooter.getController().getName());
+        SmartDashboard.putNumber("Flywheel Time To Ready", flywheelStats.getMeanTimeToReady());     //ms
+        SmartDashboard.putNumber("Flywheel Recovery", flywheelStats.getMeanRecovery());             //ms
+        SmartDashboard.putNumber("Flywheel Recovery Max", flywheelStats.getMaxRecovery());
+
+        ShotDetector shots = robot.shooter.getShots();
+        SmartDashboard.putNumber("Shot Count", shots.getShotCount());
+        putHistogram("Shot Dip", shots.getDipDepth());              //RPM
+        putHistogram("Shot Recovery", shots.getRecovery());         //ms
+        SmartDashboard.putNumber("Shot Recovery Timeouts", shots.getRecoveryTimeouts());
+        putHistogram("Shot Interval", shots.getInterval());         //ms
+        putHistogram("Kick To Shot", shots.getKickToShot());        //ms
+
+        SmartDashboard.putNumber("Arm Actual Position", frame.armPosition);               //arm actual pos
+        SmartDashboard.putNumber("Arm Set Position", frame.armSetpoint);                //arm set pos
+        SmartDashboard.putNumber("Arm offset", frame.armPosition - Constants.ARM_LOWER_LIM);//Arm offset from vertical most limt
+        SmartDashboard.putNumber("Arm current", frame.armCurrent);
+        SmartDashboard.putNumber("Arm Actual - Deg", robot.arm.toDegrees(frame.armPosition));
+        SmartDashboard.putNumber("Arm Set - Deg", robot.arm.toDegrees(frame.armSetpoint));
+
+        SmartDashboard.putNumber("yaw", frame.yaw);
+        SmartDashboard.putBoolean("Disc Present", frame.discPresent);
+        SmartDashboard.putNumber("Loop Time", loopTime);
+        SmartDashboard.putString("Match Phase", clock.getPhaseName());
+        SmartDashboard.putNumber("Match Time Left", clock.getPhaseRemaining());
         //SmartDashboard.putBoolean("Arm Zero Switch", robot.arm.getZeroSwitch());
     }
 
-    long testStart = 0;
+    /**
+     * Declares the telemetry channels. Names match the dashboard keys
+     */
+    void initTelemetry() {
+        if (!Constants.TELEMETRY_ENABLED) {
+            return;
+        }
+        tMode = telemetry.addChannel("Mode", TelemetryRecorder.TYPE_INT);
+        tLoopTime = telemetry.addChannel("Loop Time", TelemetryRecorder.TYPE_INT);
+        tShooterVel = telemetry.addChannel("Shooter Actual Velocity", TelemetryRecorder.TYPE_FLOAT);
+        tShooterSet = telemetry.addChannel("Shooter Set Velocity", TelemetryRecorder.TYPE_FLOAT);
+        tShooterA = telemetry.addChannel("Shooter A current", TelemetryRecorder.TYPE_FLOAT);
+        tShooterB = telemetry.addChannel("Shooter B current", TelemetryRecorder.TYPE_FLOAT);
+        tShooterC = telemetry.addChannel("Shooter C current", TelemetryRecorder.TYPE_FLOAT);
+        tShooterReady = telemetry.addChannel("Shooter IsAtTarget", TelemetryRecorder.TYPE_BOOLEAN);
+        tArmActual = telemetry.addChannel("Arm Actual Position", TelemetryRecorder.TYPE_FLOAT);
+        tArmSet = telemetry.addChannel("Arm Set Position", TelemetryRecorder.TYPE_FLOAT);
+        tArmCurrent = telemetry.addChannel("Arm current", TelemetryRecorder.TYPE_FLOAT);
+        tYaw = telemetry.addChannel("yaw", TelemetryRecorder.TYPE_FLOAT);
+        tDisc = telemetry.addChannel("Disc Present", TelemetryRecorder.TYPE_BOOLEAN);
+        telemetry.start();
+    }
+
+    /**
+     * Records the current sensor frame, with the match phase as the mode.
+     * Never blocks on file I/O
+     */
+    void recordTelemetry() {
+        telemetry.beginRecord(frame.timestamp);
+        telemetry.setInt(tMode, clock.getPhase());
+        telemetry.setInt(tLoopTime, (int) loopTime);
+        telemetry.setFloat(tShooterVel, frame.shooter.velocity);
+        telemetry.setFloat(tShooterSet, frame.shooterSetpoint);
+        telemetry.setFloat(tShooterA, frame.shooter.currentA);
+        telemetry.setFloat(tShooterB, frame.shooter.currentB);
+        telemetry.setFloat(tShooterC, frame.shooter.currentC);
+        telemetry.setBoolean(tShooterReady, frame.shooter.ready);
+        telemetry.setFloat(tArmActual, frame.armPosition);
+        telemetry.setFloat(tArmSet, frame.armSetpoint);
+        telemetry.setFloat(tArmCurrent, frame.armCurrent);
+        telemetry.setFloat(tYaw, frame.yaw);
+        telemetry.setBoolean(tDisc, frame.discPresent);
+        telemetry.endRecord();
+    }
+
+    SystemIdentifier sysid = null;
+    boolean sysidSaved = false;
+
+    /**
+     * Test mode runs the feedforward characterization. Put the drive on blocks
+     */
     public void testInit() {
-        testStart = System.currentTimeMillis();
+        clock.update(MatchClock.TEST);
+        if (sysid == null) {
+            sysid = new SystemIdentifier(robot.shooter, robot.drive);
+        }
+        sysid.start();
+        sysidSaved = false;
     }
 
     public void testPeriodic() {
-        
+        clock.update(MatchClock.TEST);
+        sysid.update();
+        if (sysid.isDone() && !sysidSaved) {
+            saveParameters();
+            sysidSaved = true;
+        }
+    }
+
+    /**
+     * Copies the parameters saved on the cRIO into the Parameters store
+     */
+    private void loadParameters() {
+        Preferences prefs = Preferences.getInstance();
+        Vector keys = prefs.getKeys();
+        for (int i = 0; i < keys.size(); i++) {
+            String key = (String) keys.elementAt(i);
+            Parameters.set(key, prefs.getDouble(key, 0));
+        }
+    }
+
+    /**
+     * Saves the Parameters store to the cRIO, so it is loaded at the next boot
+     */
+    private void saveParameters() {
+        Preferences prefs = Preferences.getInstance();
+        String[] keys = Parameters.getKeys();
+        for (int i = 0; i < keys.length; i++) {
+            prefs.putDouble(keys[i], Parameters.get(keys[i], 0));
+        }
+        prefs.save();
+        System.out.println("Saved " + keys.length + " parameters");
     }
 }
\ No newline at end of file
@@ -0,0 +1,104 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot;
+
+import org.team399.y2013.Utilities.Clock;
+
+/**
+ * The main loop's view of time. update() reads the Clock once at the start
+ * of each iteration and everything in that iteration uses the same
+ * timestamp. Also tracks the match phase and how long it has run. Reads the
+ * Clock, so a simulation that sets a VirtualTimeSource drives this too.
+ *
+ * Written by the main loop only; other threads may read it.
+ * @author Jeremy
+ */
+public class MatchClock {
+
+    //Phases. Also the mode channel in telemetry
+    public static final int DISABLED = 0;
+    public static final int AUTONOMOUS = 1;
+    public static final int TELEOP = 2;
+    public static final int TEST = 3;
+    private static final String[] PHASE_NAMES = {"Disabled", "Autonomous", "Teleop", "Test"};
+    private volatile long millis = 0;
+    private volatile double seconds = 0;
+    private volatile int phase = DISABLED;
+    private volatile double phaseStart = 0;
+    private volatile double matchStart = -1;    //Start of the last autonomous, seconds. -1 until there is one
+
+    /**
+     * Captures the time for this loop. Call first thing in every init and
+     * periodic method. A change of phase restarts the phase time
+     * @param phase the phase the loop is running in
+     */
+    public void update(int phase) {
+        millis = Clock.millis();
+        seconds = Clock.seconds();
+        if (phase != this.phase) {
+            phaseStart = seconds;
+            if (phase == AUTONOMOUS) {
+                matchStart = seconds;
+            }
+            this.phase = phase;
+        }
+    }
+
+    /**
+     * @return this loop's timestamp, Clock.millis() time
+     */
+    public long millis() {
+        return millis;
+    }
+
+    /**
+     * @return this loop's timestamp, Clock.seconds() time
+     */
+    public double seconds() {
+        return seconds;
+    }
+
+    public int getPhase() {
+        return phase;
+    }
+
+    public String getPhaseName() {
+        return PHASE_NAMES[phase];
+    }
+
+    /**
+     * @return time since the phase began, seconds
+     */
+    public double getPhaseElapsed() {
+        return seconds - phaseStart;
+    }
+
+    /**
+     * @return time left in the phase by the match schedule, seconds. 0 when
+     * disabled or in test
+     */
+    public double getPhaseRemaining() {
+        double length;
+        if (phase == AUTONOMOUS) {
+            length = Constants.MATCH_AUTON_LENGTH;
+        } else if (phase == TELEOP) {
+            length = Constants.MATCH_TELEOP_LENGTH;
+        } else {
+            return 0;
+        }
+        return Math.max(length - getPhaseElapsed(), 0);
+    }
+
+    /**
+     * @return time since autonomous began, seconds. 0 before the first autonomous
+     */
+    public double getMatchElapsed() {
+        return matchStart < 0 ? 0 : seconds - matchStart;
+    }
+
+    public String toString() {
+        return getPhaseName() + " " + getPhaseElapsed() + " s";
+    }
+}
@@ -8,9 +8,15 @@ import edu.wpi.first.wpilibj.*;
 import edu.wpi.first.wpilibj.camera.AxisCamera;
 import org.team399.y2013.robot.Systems.Arm;
 import org.team399.y2013.robot.Systems.Automation.AutoShootController;
+import org.team399.y2013.robot.Systems.Automation.ShotTable;
+import org.team399.y2013.robot.Systems.CANStatusPoller;
 import org.team399.y2013.robot.Systems.Climber;
+import org.team399.y2013.robot.Systems.DeviceBringup;
 import org.team399.y2013.robot.Systems.DriveTrain;
 import org.team399.y2013.robot.Systems.Feeder;
+import org.team399.y2013.robot.Systems.HAL.BinaryActuator;
+import org.team399.y2013.robot.Systems.HAL.Hardware;
+import org.team399.y2013.robot.Systems.HAL.RobotHardware;
 import org.team399.y2013.robot.Systems.Intake;
 import org.team399.y2013.robot.Systems.Shooter;
 
@@ -28,24 +34,31 @@ public class Robot {
     public Shooter shooter;
     public Compressor comp;
     public AutoShootController autoshoot;
-    public Solenoid ringLight;
+    public BinaryActuator ringLight;
     //public AxisCamera camera;
     
     
     public Arm arm;
+    public ShotTable shots;
     
     private Robot() {
-        climber = new Climber(Constants.WINCH_PORT, Constants.LIMIT_SWITCH_PORT);
-        intake = new Intake(Constants.INTAKE_MOTOR, Constants.INTAKE_SENSOR);
-        drive = new DriveTrain(Constants.DRIVE_LEFT_A, Constants.DRIVE_LEFT_B, Constants.DRIVE_RIGHT_A, Constants.DRIVE_RIGHT_B);
-        feeder = new Feeder(Constants.FEEDER_MOTOR, Constants.KICKER_PORT, Constants.FLAP_PORTA, Constants.FLAP_PORTB);
+        RobotHardware hardware = Hardware.getInstance();
+        climber = new Climber(hardware, Constants.WINCH_PORT, Constants.LIMIT_SWITCH_PORT);
+        intake = new Intake(hardware, Constants.INTAKE_MOTOR, Constants.INTAKE_SENSOR);
+        drive = new DriveTrain(hardware, Constants.DRIVE_LEFT_A, Constants.DRIVE_LEFT_B, Constants.DRIVE_RIGHT_A, Constants.DRIVE_RIGHT_B);
+        feeder = new Feeder(hardware, Constants.FEEDER_MOTOR, Constants.KICKER_PORT, Constants.FLAP_PORTA, Constants.FLAP_PORTB);
         shooter = Shooter.getInstance();
+        feeder.addKickListener(shooter);    //Kicks schedule the shooter's feedforward boost
         comp = new Compressor(Constants.COMPRESSOR_SWITCH, Constants.COMPRESSOR_RELAY);        
         arm = Arm.getInstance();
         autoshoot = new AutoShootController(shooter, feeder);
-        ringLight = new Solenoid(Constants.RING_PORT);
+        shots = new ShotTable();
+        ringLight = hardware.getSolenoid(Constants.RING_PORT);
+        DeviceBringup.getInstance().start();    //Jaguars come up in the background; subsystems run degraded until then
+        CANStatusPoller.getInstance().start();
         shooter.start();
         comp.start();
+        arm.start();
         arm.setEnabled(true);
         ringLight.set(true);
         //camera = AxisCamera.getInstance();
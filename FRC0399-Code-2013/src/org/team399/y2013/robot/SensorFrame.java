@@ -0,0 +1,46 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot;
+
+import org.team399.y2013.robot.Systems.ShooterState;
+
+/**
+ * Snapshot of every sensor the main loop uses, captured once at the start of
+ * each iteration. Logic and dashboard code read from the frame instead of the
+ * subsystems, so every reader in an iteration sees the same values and the
+ * number of sensor reads per loop is fixed. The object is reused every loop.
+ * @author Jeremy
+ */
+public class SensorFrame {
+
+    public long timestamp = 0;          //Loop time the frame was captured, Clock.millis() ms
+    public long iteration = 0;          //Number of frames captured
+    public double armPosition = 0;      //Arm pot position, rotations
+    public double armSetpoint = 0;      //Arm setpoint, rotations
+    public double armCurrent = 0;       //Arm output current, amps
+    public double yaw = 0;              //Drive yaw gyro angle, degrees
+    public boolean gear = false;        //Shifter state, see Constants.HIGH_GEAR
+    public ShooterState shooter = null; //Latest shooter control loop snapshot
+    public double shooterSetpoint = 0;  //Setpoint last commanded, RPM
+    public boolean discPresent = false; //Intake disc sensor
+
+    /**
+     * Reads every sensor once
+     * @param robot the robot to read from
+     * @param clock this loop's time
+     */
+    public void capture(Robot robot, MatchClock clock) {
+        timestamp = clock.millis();
+        iteration++;
+        armPosition = robot.arm.getActual();
+        armSetpoint = robot.arm.getSetpoint();
+        armCurrent = robot.arm.getCurrentOutput();
+        yaw = robot.drive.getYaw();
+        gear = robot.drive.gear;
+        shooter = robot.shooter.getState();
+        shooterSetpoint = robot.shooter.getShooterSetSpeed();
+        discPresent = robot.intake.isDiscPresent();
+    }
+}
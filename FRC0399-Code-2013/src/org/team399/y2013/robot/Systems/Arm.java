@@ -4,65 +4,242 @@
  */
 package org.team399.y2013.robot.Systems;
 
-import edu.wpi.first.wpilibj.CANJaguar;
-import edu.wpi.first.wpilibj.DigitalInput;
+import org.team399.y2013.Utilities.Clock;
+import org.team399.y2013.Utilities.EagleMath;
 import org.team399.y2013.Utilities.PulseTriggerBoolean;
+import org.team399.y2013.Utilities.LeastSquaresVelocityEstimator;
+import org.team399.y2013.Utilities.LogSite;
+import org.team399.y2013.Utilities.Logger;
+import org.team399.y2013.Utilities.Parameters;
+import org.team399.y2013.Utilities.PeriodicExecutor;
+import org.team399.y2013.Utilities.TrapezoidProfile;
+import org.team399.y2013.Utilities.VelocityEstimator;
 import org.team399.y2013.robot.Constants;
+import org.team399.y2013.robot.Systems.HAL.BinarySensor;
+import org.team399.y2013.robot.Systems.HAL.CanMotorController;
+import org.team399.y2013.robot.Systems.HAL.DeviceException;
+import org.team399.y2013.robot.Systems.HAL.Hardware;
+import org.team399.y2013.robot.Systems.HAL.RobotHardware;
 
 /**
+ * Arm pivot, position controlled on the pot.
  *
+ * Setpoints are not sent straight to the Jag. The arm thread moves the Jag
+ * setpoint toward the requested one along a trapezoidal profile, so the arm
+ * doesn't slam from one end to the other, and reports when the arm has
+ * actually arrived through isSettled().
+ *
+ * There are two ways to close the loop, picked with setCrioControl(). By
+ * default the Jag runs its own position PID on the pot and the arm thread
+ * sends it the profile setpoint. In cRIO mode the Jag runs in voltage mode,
+ * and the arm thread runs at ARM_CRIO_LOOP_RATE and sends PID plus a
+ * cos(angle) gravity feedforward as a voltage. The cRIO gains are set with
+ * setGains() and take effect on the next loop without any Jag
+ * configuration, but the pot is polled at ARM_CRIO_POSITION_POLL_RATE and a
+ * voltage is sent every loop, so it costs more CAN traffic.
  * @author Jeremy
  */
-public class Arm {
+public class Arm implements DeviceInitializer, Runnable {
 
-    private CANJaguar arm = null;
+    private final RobotHardware hardware;
+    private CanMotorController arm = null;
+    private DeviceFuture armFuture;     //Configured by the bring-up thread
     private double ARM_P = Constants.ARM_P, ARM_I = Constants.ARM_I, ARM_D = Constants.ARM_D;
-    private double setpoint = Constants.ARM_STOW_UP;
+    private volatile double setpoint = Constants.ARM_STOW_UP;   //Goal; the Jag follows the profile to it
     private boolean enabled = false;
     private int ARM_ID = Constants.ARM_ID;
     private static Arm instance = null;
-    private DigitalInput zeroSwitch;
+    private BinarySensor zeroSwitch;
     private double current_position = 0.0;
+    private CANSignal positionSignal = CANStatusPoller.getInstance().register(
+            Constants.ARM_ID, CANSignal.POSITION, Constants.ARM_POSITION_POLL_RATE);
+    private CANSignal currentSignal = CANStatusPoller.getInstance().register(
+            Constants.ARM_ID, CANSignal.OUTPUT_CURRENT, Constants.ARM_CURRENT_POLL_RATE);
+    //Setpoint writes go through a buffer so an unchanged setpoint is not re-sent every loop
+    private CANCommandBuffer commands;
+    private CANCommand setpointCommand;
+    private static final LogSite faultLog = new LogSite("[ARM] ", Logger.WARN, 1000);
+    private static final LogSite powerLog = new LogSite("[ARM] ", Logger.WARN, 1000);
+    //During a pot fault the Jag is asked if it power cycled, backing off like bring-up does
+    private long nextPowerCheck = -1;
+    private long powerCheckBackoff = Constants.CAN_BRINGUP_BACKOFF;
+    //Owned by the arm thread
+    private PeriodicExecutor executor = new PeriodicExecutor(this, Constants.ARM_LOOP_RATE, "Arm");
+    private TrapezoidProfile profile = new TrapezoidProfile(Constants.ARM_MAX_VELOCITY,
+            Constants.ARM_MAX_ACCELERATION);
+    private VelocityEstimator velocityEstimator = new LeastSquaresVelocityEstimator(5);
+    private double[] positionSample = new double[2];
+    private long lastPositionUpdate = -1;
+    private double lastRun = -1;
+    private boolean following = false;      //The Jag has been following the profile
+    private volatile boolean resyncRequested = false;
+    private volatile boolean settled = false;
+    private volatile double settledGoal = Double.NaN;   //Goal settled was worked out for
+    private volatile double profileSetpoint = Constants.ARM_STOW_UP;
+    //cRIO control
+    private volatile boolean crioControl = Constants.ARM_CRIO_CONTROL;  //Mode asked for
+    private volatile boolean configuredCrio = false;    //Mode the Jag is configured for. Written by the bring-up thread
+    private boolean loopCrio = false;   //Mode the arm thread rates are set for
+    private volatile double[] requestedGains;    //Mailbox from setGains() to the arm thread
+    private double[] appliedGains = null;
+    private double kP, kI, kD, kG;
+    private double integral = 0.0;      //Rotation seconds
+    private volatile double outputVoltage = 0.0;
 
     public static Arm getInstance() {
         if (instance == null) {
-            instance = new Arm();
+            instance = new Arm(Hardware.getInstance());
         }
         return instance;
     }
 
-    private Arm() {
-        int initCounter = 0;
+    /**
+     * Constructor. Use getInstance() on the robot; simulations make their own
+     * @param hardware where to get the Jag and zero switch from
+     */
+    public Arm(RobotHardware hardware) {
+        this.hardware = hardware;
+        setGains(Parameters.get("ARM_KP", Constants.ARM_KP), Parameters.get("ARM_KI", Constants.ARM_KI),
+                Parameters.get("ARM_KD", Constants.ARM_KD), Parameters.get("ARM_KG", Constants.ARM_KG));
+        commands = new CANCommandBuffer(hardware);
+        setpointCommand = commands.register((byte) 0);
+        zeroSwitch = hardware.getDigitalInput(Constants.ZERO_SWITCH_SENSOR);
+
+        //DON'T TOUCH THE CAN BUS HERE. The Jag comes up on the bring-up thread
+        armFuture = DeviceBringup.getInstance().register("Arm", ARM_ID, this);
+        setpoint = Constants.ARM_STOW_UP;
+    }
 
-        zeroSwitch = new DigitalInput(Constants.ZERO_SWITCH_SENSOR);
+    /**
+     * @return true once the arm Jag is configured and in use
+     */
+    public boolean isInitialized() {
+        return armFuture.isReady();
+    }
 
-        while (initCounter <= 10 && arm == null) {
-            arm = initializeArmJaguar(arm, ARM_ID);
-            System.out.println("Arm initialized!");
-            initCounter++;
+    /**
+     * Picks up the Jag once the bring-up thread has configured it, and drops
+     * it while it is being reconfigured
+     * @return the Jag, or null if it is not up
+     */
+    private CanMotorController adopt() {
+        CanMotorController wanted = armFuture.get();
+        if (wanted != arm) {
+            if (wanted != null) {
+                System.out.println("Arm initialized!");
+            }
+            CANStatusPoller.getInstance().setDevice(ARM_ID, wanted);
+            setpointCommand.setDevice(wanted);
+            arm = wanted;
         }
+        return arm;
+    }
 
-        if (initCounter >= 10) {
-            System.out.println("Arm Jag init failed after 10 attempts");
-        }
-        setpoint = Constants.ARM_STOW_UP;
+    /**
+     * Hands the Jag back to the bring-up thread, as in the event of a brown
+     * out it loses configuration. The arm thread picks it up again once it
+     * is configured
+     */
+    private void reinitialize() {
+        DeviceBringup.getInstance().retry(armFuture);
     }
 
+    /**
+     * Start running thread
+     * @return flag indicating a successful start
+     */
+    public synchronized boolean start() {
+        return executor.start();
+    }
+
+    /**
+     * Stop running thread
+     */
+    public synchronized void stop() {
+        executor.stop();
+    }
+
+    public PeriodicExecutor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * @return the goal setpoint, rotations
+     */
     public double getSetpoint() {
         return setpoint;
     }
 
+    /**
+     * @return the setpoint the Jag is following right now, rotations
+     */
+    public double getProfileSetpoint() {
+        return profileSetpoint;
+    }
+
+    /**
+     * @return true once the profile has finished and the arm is at the goal
+     * and has stopped moving
+     */
+    public boolean isSettled() {
+        //Not settled on a goal the arm thread hasn't seen yet
+        return settled && settledGoal == setpoint;
+    }
+
+    /**
+     * Switches between the Jag's position PID and cRIO control. The Jag is
+     * reconfigured by the bring-up thread, and the arm holds still until it is
+     * @param crio true for cRIO control in voltage mode, false for Jag PID
+     */
+    public void setCrioControl(boolean crio) {
+        crioControl = crio;
+    }
+
+    /**
+     * @return true if the loop is closed on the cRIO right now
+     */
+    public boolean isCrioControl() {
+        return configuredCrio;
+    }
+
+    /**
+     * Sets the cRIO control gains. Picked up by the arm thread on its next
+     * loop; nothing is sent to the Jag
+     * @param p volts per rotation of error
+     * @param i volts per rotation second of error
+     * @param d volts per rotation/s of error
+     * @param g volts to hold the arm horizontal, scaled by cos(angle)
+     */
+    public void setGains(double p, double i, double d, double g) {
+        requestedGains = new double[]{p, i, d, g};
+    }
+
+    /**
+     * @return the voltage last sent in cRIO mode
+     */
+    public double getOutputVoltage() {
+        return outputVoltage;
+    }
+
+    /**
+     * Restarts the profile from where the arm is. Call while the Jag isn't
+     * driving the arm, such as while disabled, so the setpoint doesn't jump
+     * when it is enabled
+     */
+    public void resetProfile() {
+        resyncRequested = true;
+    }
+
+    /**
+     * Returns the arm position cached by the CAN poller. Does not touch the CAN bus
+     * @return the pot position in rotations, or -1 if it is not being read
+     */
     public double getActual() {
         double angle = -1;
-        try {
-            angle = arm.getPosition();
-            this.current_position = angle;
-        } catch (Throwable t) {
-            System.err.println("ARM CAN Error in getAngle");
-            System.out.println(t);
-
-            arm = initializeArmJaguar(arm, ARM_ID);
+        if (positionSignal.isValid()) {
+            angle = positionSignal.getValue();
         }
+        this.current_position = angle;
         return angle;
     }
 
@@ -122,57 +299,165 @@ public class Arm {
         }
         //this.setpoint = 1 * setpoint;	//some scalar from angle to pot turns
 //        if(!getZeroSwitch()) {
-        this.setpoint = setpoint;
+        this.setpoint = setpoint;   //The arm thread profiles the Jag setpoint to it
 //        }
+    }
+
+    /**
+     * Thread run method. Advances the profile and sends its setpoint to the
+     * Jag, or in cRIO mode the voltage to follow it. don't call this in user code
+     */
+    public void run() {
+        double now = Clock.seconds();
+        double dt = (lastRun < 0) ? 1.0 / Constants.ARM_LOOP_RATE : now - lastRun;
+        lastRun = now;
+
+        long update = positionSignal.read(positionSample);
+        if (update != lastPositionUpdate) {
+            lastPositionUpdate = update;
+            velocityEstimator.update(positionSample[0], positionSample[1]);
+        }
+        double position = positionSample[0];
+
+        boolean crio = crioControl;
+        if (crio != loopCrio) {
+            loopCrio = crio;
+            executor.setRate(crio ? Constants.ARM_CRIO_LOOP_RATE : Constants.ARM_LOOP_RATE);
+            positionSignal.setRate(crio ? Constants.ARM_CRIO_POSITION_POLL_RATE : Constants.ARM_POSITION_POLL_RATE);
+        }
+        CanMotorController jag = adopt();
+        if (jag != null && crio != configuredCrio) {
+            reinitialize();     //Changes the Jag's control mode
+            jag = adopt();
+        }
+        if (jag == null || !positionSignal.isValid()) {
+            following = false;
+            settled = false;
+            return;     //Not up yet; the profile starts from wherever the arm is once it is
+        }
+        if (!following || resyncRequested) {
+            resyncRequested = false;
+            profile.reset(position);
+            velocityEstimator.reset();
+            integral = 0.0;
+        }
+        double goal = setpoint;
+        profile.setGoal(goal);
+        profile.update(dt);
+        profileSetpoint = profile.getPosition();
+        if (configuredCrio) {
+            outputVoltage = crioVoltage(position, dt);
+            following = sendSetpoint(position, outputVoltage);
+        } else {
+            following = sendSetpoint(position, profileSetpoint);
+        }
+
+        settled = following && profile.isFinished()
+                && Math.abs(goal - position) <= Constants.ARM_SETTLE_ERROR
+                && Math.abs(velocityEstimator.getVelocity()) <= Constants.ARM_SETTLE_VELOCITY;
+        settledGoal = goal;
+    }
+
+    /**
+     * PID on the profile plus gravity feedforward, for cRIO mode
+     * @return the voltage to send
+     */
+    private double crioVoltage(double position, double dt) {
+        double[] gains = requestedGains;
+        if (gains != appliedGains) {
+            appliedGains = gains;
+            kP = gains[0];
+            kI = gains[1];
+            kD = gains[2];
+            kG = gains[3];
+        }
+        double error = profile.getPosition() - position;
+        //Derivative of the error, from the profile speed rather than differencing the setpoint
+        double errorRate = profile.getVelocity() - velocityEstimator.getVelocity();
+        if (kI != 0) {
+            double limit = Constants.ARM_I_LIMIT / Math.abs(kI);
+            integral = EagleMath.cap(integral + error * dt, -limit, limit);
+        } else {
+            integral = 0.0;
+        }
+        double angle = Math.toRadians(toDegrees(profile.getPosition()) - Constants.ARM_HORIZONTAL_ANGLE);
+        double volts = kP * error + kI * integral + kD * errorRate + kG * Math.cos(angle);
+        return EagleMath.cap(volts, -12.0, 12.0);
+    }
+
+    /**
+     * Sends a setpoint to the Jag, unless the pot reading is bad. In cRIO
+     * mode the setpoint is a voltage
+     * @return true if the Jag is following the setpoint
+     */
+    private boolean sendSetpoint(double position, double target) {
         try {
             //        arm.changeControlMode(CANJaguar.ControlMode.kPosition);
-            if (this.current_position <= 1.0 || this.current_position >= 9.0) {
+            if (position <= 1.0 || position >= 9.0) {
                 faultCondition();
-                System.out.println("arm pot fault. consider switching to open loop");
+                faultLog.log("arm pot fault. consider switching to open loop");
+                if (configuredCrio) {
+                    setpointCommand.set(0.0);   //No feedback to hold a voltage on
+                    commands.flush();
+                }
                 //arm.enableControl();
                 
-                //consider reinitializing arm here?
-                if(arm.getPowerCycled()) {
-                    System.out.println("Arm browned out/power cycled. reinitizing...");
-                    arm = initializeArmJaguar(arm, ARM_ID);
+                //A brown out reads as a pot fault until the Jag is reconfigured.
+                //Asking is a synchronous CAN transaction, so don't ask every loop
+                long now = Clock.millis();
+                if (now >= nextPowerCheck) {
+                    nextPowerCheck = now + powerCheckBackoff;
+                    powerCheckBackoff = Math.min(powerCheckBackoff * 2, Constants.CAN_BRINGUP_MAX_BACKOFF);
+                    if (arm.getPowerCycled()) {
+                        powerLog.log("Arm browned out/power cycled. reinitializing...");
+                        reinitialize();
+                    }
                 }
-            } else {
-                arm.setX(this.setpoint);
+                return false;
+            }
+            nextPowerCheck = -1;    //Pot reads good; check straight away on the next fault
+            powerCheckBackoff = Constants.CAN_BRINGUP_BACKOFF;
+            setpointCommand.set(target);
+            commands.flush();
+            if (setpointCommand.takeFailure()) {
+                faultLog.log("ARM CAN Error in setpoint change");
+                reinitialize();
+                return false;
             }
-            
+            return true;
         } catch (Throwable t) {
             System.err.println("ARM CAN Error in setpoint change");
             System.out.println(t);
 
-            arm = initializeArmJaguar(arm, ARM_ID);
+            reinitialize();
+            return false;
         }
     }
 
     private void faultCondition() {
         try {
-            System.out.println("Arm Position Fault");
+            faultLog.log("Arm Position Fault");
             //arm.disableControl();
         } catch (Throwable t) {
             System.err.println("ARM CAN Error in setpoint change");
             System.out.println(t);
 
-            arm = initializeArmJaguar(arm, ARM_ID);
+            reinitialize();
         }
     }
 
     public void setBrake(boolean wantBrake) {
-
+        CanMotorController jag = armFuture.get();
+        if (jag == null) {
+            return;
+        }
         try {
-            if (wantBrake) {
-                arm.configNeutralMode(CANJaguar.NeutralMode.kBrake);
-            } else {
-                arm.configNeutralMode(CANJaguar.NeutralMode.kCoast);
-            }
+            jag.configNeutralMode(wantBrake);
         } catch (Throwable t) {
             System.err.println("ARM CAN Error in brake config");
             System.out.println(t);
 
-            arm = initializeArmJaguar(arm, ARM_ID);
+            reinitialize();
         }
     }
 
@@ -180,16 +465,15 @@ public class Arm {
         return !zeroSwitch.get();
     }
 
+    /**
+     * Returns the arm output current cached by the CAN poller
+     * @return output current in amps, or -1 if it is not being read
+     */
     public double getCurrentOutput() {
         double answer = -1;
-        try {
-            answer = arm.getOutputCurrent();
-        } catch (Throwable t) {
-            System.err.println("ARM CAN Error in brake config");
-            System.out.println(t);
-            arm = initializeArmJaguar(arm, ARM_ID);
+        if (currentSignal.isValid()) {
+            answer = currentSignal.getValue();
         }
-
         return answer;
     }
 
@@ -210,9 +494,13 @@ public class Arm {
 
     public void setEnabled(boolean enabled) {
         this.enabled = enabled; // the this is needed because they have the same name
+        CanMotorController jag = armFuture.get();
+        if (jag == null) {
+            return;     //The bring-up thread sets the PID constants when it configures the Jag
+        }
         try {
-            if (enabled) {
-                arm.setPID(ARM_P, ARM_I, ARM_D);    //not sure if right syntax
+            if (enabled && !configuredCrio) {
+                jag.setPID(ARM_P, ARM_I, ARM_D);    //not sure if right syntax
                 //arm.enableControl();
             } else {
                 //arm.disableControl();
@@ -222,41 +510,49 @@ public class Arm {
             System.out.println(t);// remember the driver station error message box is small
 
             //reconfigure the jag, as in the event of a brown out, it loses configuration
-            arm = initializeArmJaguar(arm, ARM_ID);
+            reinitialize();
         }
 
     }
 
-    private CANJaguar initializeArmJaguar(CANJaguar armJag, int CAN_ID) {
-
-        try {
-            if (armJag == null) {
-                armJag = new CANJaguar(CAN_ID, CANJaguar.ControlMode.kPosition);
-            }
-
-            if (armJag.getPowerCycled()) // Should be true on first call; like if the bot was just turned on, or a brownout.
-            {
-                // Change Jag to position mode, so that the encoder configuration can be stored in its RAM
-                armJag.changeControlMode(CANJaguar.ControlMode.kPosition);
-                //armJag.enableControl();
+    /**
+     * Configures the arm Jag. Called on the bring-up thread
+     */
+    public CanMotorController initialize(int CAN_ID, CanMotorController armJag) throws DeviceException {
+        if (armJag == null) {
+            armJag = hardware.getJaguar(CAN_ID, CanMotorController.POSITION);
+        }
 
-                armJag.setPositionReference(CANJaguar.PositionReference.kPotentiometer);
+        boolean crio = crioControl;
+        if (armJag.getPowerCycled() // Should be true on first call; like if the bot was just turned on, or a brownout.
+                || crio != configuredCrio) {
+            if (crio) {
+                //Voltage mode; the pot is still read for the arm thread's loop
+                armJag.changeControlMode(CanMotorController.VOLTAGE);
+                armJag.setPositionReference(CanMotorController.POTENTIOMETER);
                 armJag.configPotentiometerTurns(10);
-
-                armJag.setPID(ARM_P, ARM_I, ARM_D);
-                //armJag.configSoftPositionLimits(Constants.ARM_UPPER_LIM, Constants.ARM_LOWER_LIM);
-                //armJag.disableControl();
-                //armJag.configMaxOutputVoltage(12.0);
-                armJag.setVoltageRampRate(0.0);	//Might want to play with this during testing
-                armJag.configFaultTime(0.5); //0.5 second is min time.
+                armJag.setVoltageRampRate(0.0);
+                armJag.configFaultTime(0.5);
                 armJag.enableControl();
+                configuredCrio = true;
+                return armJag;
             }
-        } catch (Throwable e) {
-            armJag = null; // If a jaguar fails to be initialized, then set it to null, and try initializing at a later time
-            System.err.println("ARM Init CAN ERROR. ID: " + CAN_ID);
-            System.out.println(e);
+            // Change Jag to position mode, so that the encoder configuration can be stored in its RAM
+            armJag.changeControlMode(CanMotorController.POSITION);
+            //armJag.enableControl();
+
+            armJag.setPositionReference(CanMotorController.POTENTIOMETER);
+            armJag.configPotentiometerTurns(10);
+
+            armJag.setPID(ARM_P, ARM_I, ARM_D);
+            //armJag.configSoftPositionLimits(Constants.ARM_UPPER_LIM, Constants.ARM_LOWER_LIM);
+            //armJag.disableControl();
+            //armJag.configMaxOutputVoltage(12.0);
+            armJag.setVoltageRampRate(0.0);	//Might want to play with this during testing
+            armJag.configFaultTime(0.5); //0.5 second is min time.
+            armJag.enableControl();
+            configuredCrio = false;
         }
-
         return armJag;
     }
 }
@@ -4,69 +4,94 @@
  */
 package org.team399.y2013.robot.Systems.Automation;
 
-import edu.wpi.first.wpilibj.Timer;
-import org.team399.y2013.Utilities.PulseTriggerBoolean;
+import org.team399.y2013.Utilities.Clock;
 import org.team399.y2013.robot.Constants;
 import org.team399.y2013.robot.Systems.Feeder;
 import org.team399.y2013.robot.Systems.Shooter;
 
 /**
+ * Feeds and fires discs while shooting is requested. The kick is gated on the
+ * shooter's readiness detector rather than on a fixed delay, so a disc fires
+ * as soon as the wheel has recovered, and never before.
  *
+ * Each shot: kick, retract the kicker, run the roller long enough to stage
+ * the next disc, then wait for the wheel to be ready and kick again.
  * @author Jeremy
  */
 public class AutoShootController {
 
+    private static final int KICKING = 0;
+    private static final int RESETTING = 1;
+    private static final int STAGING = 2;
+    private static final int WAITING = 3;
     private Shooter m_shooter = null;
     private Feeder m_feeder = null;
-    double feedToRollerDelay = .25;
-    double kickerResetDelay = .25;
-    double feedToKickerDelay = .5;
-    boolean isDiscStaged = false;
-    boolean isKickerLoaded = false;
-    boolean isReady = false;
-    private long beginShotTime = 0, currentTime = 0;
+    long kickDuration = 250;        //Kicker out, ms
+    long kickerResetDelay = 250;    //Kicker back in before the roller runs, ms
+    long minFeedTime = 500;         //Roller time to stage the next disc, ms
+    private int phase = WAITING;
+    private long phaseStart = 0;
+    private boolean shooting = false;
 
     public AutoShootController(Shooter shooter_inst, Feeder feeder_inst) {
         this.m_shooter = shooter_inst;
         this.m_feeder = feeder_inst;
     }
 
+    /**
+     * Call once per loop
+     * @param shooterSpeed unused; the caller sets the shooter speed
+     * @param wantShoot true while discs should be fired
+     */
     public void run(double shooterSpeed, boolean wantShoot) {
-        currentTime = System.currentTimeMillis();
-        
         //m_shooter.setShooterSpeed(shooterSpeed);    //Be careful with conflicting calls...
         if (wantShoot) {
-            if (isDiscStaged && isKickerLoaded && isReady) {
-                beginShotTime = System.currentTimeMillis();
-                isDiscStaged = false;
-                isKickerLoaded = false;
-                isReady = false;
+            if (!shooting) {
+                shooting = true;
+                enter(STAGING);     //A disc may not be staged yet; feed one first
+                m_feeder.setKicker(Constants.KICKER_IN);
+                m_feeder.setRoller(1.0);
             }
             shootOneDisc();
-        } else {
-            isDiscStaged = false;
-            isKickerLoaded = false;
-            isReady = false;
+        } else if (shooting) {
+            shooting = false;
+            m_feeder.setKicker(Constants.KICKER_IN);
+            m_feeder.setRoller(0);
         }
-
     }
 
     public void shootOneDisc() {
-        if (currentTime - beginShotTime < feedToRollerDelay && !isDiscStaged) {
-            m_feeder.setKicker(Constants.KICKER_OUT);
-            m_feeder.setRoller(0);
-            isDiscStaged = true;
-        } else if (currentTime - beginShotTime < kickerResetDelay + feedToRollerDelay
-                && currentTime - beginShotTime > feedToRollerDelay
-                && !isKickerLoaded) {
-            m_feeder.setKicker(Constants.KICKER_IN);
-            isKickerLoaded = true;
-        } else if (currentTime - beginShotTime < feedToKickerDelay + feedToRollerDelay + kickerResetDelay 
-                && currentTime - beginShotTime > kickerResetDelay + feedToRollerDelay
-                && !isReady) {
-            m_feeder.setRoller(1.0);
-            isReady = m_shooter.isAtTargetSpeed();
+        long elapsed = Clock.millis() - phaseStart;
+        switch (phase) {
+            case KICKING:
+                if (elapsed >= kickDuration) {
+                    m_feeder.setKicker(Constants.KICKER_IN);
+                    enter(RESETTING);
+                }
+                break;
+            case RESETTING:
+                if (elapsed >= kickerResetDelay) {
+                    m_feeder.setRoller(1.0);
+                    enter(STAGING);
+                }
+                break;
+            case STAGING:
+                if (elapsed >= minFeedTime) {
+                    enter(WAITING);
+                }
+                break;
+            default:
+                if (m_shooter.getReadiness().isReady()) {
+                    m_feeder.setRoller(0);
+                    m_feeder.setKicker(Constants.KICKER_OUT);
+                    enter(KICKING);
+                }
+                break;
         }
+    }
 
+    private void enter(int next) {
+        phase = next;
+        phaseStart = Clock.millis();
     }
 }
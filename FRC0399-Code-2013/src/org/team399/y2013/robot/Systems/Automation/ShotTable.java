@@ -0,0 +1,138 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems.Automation;
+
+import org.team399.y2013.Utilities.InterpolatingTable;
+import org.team399.y2013.Utilities.Parameters;
+import org.team399.y2013.robot.Constants;
+
+/**
+ * Ballistic lookup from vision range to arm angle and shooter RPM, built
+ * from calibration shots. Lookups are cheap enough to make every loop: a
+ * binary search and an interpolation, with no allocation.
+ *
+ * The shots are kept in the Parameters store as SHOT_COUNT and
+ * SHOT_n_RANGE, SHOT_n_ANGLE and SHOT_n_RPM, so they are saved with the
+ * other parameters and loaded at boot. Until there are any, the table is
+ * Constants.SHOT_TABLE. Angles are in Arm.toDegrees() degrees.
+ * @author Jeremy
+ */
+public class ShotTable {
+
+    public static final int ANGLE = 0;
+    public static final int RPM = 1;
+    private volatile InterpolatingTable table;  //Replaced whole, so lookups don't lock
+    private boolean calibrated;
+
+    /**
+     * Loads the table. Call after the Parameters store is loaded
+     */
+    public ShotTable() {
+        int count = (int) Parameters.get("SHOT_COUNT", 0);
+        calibrated = count > 0;
+        if (calibrated) {
+            double[][] rows = new double[count][];
+            for (int i = 0; i < count; i++) {
+                rows[i] = new double[]{
+                    Parameters.get("SHOT_" + i + "_RANGE", 0),
+                    Parameters.get("SHOT_" + i + "_ANGLE", 0),
+                    Parameters.get("SHOT_" + i + "_RPM", 0)
+                };
+            }
+            table = new InterpolatingTable(rows);
+        } else {
+            table = new InterpolatingTable(Constants.SHOT_TABLE);
+        }
+    }
+
+    /**
+     * @param range vision TargetRange
+     * @return arm angle for a shot from that range, Arm.toDegrees() degrees
+     */
+    public double getArmAngle(double range) {
+        return table.get(range, ANGLE);
+    }
+
+    /**
+     * @param range vision TargetRange
+     * @return shooter speed for a shot from that range, RPM
+     */
+    public double getRPM(double range) {
+        return table.get(range, RPM);
+    }
+
+    /**
+     * @return true if the range is covered by the table rather than past one end
+     */
+    public boolean contains(double range) {
+        return table.contains(range);
+    }
+
+    /**
+     * @return true once the table is built from calibration shots, not the placeholders
+     */
+    public synchronized boolean isCalibrated() {
+        return calibrated;
+    }
+
+    /**
+     * Records a calibration shot that scored. The first one replaces the
+     * placeholder table, and one within SHOT_TABLE_MERGE_RANGE of an
+     * earlier shot replaces it. Stored in Parameters; the caller saves them
+     * @param range vision TargetRange
+     * @param angle arm angle, Arm.toDegrees() degrees
+     * @param rpm shooter speed
+     * @return false if the table is full
+     */
+    public synchronized boolean addShot(double range, double angle, double rpm) {
+        InterpolatingTable old = table;
+        int count = calibrated ? old.size() : 0;
+        double[][] rows = new double[count + 1][];
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            if (Math.abs(old.getKey(i) - range) > Constants.SHOT_TABLE_MERGE_RANGE) {
+                rows[n++] = new double[]{old.getKey(i), old.getValue(i, ANGLE), old.getValue(i, RPM)};
+            }
+        }
+        if (n >= Constants.SHOT_TABLE_MAX_SHOTS) {
+            return false;
+        }
+        rows[n++] = new double[]{range, angle, rpm};
+        double[][] trimmed = new double[n][];
+        System.arraycopy(rows, 0, trimmed, 0, n);
+        table = new InterpolatingTable(trimmed);
+        calibrated = true;
+        store();
+        return true;
+    }
+
+    /**
+     * Drops the calibration shots and goes back to the placeholders
+     */
+    public synchronized void clear() {
+        table = new InterpolatingTable(Constants.SHOT_TABLE);
+        calibrated = false;
+        Parameters.set("SHOT_COUNT", 0);
+    }
+
+    private void store() {
+        InterpolatingTable t = table;
+        for (int i = 0; i < t.size(); i++) {
+            Parameters.set("SHOT_" + i + "_RANGE", t.getKey(i));
+            Parameters.set("SHOT_" + i + "_ANGLE", t.getValue(i, ANGLE));
+            Parameters.set("SHOT_" + i + "_RPM", t.getValue(i, RPM));
+        }
+        Parameters.set("SHOT_COUNT", t.size());
+    }
+
+    public String toString() {
+        InterpolatingTable t = table;
+        String s = (calibrated ? "" : "placeholder ") + "shot table, " + t.size() + " shots:";
+        for (int i = 0; i < t.size(); i++) {
+            s += " [" + t.getKey(i) + ", " + t.getValue(i, ANGLE) + " deg, " + t.getValue(i, RPM) + " RPM]";
+        }
+        return s;
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems.Automation;
+
+import org.team399.y2013.Utilities.Clock;
+import org.team399.y2013.Utilities.FeedforwardFit;
+import org.team399.y2013.Utilities.LeastSquaresVelocityEstimator;
+import org.team399.y2013.Utilities.Parameters;
+import org.team399.y2013.Utilities.VelocityEstimator;
+import org.team399.y2013.robot.Constants;
+import org.team399.y2013.robot.Systems.DriveTrain;
+import org.team399.y2013.robot.Systems.Shooter;
+import org.team399.y2013.robot.Systems.ShooterState;
+
+/**
+ * Test mode feedforward characterization of the shooter and each drive
+ * side. Call update() once per loop. The drive must be on blocks.
+ *
+ * Each mechanism gets a slow voltage ramp, which mostly shows kS and kV,
+ * then a voltage step, which shows kA, with a coast down after each. The
+ * voltage, speed and their timestamps are logged, and once the mechanism has
+ * stopped the model is fitted to the log. Each voltage is paired with the
+ * speed measured one velocity estimator latency later. Samples where the
+ * mechanism is stopped are left out, since static friction is not linear,
+ * and so are the coast downs, since the Jaguars coast in neutral and the
+ * motors are out of the circuit. The coast downs only reset for the next test.
+ *
+ * Results go into the Parameters store and straight into the shooter and
+ * drive. Drive gains are the mean of the two sides and are stored for the
+ * gear the drive is in, so shift and run it again for the other gear.
+ * @author Jeremy
+ */
+public class SystemIdentifier {
+
+    private static final int RAMP = 0;
+    private static final int RAMP_COAST = 1;
+    private static final int STEP = 2;
+    private static final int STEP_COAST = 3;
+    private static final int DONE = 4;
+    private static final int MAX_SAMPLES = 2500;    //50s at the main loop rate
+    private static final double STOPPED = 0.02;     //Below this fraction of the top speed seen, stopped
+    private static final int ACCEL_SPAN = 2;        //Samples either side for the acceleration difference
+    private static final double FEET_PER_ROTATION = Constants.WHEEL_DIAMETER * Math.PI / 12.0;
+    private final Shooter shooter;
+    private final DriveTrain drive;
+    private final Mechanism[] mechanisms;
+    private final boolean highGear;
+    private int current = 0;
+    private int phase = DONE;
+    private double phaseStart = 0;
+    private double peakSpeed = 0;
+    //The log for the mechanism under test
+    private double[] commandTimes = new double[MAX_SAMPLES];
+    private double[] volts = new double[MAX_SAMPLES];
+    private double[] speedTimes = new double[MAX_SAMPLES];
+    private double[] speeds = new double[MAX_SAMPLES];
+    private int count = 0;
+
+    public SystemIdentifier(Shooter shooter, DriveTrain drive) {
+        this.shooter = shooter;
+        this.drive = drive;
+        this.highGear = drive.gear == Constants.HIGH_GEAR;
+        mechanisms = new Mechanism[]{
+            new ShooterMechanism(),
+            new DriveSide("Drive left", true),
+            new DriveSide("Drive right", false)
+        };
+    }
+
+    /**
+     * Starts from the first mechanism
+     */
+    public void start() {
+        for (int i = 0; i < mechanisms.length; i++) {
+            mechanisms[i].fit.reset();
+            mechanisms[i].fitted = false;
+        }
+        current = 0;
+        begin(Clock.seconds());
+    }
+
+    /**
+     * Stops everything. The shooter goes back to speed control
+     */
+    public void stop() {
+        phase = DONE;
+        for (int i = 0; i < mechanisms.length; i++) {
+            mechanisms[i].setVoltage(0);
+        }
+        shooter.setTestVoltage(Double.NaN);
+    }
+
+    /**
+     * @return true once every mechanism has been fitted, or stop() was called
+     */
+    public boolean isDone() {
+        return phase == DONE;
+    }
+
+    /**
+     * Call once per loop
+     */
+    public void update() {
+        if (phase == DONE) {
+            return;
+        }
+        Mechanism m = mechanisms[current];
+        double now = Clock.seconds();
+        double t = now - phaseStart;
+        boolean measured = m.measure(now);
+        double speed = Math.abs(m.speed);
+        peakSpeed = Math.max(peakSpeed, speed);
+        boolean stopped = speed <= STOPPED * peakSpeed;
+
+        double v = 0;
+        if (phase == RAMP) {
+            v = Constants.SYSID_RAMP_RATE * t;
+            if (v >= Constants.SYSID_RAMP_VOLTAGE) {
+                enter(RAMP_COAST, now);
+                v = 0;
+            }
+        } else if (phase == STEP) {
+            v = Constants.SYSID_STEP_VOLTAGE;
+            if (t >= Constants.SYSID_STEP_TIME) {
+                enter(STEP_COAST, now);
+                v = 0;
+            }
+        } else if (stopped || t >= Constants.SYSID_COAST_TIME) {
+            if (phase == RAMP_COAST) {
+                enter(STEP, now);
+                v = Constants.SYSID_STEP_VOLTAGE;
+            } else {
+                m.setVoltage(0);
+                fit(m);
+                current++;
+                if (current < mechanisms.length) {
+                    begin(now);
+                } else {
+                    finish();
+                }
+                return;
+            }
+        }
+        m.setVoltage(v);
+        if (measured && count < MAX_SAMPLES) {
+            commandTimes[count] = now;
+            volts[count] = v;
+            speedTimes[count] = m.time;
+            speeds[count] = m.speed;
+            count++;
+        }
+    }
+
+    private void begin(double now) {
+        count = 0;
+        peakSpeed = 0;
+        mechanisms[current].reset();
+        enter(RAMP, now);
+    }
+
+    private void enter(int newPhase, double now) {
+        phase = newPhase;
+        phaseStart = now;
+    }
+
+    /**
+     * Fits the model to the log
+     */
+    private void fit(Mechanism m) {
+        double dot = 0;
+        for (int i = 0; i < count; i++) {
+            dot += volts[i] * speeds[i];
+        }
+        double sign = (dot < 0) ? -1 : 1;     //Sensor reads backwards
+        double latency = m.getLatency();
+        int command = 0;
+        for (int i = ACCEL_SPAN; i < count - ACCEL_SPAN; i++) {
+            double speed = sign * speeds[i];
+            if (Math.abs(speed) <= STOPPED * peakSpeed) {
+                continue;
+            }
+            double dt = speedTimes[i + ACCEL_SPAN] - speedTimes[i - ACCEL_SPAN];
+            if (dt <= 0) {
+                continue;
+            }
+            double accel = sign * (speeds[i + ACCEL_SPAN] - speeds[i - ACCEL_SPAN]) / dt;
+            //Voltage that was applied when this speed was true
+            double appliedAt = speedTimes[i] - latency;
+            while (command + 1 < count && commandTimes[command + 1] <= appliedAt) {
+                command++;
+            }
+            if (volts[command] == 0) {
+                continue;   //The Jaguars coast in neutral, so the motors aren't in the circuit
+            }
+            m.fit.add(volts[command], speed, accel);
+        }
+        m.fitted = m.fit.solve();
+        System.out.println("[SYSID] " + m.name + ": " + (m.fitted ? m.fit.toString()
+                : "fit failed, " + m.fit.getCount() + " samples"));
+    }
+
+    /**
+     * Stores the results and applies them
+     */
+    private void finish() {
+        stop();
+        Mechanism s = mechanisms[0];
+        if (s.fitted) {
+            Parameters.set("SHOOTER_KV", s.fit.getKV());
+            Parameters.set("SHOOTER_KS", s.fit.getKS());
+            Parameters.set("SHOOTER_KA", s.fit.getKA());
+            //The hand tuned feedforward scales made up for the old kV and missing kS
+            Parameters.set("SHOOTER_KT", 1.0);
+            Parameters.set("SHOOTER_KO", 1.0);
+            shooter.setFeedforward(s.fit.getKV(), s.fit.getKS());
+            shooter.setTuningConstants(1.0, 1.0);
+        }
+        Mechanism left = mechanisms[1];
+        Mechanism right = mechanisms[2];
+        if (left.fitted && right.fitted) {
+            String prefix = highGear ? "DRIVE_HIGH" : "DRIVE_LOW";
+            double kV = (left.fit.getKV() + right.fit.getKV()) / 2;
+            double kS = (left.fit.getKS() + right.fit.getKS()) / 2;
+            Parameters.set(prefix + "_KV", kV);
+            Parameters.set(prefix + "_KS", kS);
+            Parameters.set(prefix + "_KA", (left.fit.getKA() + right.fit.getKA()) / 2);
+            drive.setFeedforward(highGear, kV, kS);
+        }
+        System.out.println("[SYSID] Done");
+    }
+
+    /**
+     * One mechanism to characterize
+     */
+    private abstract class Mechanism {
+
+        final String name;
+        final FeedforwardFit fit = new FeedforwardFit();
+        boolean fitted = false;
+        double speed = 0;   //Last measured speed
+        double time = 0;    //Time it was measured, seconds
+
+        Mechanism(String name) {
+            this.name = name;
+        }
+
+        abstract void setVoltage(double volts);
+
+        /**
+         * Updates speed and time
+         * @return true if there is a new measurement
+         */
+        abstract boolean measure(double now);
+
+        /**
+         * @return how far the measured speed lags the true speed, seconds
+         */
+        abstract double getLatency();
+
+        void reset() {
+        }
+    }
+
+    private class ShooterMechanism extends Mechanism {
+
+        private long lastIteration = -1;
+
+        ShooterMechanism() {
+            super("Shooter");
+        }
+
+        void setVoltage(double volts) {
+            shooter.setTestVoltage(volts);
+        }
+
+        boolean measure(double now) {
+            ShooterState state = shooter.getState();
+            if (state.iteration == lastIteration) {
+                return false;
+            }
+            lastIteration = state.iteration;
+            speed = state.velocity;
+            time = state.timestamp;
+            return true;
+        }
+
+        double getLatency() {
+            return shooter.getVelocityEstimator().getLatency();
+        }
+    }
+
+    private class DriveSide extends Mechanism {
+
+        private final boolean left;
+        private final VelocityEstimator estimator = new LeastSquaresVelocityEstimator(5);
+
+        DriveSide(String name, boolean left) {
+            super(name);
+            this.left = left;
+        }
+
+        void setVoltage(double volts) {
+            double output = volts / shooter.getBusVoltage();
+            if (left) {
+                drive.tankDrive(output, 0);
+            } else {
+                drive.tankDrive(0, output);
+            }
+        }
+
+        boolean measure(double now) {
+            double rotations = left ? shooter.getLeftDriveEncoder() : shooter.getRightDriveEncoder();
+            estimator.update(rotations * FEET_PER_ROTATION, now);
+            speed = estimator.getVelocity();
+            time = now;
+            return true;
+        }
+
+        double getLatency() {
+            return estimator.getLatency();
+        }
+
+        void reset() {
+            estimator.reset();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems;
+
+import org.team399.y2013.Utilities.EagleMath;
+
+/**
+ * Bang-bang with feed forward. Full power below the setpoint, the feed
+ * forward scaled by kT above it. Below 2000 RPM full power is cut to 30% so
+ * the wheel does not overshoot. The original shooter control law
+ * @author Jeremy
+ */
+public class BangBangFlywheelController implements FlywheelController {
+
+    private final double maxSpeed = 1;
+    private double kV;
+    private double kS = 0;
+    private volatile double kT;
+    private final FlywheelStats stats = new FlywheelStats();
+
+    /**
+     * Constructor
+     * @param kV wheel RPM per volt
+     * @param kT feed forward scale above the setpoint
+     */
+    public BangBangFlywheelController(double kV, double kT) {
+        this.kV = kV;
+        this.kT = kT;
+    }
+
+    public void setKT(double kT) {
+        this.kT = kT;
+    }
+
+    public void setFeedforward(double kV, double kS) {
+        this.kV = kV;
+        this.kS = kS;
+    }
+
+    public double calculate(double setpoint, double velocity, double busVoltage, double dt) {
+        double error = velocity - setpoint;
+        double feedFwd = (Math.abs(setpoint) / kV + kS) / 12.0;
+
+        //If the shooter is spinning slower than the setpoint, then apply full
+        // power. Else, go with the feed forward amount.
+        double speedScalar = 1;
+        if (Math.abs(setpoint) < 2000) {
+            speedScalar = .3;
+        }
+
+        if (EagleMath.signum(setpoint) > 0) {
+            return (error < 0) ? maxSpeed * speedScalar : feedFwd * kT;
+        } else {
+            return (error > 0) ? -maxSpeed * speedScalar : -feedFwd * kT;
+        }
+    }
+
+    public void reset() {
+    }
+
+    public String getName() {
+        return "Bang-bang";
+    }
+
+    public FlywheelStats getStats() {
+        return stats;
+    }
+}
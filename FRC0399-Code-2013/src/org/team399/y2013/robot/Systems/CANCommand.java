@@ -0,0 +1,95 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems;
+
+import org.team399.y2013.robot.Systems.HAL.CanMotorController;
+
+/**
+ * One Jaguar's command slot in a CANCommandBuffer. set() only records the
+ * value; it is written to the Jaguar when the buffer is flushed.
+ * @author Jeremy
+ */
+public class CANCommand {
+
+    private CanMotorController jag = null;
+    private final byte syncGroup;
+    private double pending = 0;
+    private boolean hasPending = false;
+    private double lastSent = 0;
+    private boolean sent = false;   //False until a value reaches this Jaguar object
+    private long lastSendTime = 0;
+    private boolean failed = false;
+
+    CANCommand(byte syncGroup) {
+        this.syncGroup = syncGroup;
+    }
+
+    /**
+     * Records a new output value to be sent on the next flush
+     * @param value the setpoint, in the Jaguar's current control mode
+     */
+    public void set(double value) {
+        pending = value;
+        hasPending = true;
+    }
+
+    /**
+     * Sets the Jaguar to send to. Call this whenever the Jaguar is
+     * (re)initialized; the next value is always sent to a new Jaguar
+     * @param jag the Jaguar, or null to stop sending
+     */
+    public void setDevice(CanMotorController jag) {
+        this.jag = jag;
+        sent = false;
+    }
+
+    /**
+     * @return the last value written to the Jaguar
+     */
+    public double getLastSent() {
+        return lastSent;
+    }
+
+    /**
+     * Returns and clears the failure flag
+     * @return true if a write failed since the last call
+     */
+    public boolean takeFailure() {
+        boolean f = failed;
+        failed = false;
+        return f;
+    }
+
+    byte getSyncGroup() {
+        return syncGroup;
+    }
+
+    /**
+     * Writes the pending value if it is different enough from the last one
+     * sent, or if the last send is older than the refresh period
+     * @return 1 if a value was written, 0 if it was suppressed, -1 if there was nothing to do
+     */
+    int flush(double epsilon, long refreshPeriod, long now) {
+        if (!hasPending || jag == null) {
+            return -1;
+        }
+        hasPending = false;
+        if (sent && Math.abs(pending - lastSent) <= epsilon
+                && now - lastSendTime < refreshPeriod) {
+            return 0;
+        }
+        try {
+            jag.set(pending, syncGroup);
+            lastSent = pending;
+            lastSendTime = now;
+            sent = true;
+            return 1;
+        } catch (Throwable t) {
+            failed = true;
+            sent = false;
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems;
+
+import org.team399.y2013.Utilities.Clock;
+import org.team399.y2013.robot.Constants;
+import org.team399.y2013.robot.Systems.HAL.RobotHardware;
+
+/**
+ * Per-cycle CAN command buffer. A control loop records its Jaguar outputs
+ * through CANCommands during the cycle and calls flush() once at the end.
+ * Values within epsilon of the last value sent are dropped, unless the last
+ * send is older than the refresh period, and each sync group touched by the
+ * flush is updated once. Each buffer belongs to one thread.
+ * @author Jeremy
+ */
+public class CANCommandBuffer {
+
+    private final RobotHardware hardware;
+    private CANCommand[] commands = new CANCommand[0];
+    private double epsilon;
+    private long refreshPeriod;
+    private long sentCount = 0;
+    private long suppressedCount = 0;
+    private boolean syncFailed = false;
+
+    /**
+     * Constructor using the default epsilon and refresh period from Constants
+     * @param hardware the hardware sync groups are updated through
+     */
+    public CANCommandBuffer(RobotHardware hardware) {
+        this(hardware, Constants.CAN_COMMAND_EPSILON, Constants.CAN_COMMAND_REFRESH);
+    }
+
+    /**
+     * Constructor
+     * @param hardware the hardware sync groups are updated through
+     * @param epsilon changes smaller than this are not sent
+     * @param refreshPeriod unchanged values are re-sent after this many ms,
+     * so a Jaguar that browned out gets its setpoint back
+     */
+    public CANCommandBuffer(RobotHardware hardware, double epsilon, long refreshPeriod) {
+        this.hardware = hardware;
+        this.epsilon = epsilon;
+        this.refreshPeriod = refreshPeriod;
+    }
+
+    /**
+     * Adds a command slot to the buffer
+     * @param syncGroup sync group the Jaguar's output is latched with, 0 for none
+     * @return the command slot
+     */
+    public CANCommand register(byte syncGroup) {
+        CANCommand command = new CANCommand(syncGroup);
+        CANCommand[] newCommands = new CANCommand[commands.length + 1];
+        System.arraycopy(commands, 0, newCommands, 0, commands.length);
+        newCommands[commands.length] = command;
+        commands = newCommands;
+        return command;
+    }
+
+    /**
+     * Writes all changed commands, then updates the sync groups that were
+     * written to. Call once at the end of the cycle
+     */
+    public void flush() {
+        long now = Clock.millis();
+        int syncGroups = 0;
+        for (int i = 0; i < commands.length; i++) {
+            int result = commands[i].flush(epsilon, refreshPeriod, now);
+            if (result > 0) {
+                sentCount++;
+                syncGroups |= commands[i].getSyncGroup();
+            } else if (result == 0) {
+                suppressedCount++;
+            }
+        }
+
+        if (syncGroups != 0) {
+            try {
+                hardware.updateSyncGroup((byte) syncGroups);
+            } catch (Throwable e) {
+                syncFailed = true;
+            }
+        }
+    }
+
+    /**
+     * Returns and clears the sync group failure flag
+     * @return true if a sync group update failed since the last call
+     */
+    public boolean takeSyncFailure() {
+        boolean f = syncFailed;
+        syncFailed = false;
+        return f;
+    }
+
+    /**
+     * @return the number of values written to Jaguars
+     */
+    public long getSentCount() {
+        return sentCount;
+    }
+
+    /**
+     * @return the number of values dropped because they had not changed
+     */
+    public long getSuppressedCount() {
+        return suppressedCount;
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems;
+
+import org.team399.y2013.Utilities.Clock;
+import org.team399.y2013.robot.Systems.HAL.CanMotorController;
+
+/**
+ * One cached CAN motor controller status value, refreshed by the CANStatusPoller at its
+ * own rate. Readers get the last value and the time it was sampled without
+ * touching the CAN bus. The poller thread is the only writer; readers use a
+ * sequence counter to retry if they catch an update half written.
+ * @author Jeremy
+ */
+public class CANSignal {
+
+    public static final int POSITION = 0;
+    public static final int OUTPUT_CURRENT = 1;
+    public static final int BUS_VOLTAGE = 2;
+    public static final int OUTPUT_VOLTAGE = 3;
+    public static final int TEMPERATURE = 4;
+    private static final int STALE_PERIODS = 5; //Periods without an update before the value is stale
+    private final int canId;
+    private final int type;
+    private volatile long period;   //Refresh period, ms
+    private long nextPoll = 0;
+    private volatile int sequence = 0;  //Odd while an update is being written
+    private volatile long updates = 0;
+    private volatile int errors = 0;
+    private volatile long lastUpdate = 0;   //Clock time of the last good read, ms
+    private double value = 0;
+    private double timestamp = 0;   //Clock time the value was sampled, seconds
+
+    CANSignal(int canId, int type, double rate) {
+        this.canId = canId;
+        this.type = type;
+        setRate(rate);
+    }
+
+    /**
+     * Changes the refresh rate. Takes effect after the next poll
+     * @param rate refresh rate in Hz. Capped by Constants.CAN_POLL_RATE
+     */
+    public void setRate(double rate) {
+        long p = (long) (1000.0 / rate);
+        this.period = (p < 1) ? 1 : p;
+    }
+
+    /**
+     * Reads the signal from the controller if it is due. Only called by the poller
+     * @return true if a CAN transaction was made
+     */
+    boolean poll(CanMotorController jag, long now) {
+        if (now < nextPoll) {
+            return false;
+        }
+        nextPoll = now + period;
+        if (jag == null) {
+            return false;
+        }
+        try {
+            double before = Clock.seconds();
+            double reading = read(jag);
+            double after = Clock.seconds();
+            sequence++;
+            value = reading;
+            timestamp = (before + after) / 2;   //Best guess of when the Jaguar sampled it
+            sequence++;
+            updates++;
+            lastUpdate = now;
+        } catch (Throwable t) {
+            errors++;
+        }
+        return true;
+    }
+
+    private double read(CanMotorController jag) throws Exception {
+        switch (type) {
+            case POSITION:
+                return jag.getPosition();
+            case OUTPUT_CURRENT:
+                return jag.getOutputCurrent();
+            case BUS_VOLTAGE:
+                return jag.getBusVoltage();
+            case OUTPUT_VOLTAGE:
+                return jag.getOutputVoltage();
+            case TEMPERATURE:
+                return jag.getTemperature();
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * @return the last value read
+     */
+    public double getValue() {
+        double v;
+        int seq;
+        do {
+            seq = sequence;
+            v = value;
+        } while ((seq & 1) != 0 || seq != sequence);
+        return v;
+    }
+
+    /**
+     * Reads the value and its timestamp as a consistent pair
+     * @param sample array of at least 2 elements. Receives {value, timestamp in seconds}
+     * @return the update count the sample belongs to. Unchanged between calls means no new data
+     */
+    public long read(double[] sample) {
+        int seq;
+        long count;
+        do {
+            seq = sequence;
+            sample[0] = value;
+            sample[1] = timestamp;
+            count = updates;
+        } while ((seq & 1) != 0 || seq != sequence);
+        return count;
+    }
+
+    /**
+     * @return true once at least one value has been read
+     */
+    public boolean hasValue() {
+        return updates > 0;
+    }
+
+    /**
+     * @return true if there is a value and it was refreshed recently
+     */
+    public boolean isValid() {
+        return hasValue() && !isStale();
+    }
+
+    /**
+     * @return true if a value was read once but has not been refreshed for several periods
+     */
+    public boolean isStale() {
+        return hasValue()
+                && Clock.millis() - lastUpdate > STALE_PERIODS * period;
+    }
+
+    /**
+     * @return the number of failed reads
+     */
+    public int getErrorCount() {
+        return errors;
+    }
+
+    public int getCanId() {
+        return canId;
+    }
+
+    public int getType() {
+        return type;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems;
+
+import org.team399.y2013.Utilities.Clock;
+import org.team399.y2013.Utilities.PeriodicExecutor;
+import org.team399.y2013.robot.Systems.HAL.CanMotorController;
+import org.team399.y2013.robot.Constants;
+
+/**
+ * Central CAN status poller. Subsystems register the Jaguar status values
+ * they need, each with its own refresh rate, and read the cached CANSignal
+ * instead of making a blocking CAN transaction on every call. All status
+ * reads happen on this thread, so neither control loop waits on the bus for
+ * them.
+ * @author Jeremy
+ */
+public class CANStatusPoller implements Runnable {
+
+    private static final int MAX_CAN_ID = 63;
+    private static CANStatusPoller instance = null;
+    private volatile CanMotorController[] devices = new CanMotorController[MAX_CAN_ID + 1];  //Copied on set, so the poll loop never locks
+    private volatile CANSignal[] signals = new CANSignal[0];     //Copied on register, so the poll loop never locks
+    private PeriodicExecutor executor = new PeriodicExecutor(this, Constants.CAN_POLL_RATE, "CAN poller");
+    private volatile long transactions = 0;
+
+    private CANStatusPoller() {
+    }
+
+    public static CANStatusPoller getInstance() {
+        if (instance == null) {
+            instance = new CANStatusPoller();
+        }
+        return instance;
+    }
+
+    /**
+     * Registers a status value to be polled
+     * @param canId CAN ID of the Jaguar
+     * @param type one of the CANSignal type constants
+     * @param rate refresh rate in Hz. Capped by Constants.CAN_POLL_RATE
+     * @return the signal to read the cached value from
+     */
+    public synchronized CANSignal register(int canId, int type, double rate) {
+        CANSignal signal = new CANSignal(canId, type, rate);
+        CANSignal[] newSignals = new CANSignal[signals.length + 1];
+        System.arraycopy(signals, 0, newSignals, 0, signals.length);
+        newSignals[signals.length] = signal;
+        signals = newSignals;
+        return signal;
+    }
+
+    /**
+     * Sets the controller to poll for a CAN ID. Call this whenever a
+     * Jaguar is (re)initialized. null pauses polling of that ID
+     * @param canId CAN ID of the Jaguar
+     * @param jag the Jaguar, or null
+     */
+    public synchronized void setDevice(int canId, CanMotorController jag) {
+        if (canId >= 0 && canId <= MAX_CAN_ID) {
+            CanMotorController[] newDevices = new CanMotorController[devices.length];
+            System.arraycopy(devices, 0, newDevices, 0, devices.length);
+            newDevices[canId] = jag;
+            devices = newDevices;
+        }
+    }
+
+    /**
+     * Start polling
+     * @return flag indicating a successful start
+     */
+    public boolean start() {
+        return executor.start();
+    }
+
+    public void stop() {
+        executor.stop();
+    }
+
+    /**
+     * Polls every signal that is due. Also used once at boot to fill the cache
+     */
+    public void pollAll() {
+        CANSignal[] current = signals;
+        CanMotorController[] jags = devices;
+        long now = Clock.millis();
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].poll(jags[current[i].getCanId()], now)) {
+                transactions++;
+            }
+        }
+    }
+
+    /**
+     * Thread run method. don't call this in user code
+     */
+    public void run() {
+        pollAll();
+    }
+
+    /**
+     * @return the number of status transactions made, for bus load monitoring
+     */
+    public long getTransactionCount() {
+        return transactions;
+    }
+
+    public PeriodicExecutor getExecutor() {
+        return executor;
+    }
+}
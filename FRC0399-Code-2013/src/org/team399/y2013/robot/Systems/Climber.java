@@ -4,20 +4,21 @@
  */
 package org.team399.y2013.robot.Systems;
 
-import edu.wpi.first.wpilibj.DigitalInput;
-import edu.wpi.first.wpilibj.Talon;
+import org.team399.y2013.robot.Systems.HAL.BinarySensor;
+import org.team399.y2013.robot.Systems.HAL.MotorController;
+import org.team399.y2013.robot.Systems.HAL.RobotHardware;
 
 /**
  *
  * @author Jeremy
  */
 public class Climber {
-    private Talon winch;
-    private DigitalInput limit;
+    private MotorController winch;
+    private BinarySensor limit;
     
-    public Climber(int port, int limitSwitch) {
-        winch = new Talon(port);
-        limit = new DigitalInput(limitSwitch);
+    public Climber(RobotHardware hardware, int port, int limitSwitch) {
+        winch = hardware.getTalon(port);
+        limit = hardware.getDigitalInput(limitSwitch);
     }
     
     public void set(double value) {
@@ -0,0 +1,165 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems;
+
+import org.team399.y2013.Utilities.Clock;
+import org.team399.y2013.Utilities.PeriodicExecutor;
+import org.team399.y2013.robot.Constants;
+
+/**
+ * Brings up the CAN motor controllers off the main and control threads.
+ * Subsystems register their devices in their constructors and get a
+ * DeviceFuture back, so nothing blocks in robotInit and a missing Jaguar
+ * only takes out the subsystem that uses it.
+ *
+ * Every device that is due gets an attempt on each pass, so they all come
+ * up together rather than one after another. A failed device waits
+ * CAN_BRINGUP_BACKOFF before its next attempt, doubling up to
+ * CAN_BRINGUP_MAX_BACKOFF, which keeps an unplugged Jaguar from flooding
+ * the bus with timeouts. The thread keeps running after boot to bring back
+ * devices handed to retry() after a brownout.
+ * @author Jeremy
+ */
+public class DeviceBringup implements Runnable {
+
+    private static DeviceBringup instance = null;
+    private DeviceFuture[] devices = new DeviceFuture[0];   //Copied on register, so the bring-up loop never locks
+    private PeriodicExecutor executor = new PeriodicExecutor(this, Constants.CAN_BRINGUP_RATE, "CAN bring-up");
+    private final long bootTime = Clock.millis();
+    private volatile long completeTime = -1;
+    private volatile long transactions = 0;
+
+    private DeviceBringup() {
+        executor.setPriority(Thread.MIN_PRIORITY);
+    }
+
+    public static DeviceBringup getInstance() {
+        if (instance == null) {
+            instance = new DeviceBringup();
+        }
+        return instance;
+    }
+
+    /**
+     * Registers a device to bring up. Doesn't touch the CAN bus
+     * @param name name used in the boot report
+     * @param canId CAN ID of the device
+     * @param initializer called on the bring-up thread for each attempt
+     * @return the future the configured device is handed over through
+     */
+    public synchronized DeviceFuture register(String name, int canId, DeviceInitializer initializer) {
+        DeviceFuture device = new DeviceFuture(name, canId, initializer);
+        DeviceFuture[] newDevices = new DeviceFuture[devices.length + 1];
+        System.arraycopy(devices, 0, newDevices, 0, devices.length);
+        newDevices[devices.length] = device;
+        devices = newDevices;
+        return device;
+    }
+
+    /**
+     * Hands a device back to be reconfigured, after a CAN error or a power
+     * cycle. It stays not ready until the bring-up thread has configured it
+     * @param device the device's future
+     */
+    public void retry(DeviceFuture device) {
+        device.reset(Clock.millis());
+    }
+
+    /**
+     * Start bringing up devices
+     * @return flag indicating a successful start
+     */
+    public boolean start() {
+        return executor.start();
+    }
+
+    public void stop() {
+        executor.stop();
+    }
+
+    /**
+     * Makes an attempt on every device that is due. Also used directly by
+     * the simulations
+     */
+    public void attemptDue() {
+        DeviceFuture[] current = devices;
+        long now = Clock.millis();
+        boolean complete = true;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].attempt(now)) {
+                transactions++;
+            }
+            complete &= current[i].isReady();
+        }
+        if (complete && completeTime < 0 && current.length > 0) {
+            completeTime = Clock.millis();
+            printReport();
+        }
+    }
+
+    /**
+     * Thread run method. don't call this in user code
+     */
+    public void run() {
+        attemptDue();
+    }
+
+    /**
+     * @return true once every registered device has been ready at least once
+     */
+    public boolean isComplete() {
+        return completeTime >= 0;
+    }
+
+    /**
+     * @return time from boot until every device was ready, ms, or -1 if some never have been
+     */
+    public long getBootTime() {
+        return (completeTime < 0) ? -1 : completeTime - bootTime;
+    }
+
+    /**
+     * @return the number of bring-up attempts made, for bus load monitoring
+     */
+    public long getTransactionCount() {
+        return transactions;
+    }
+
+    public DeviceFuture[] getDevices() {
+        return devices;
+    }
+
+    public PeriodicExecutor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Prints when each device came up, and why the ones that haven't are
+     * still down
+     */
+    public void printReport() {
+        DeviceFuture[] current = devices;
+        long now = Clock.millis();
+        if (completeTime >= 0) {
+            System.out.println("[BRINGUP] All " + current.length + " devices ready "
+                    + getBootTime() + " ms after boot");
+        } else {
+            System.out.println("[BRINGUP] Waiting on devices, " + (now - bootTime) + " ms after boot");
+        }
+        for (int i = 0; i < current.length; i++) {
+            DeviceFuture d = current[i];
+            String line = "  " + d.getName() + " (CAN " + d.getCanId() + "): ";
+            if (d.isReady()) {
+                line += "ready at " + (d.getReadyTime() - bootTime) + " ms";
+            } else {
+                line += "NOT READY, next try in " + d.getRetryDelay(now) + " ms";
+                if (d.getLastError() != null) {
+                    line += ", last error " + d.getLastError();
+                }
+            }
+            System.out.println(line + ", " + d.getAttempts() + " attempts");
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems;
+
+import org.team399.y2013.Utilities.Clock;
+import org.team399.y2013.robot.Constants;
+import org.team399.y2013.robot.Systems.HAL.CanMotorController;
+
+/**
+ * The result of bringing up one CAN device. The DeviceBringup thread
+ * completes it; subsystems poll isReady() from their loops and run degraded
+ * until it is, or block on waitFor(). A device that faults later is handed
+ * back with DeviceBringup.retry() and is not ready again until it has been
+ * reconfigured.
+ * @author Jeremy
+ */
+public class DeviceFuture {
+
+    private final String name;
+    private final int canId;
+    private final DeviceInitializer initializer;
+    private final Object lock = new Object();
+    private volatile CanMotorController device = null;
+    private volatile boolean ready = false;
+    private CanMotorController candidate = null;    //Controller object kept between attempts
+    private volatile int attempts = 0;
+    private volatile long readyTime = -1;       //Clock time it last became ready, ms
+    private long nextAttempt = 0;
+    private long backoff = Constants.CAN_BRINGUP_BACKOFF;
+    private int requests = 0;       //Bumped by every retry, so an attempt already under way doesn't complete it
+    private volatile String lastError = null;
+
+    DeviceFuture(String name, int canId, DeviceInitializer initializer) {
+        this.name = name;
+        this.canId = canId;
+        this.initializer = initializer;
+    }
+
+    /**
+     * Makes an attempt if one is due. Only called by the bring-up thread
+     * @return true if an attempt was made
+     */
+    boolean attempt(long now) {
+        CanMotorController c;
+        int request;
+        synchronized (lock) {
+            if (ready || now < nextAttempt) {
+                return false;
+            }
+            c = candidate;
+            request = requests;
+        }
+        attempts++;
+        try {
+            c = initializer.initialize(canId, c);
+            synchronized (lock) {
+                candidate = c;
+                if (request == requests) {
+                    device = c;
+                    ready = true;
+                    readyTime = now;
+                    backoff = Constants.CAN_BRINGUP_BACKOFF;
+                    lock.notifyAll();
+                }
+            }
+        } catch (Throwable t) {
+            synchronized (lock) {
+                lastError = t.toString();
+                nextAttempt = now + backoff;
+                backoff = Math.min(backoff * 2, Constants.CAN_BRINGUP_MAX_BACKOFF);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Marks the device as needing bring-up again. The next attempt is made
+     * right away; repeated failures back off as at boot. A device that is
+     * not ready is already queued and keeps its backoff
+     */
+    void reset(long now) {
+        synchronized (lock) {
+            requests++;     //An attempt under way started before the fault
+            if (ready) {
+                ready = false;
+                device = null;
+                nextAttempt = now;
+            }
+        }
+    }
+
+    /**
+     * @return true once the device is configured
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return the configured controller, or null if it is not ready
+     */
+    public CanMotorController get() {
+        return device;
+    }
+
+    /**
+     * Blocks until the device is ready
+     * @param timeout longest wait, ms
+     * @return the configured controller, or null on timeout
+     */
+    public CanMotorController waitFor(long timeout) {
+        long end = Clock.millis() + timeout;
+        synchronized (lock) {
+            while (!ready) {
+                long remaining = end - Clock.millis();
+                if (remaining <= 0) {
+                    return null;
+                }
+                try {
+                    lock.wait(remaining);
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+            return device;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getCanId() {
+        return canId;
+    }
+
+    /**
+     * @return the number of bring-up attempts made, including failures
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * @return Clock time it last became ready, ms, or -1 if it never has
+     */
+    public long getReadyTime() {
+        return readyTime;
+    }
+
+    /**
+     * @return the error from the last failed attempt, or null
+     */
+    public String getLastError() {
+        return lastError;
+    }
+
+    /**
+     * @return time until the next attempt, ms. 0 if it is due or ready
+     */
+    long getRetryDelay(long now) {
+        synchronized (lock) {
+            return (ready || nextAttempt < now) ? 0 : nextAttempt - now;
+        }
+    }
+}
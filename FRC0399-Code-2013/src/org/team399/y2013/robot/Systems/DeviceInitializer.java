@@ -0,0 +1,26 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems;
+
+import org.team399.y2013.robot.Systems.HAL.CanMotorController;
+import org.team399.y2013.robot.Systems.HAL.DeviceException;
+
+/**
+ * Opens and configures one CAN motor controller. Called by the DeviceBringup
+ * thread, once per attempt.
+ * @author Jeremy
+ */
+public interface DeviceInitializer {
+
+    /**
+     * Makes one attempt to bring up a device. Must not retry or wait; the
+     * bring-up service schedules the next attempt
+     * @param canId CAN ID of the device
+     * @param device the controller from an earlier attempt, or null the first time
+     * @return the configured controller
+     * @throws DeviceException if the device did not respond
+     */
+    CanMotorController initialize(int canId, CanMotorController device) throws DeviceException;
+}
@@ -5,10 +5,17 @@
 package org.team399.y2013.robot.Systems;
 
 import com.sun.squawk.util.MathUtils;
-import edu.wpi.first.wpilibj.*;
+import org.team399.y2013.Utilities.Clock;
 import org.team399.y2013.Utilities.EagleMath;
 import org.team399.y2013.Utilities.Integrator;
+import org.team399.y2013.Utilities.LogSite;
+import org.team399.y2013.Utilities.Logger;
+import org.team399.y2013.Utilities.Parameters;
 import org.team399.y2013.robot.Constants;
+import org.team399.y2013.robot.Systems.HAL.AngleSensor;
+import org.team399.y2013.robot.Systems.HAL.BinaryActuator;
+import org.team399.y2013.robot.Systems.HAL.MotorController;
+import org.team399.y2013.robot.Systems.HAL.RobotHardware;
 
 /**
  *
@@ -16,29 +23,38 @@ import org.team399.y2013.robot.Constants;
  */
 public class DriveTrain {
 
-    private Talon m_leftA, m_leftB, m_rightA, m_rightB;
-    private Gyro yaw = new Gyro(1);
-    private Gyro pitch = null;// new Gyro(3);
-    private Solenoid shifter = new Solenoid(Constants.SHIFTER_PORT);
+    private MotorController m_leftA, m_leftB, m_rightA, m_rightB;
+    private AngleSensor yaw;
+    private AngleSensor pitch = null;// hardware.getGyro(3);
+    private BinaryActuator shifter;
     private final double WHEEL_DIA = Constants.WHEEL_DIAMETER;
     public boolean gear = true;
     
     
     public double leftOutput = 0;
     public double rightOutput = 0;
+    //Feedforward per gear, feet/sec per volt and volts to overcome friction.
+    //Fitted by the SystemIdentifier if it has been run
+    private double highKV = Parameters.get("DRIVE_HIGH_KV", Constants.DRIVE_HIGH_MAX_SPEED_FPS / 12.0);
+    private double highKS = Parameters.get("DRIVE_HIGH_KS", 0);
+    private double lowKV = Parameters.get("DRIVE_LOW_KV", Constants.DRIVE_LOW_MAX_SPEED_FPS / 12.0);
+    private double lowKS = Parameters.get("DRIVE_LOW_KS", 0);
 
     /**
      * Constructor
+     * @param hardware the hardware to build the drivetrain from
      * @param leftA PWM ports for motor controllers
      * @param leftB
      * @param rightA
      * @param rightB 
      */
-    public DriveTrain(int leftA, int leftB, int rightA, int rightB) {
-        m_leftA = new Talon(leftA);
-        m_leftB = new Talon(leftB);
-        m_rightA = new Talon(rightA);
-        m_rightB = new Talon(rightB);
+    public DriveTrain(RobotHardware hardware, int leftA, int leftB, int rightA, int rightB) {
+        m_leftA = hardware.getTalon(leftA);
+        m_leftB = hardware.getTalon(leftB);
+        m_rightA = hardware.getTalon(rightA);
+        m_rightB = hardware.getTalon(rightB);
+        yaw = hardware.getGyro(1);
+        shifter = hardware.getSolenoid(Constants.SHIFTER_PORT);
         yaw.reset();
         //pitch.reset();
     }
@@ -190,27 +206,44 @@ public class DriveTrain {
      * @param right right speed in feet/sec
      */
     public void driveSpeed(double left, double right) {
-        double leftOut = 0;
-        double rightOut = 0;
-        
-        
+        double kV, kS;
         if(gear == Constants.HIGH_GEAR) {
-            left = EagleMath.cap(left, -Constants.DRIVE_HIGH_MAX_SPEED_FPS, 
-                Constants.DRIVE_HIGH_MAX_SPEED_FPS);
-            right = EagleMath.cap(right, -Constants.DRIVE_HIGH_MAX_SPEED_FPS, 
-                Constants.DRIVE_HIGH_MAX_SPEED_FPS);
-            leftOut = left/Constants.DRIVE_HIGH_MAX_SPEED_FPS;
-            rightOut = right/Constants.DRIVE_HIGH_MAX_SPEED_FPS;
+            kV = highKV;
+            kS = highKS;
         } else {
-            left = EagleMath.cap(left, -Constants.DRIVE_LOW_MAX_SPEED_FPS, 
-                Constants.DRIVE_LOW_MAX_SPEED_FPS);
-            right = EagleMath.cap(right, -Constants.DRIVE_LOW_MAX_SPEED_FPS, 
-                Constants.DRIVE_LOW_MAX_SPEED_FPS);
-            leftOut  = left/Constants.DRIVE_LOW_MAX_SPEED_FPS;
-            rightOut = right/Constants.DRIVE_LOW_MAX_SPEED_FPS;
+            kV = lowKV;
+            kS = lowKS;
+        }
+        tankDrive(speedToOutput(left, kV, kS), speedToOutput(right, kV, kS));
+    }
+
+    /**
+     * Feedforward from a speed to an output, assuming a 12V battery
+     * @param speed speed in feet/sec. Capped at the top speed
+     * @return output, -1 to 1
+     */
+    private double speedToOutput(double speed, double kV, double kS) {
+        if (speed == 0) {
+            return 0;
+        }
+        double volts = Math.abs(speed) / kV + kS;
+        return EagleMath.cap(volts / 12.0, 0, 1.0) * EagleMath.signum(speed);
+    }
+
+    /**
+     * Replaces the feedforward driveSpeed() uses for a gear
+     * @param highGear true for high gear
+     * @param kV feet/sec per volt
+     * @param kS volts to overcome friction
+     */
+    public void setFeedforward(boolean highGear, double kV, double kS) {
+        if (highGear) {
+            highKV = kV;
+            highKS = kS;
+        } else {
+            lowKV = kV;
+            lowKS = kS;
         }
-        
-        tankDrive(leftOut, rightOut);
     }
 
     public double twoStickToTurning(double left, double right) {
@@ -260,7 +293,7 @@ public class DriveTrain {
         if(state) {
             setShifter(Constants.LOW_GEAR);
         } else {
-            if(System.currentTimeMillis() - startShift > MIN_SHIFT) {
+            if(Clock.millis() - startShift > MIN_SHIFT) {
                 setShifter(Constants.HIGH_GEAR);
             }
         }
@@ -317,10 +350,12 @@ public class DriveTrain {
 
         tankDrive(distanceControl(errorL, speed), distanceControl(errorR, speed));
 
-        System.out.println("Drive error L: " + errorL);
-        System.out.println("Drive error R: " + errorR);
+        driveErrorLeftLog.log("Drive error L: ", errorL);
+        driveErrorRightLog.log("Drive error R: ", errorR);
         return errorL == 0 && errorR == 0;
     }
+    private static final LogSite driveErrorLeftLog = new LogSite("", Logger.DEBUG, 250);
+    private static final LogSite driveErrorRightLog = new LogSite("", Logger.DEBUG, 250);
     final double distAttenuation = Constants.DIST_KT;
 
     /**
@@ -4,24 +4,27 @@
  */
 package org.team399.y2013.robot.Systems;
 
-import edu.wpi.first.wpilibj.DoubleSolenoid;
-import edu.wpi.first.wpilibj.Solenoid;
-import edu.wpi.first.wpilibj.Victor;
+import org.team399.y2013.Utilities.Clock;
 import org.team399.y2013.robot.Constants;
+import org.team399.y2013.robot.Systems.HAL.BinaryActuator;
+import org.team399.y2013.robot.Systems.HAL.MotorController;
+import org.team399.y2013.robot.Systems.HAL.RobotHardware;
 
 /**
  *
  * @author Jeremy
  */
 public class Feeder {
-    private Solenoid kicker;
-    private Victor beltMotor;
-    private DoubleSolenoid flap;
+    private BinaryActuator kicker;
+    private MotorController beltMotor;
+    private BinaryActuator flap;
+    private boolean kickerState = Constants.KICKER_IN;
+    private KickListener[] kickListeners = new KickListener[0];    //Copied on add, so firing never locks
     
-    public Feeder(int motor, int solenoid, int flapA, int flapB) {
-        beltMotor = new Victor(motor);
-        kicker = new Solenoid(solenoid);
-        flap = new DoubleSolenoid(flapA,flapB);
+    public Feeder(RobotHardware hardware, int motor, int solenoid, int flapA, int flapB) {
+        beltMotor = hardware.getVictor(motor);
+        kicker = hardware.getSolenoid(solenoid);
+        flap = hardware.getDoubleSolenoid(flapA,flapB);
     }
     
     public void setRoller(double in) {
@@ -30,6 +33,25 @@ public class Feeder {
     
     public void setKicker(boolean state) {
         kicker.set(state);
+        if (state == Constants.KICKER_OUT && kickerState != Constants.KICKER_OUT) {
+            long now = Clock.millis();
+            KickListener[] current = kickListeners;
+            for (int i = 0; i < current.length; i++) {
+                current[i].kickerFired(now);
+            }
+        }
+        kickerState = state;
+    }
+
+    /**
+     * Subscribes to kicks. Listeners are told each time the kicker goes out
+     * @param listener called on the thread that fires the kicker
+     */
+    public synchronized void addKickListener(KickListener listener) {
+        KickListener[] newListeners = new KickListener[kickListeners.length + 1];
+        System.arraycopy(kickListeners, 0, newListeners, 0, kickListeners.length);
+        newListeners[kickListeners.length] = listener;
+        kickListeners = newListeners;
     }
     
     long kickStart = 0;
@@ -38,10 +60,10 @@ public class Feeder {
     
     public void setKickerTimed(boolean state) {
         if(state) {
-            kickStart = System.currentTimeMillis();
+            kickStart = Clock.millis();
             setKicker(Constants.KICKER_OUT);
         } else {
-            if(System.currentTimeMillis() - kickStart > MIN_KICK_TIME) {
+            if(Clock.millis() - kickStart > MIN_KICK_TIME) {
                 setKicker(Constants.KICKER_IN);
             }
         }
@@ -50,7 +72,7 @@ public class Feeder {
     }
     
     public void setFlapper(boolean state) {
-        flap.set(state ? DoubleSolenoid.Value.kForward : DoubleSolenoid.Value.kReverse);
+        flap.set(state);
     }
     
 }
@@ -0,0 +1,47 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems;
+
+/**
+ * A shooter wheel control law. Called once per shooter loop iteration, on
+ * the shooter thread only. The shooter handles the encoder failsafe and the
+ * stop deadband itself, so a controller only sees a working encoder
+ * @author Jeremy
+ */
+public interface FlywheelController {
+
+    /**
+     * Computes the motor output
+     * @param setpoint target speed, RPM. Negative runs the wheel backwards
+     * @param velocity measured speed, RPM
+     * @param busVoltage battery voltage at the Jaguars, volts
+     * @param dt time since the last call, seconds
+     * @return motor output, -1 to 1
+     */
+    double calculate(double setpoint, double velocity, double busVoltage, double dt);
+
+    /**
+     * Replaces the feedforward model, such as with one fitted by the
+     * SystemIdentifier. Called on the shooter thread only
+     * @param kV wheel RPM per volt
+     * @param kS volts to overcome friction
+     */
+    void setFeedforward(double kV, double kS);
+
+    /**
+     * Clears any internal state. Called when the controller is switched in
+     */
+    void reset();
+
+    /**
+     * @return the name shown on the dashboard
+     */
+    String getName();
+
+    /**
+     * @return time-to-ready and recovery statistics gathered while this controller ran
+     */
+    FlywheelStats getStats();
+}
@@ -0,0 +1,180 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems;
+
+import org.team399.y2013.robot.Constants;
+
+/**
+ * Estimates flywheel speed from the motors instead of the encoder, and
+ * watches the encoder against that estimate. Updated once per iteration by
+ * the shooter thread.
+ *
+ * A DC motor's back EMF is the applied voltage less the resistive drop,
+ * V - I * R, and its speed is kV times that. The applied voltage is the
+ * output in effect when the current was sampled, times the bus voltage, so
+ * the estimate updates at the current poll rate. While a Jaguar coasts the
+ * current reads 0 and there is nothing to measure, so the estimate coasts
+ * down at a fixed rate, floored at the applied voltage's speed.
+ *
+ * The encoder is faulted when it disagrees with the estimate by more than
+ * SHOOTER_ENCODER_FAULT_ERROR for SHOOTER_ENCODER_FAULT_TIME while the
+ * motors are driven hard enough for the estimate to be trusted. It is
+ * cleared once they agree again for SHOOTER_ENCODER_RECOVER_TIME.
+ * @author Jeremy
+ */
+public class FlywheelObserver {
+
+    private static final double MIN_CURRENT = 1.0;      //Below this, amps, the motors are coasting
+    private static final double MIN_SPEED = 1000;       //Below this, RPM, the encoder is not judged
+    private static final double FILTER_GAIN = 0.5;      //Estimate filter gain per current sample
+    private final double kV;            //Motor RPM per volt
+    private final double resistance;    //Motor winding resistance, ohms
+    private final double gearRatio;     //Wheel RPM per motor RPM
+    private final double coastRate;     //Wheel deceleration while coasting, RPM per second
+    private double lastSampleTime = -1;
+    private volatile double estimate = 0;
+    private boolean trusted = false;
+    private double[] outputHistory = new double[16];    //Ring of recent outputs, newest at historyIndex
+    private double[] outputTimes = new double[16];
+    private int historyIndex = 0;
+    private long disagreeSince = -1;
+    private long agreeSince = -1;
+    private volatile boolean encoderFaulted = false;
+    private volatile int faultCount = 0;
+
+    /**
+     * Constructor
+     * @param kV motor speed constant, RPM per volt
+     * @param resistance motor resistance, ohms
+     * @param gearRatio wheel RPM per motor RPM
+     * @param coastRate wheel deceleration while coasting at shooting speed, RPM per second
+     */
+    public FlywheelObserver(double kV, double resistance, double gearRatio, double coastRate) {
+        this.kV = kV;
+        this.resistance = resistance;
+        this.gearRatio = gearRatio;
+        this.coastRate = coastRate;
+    }
+
+    /**
+     * Records an output sent to the motors, so a current sample can be
+     * matched with the output that was applied when it was read
+     * @param output output sent, -1 to 1, positive for a positive wheel speed
+     * @param time Clock time it was sent, seconds
+     */
+    void outputSent(double output, double time) {
+        historyIndex = (historyIndex + 1) % outputHistory.length;
+        outputHistory[historyIndex] = output;
+        outputTimes[historyIndex] = time;
+    }
+
+    /**
+     * @return the output in effect at a time. The oldest one recorded if the
+     * time is older than the history
+     */
+    private double outputAt(double time) {
+        int index = historyIndex;
+        for (int i = 0; i < outputHistory.length - 1; i++) {
+            if (outputTimes[index] <= time) {
+                break;
+            }
+            index = (index + outputHistory.length - 1) % outputHistory.length;
+        }
+        return outputHistory[index];
+    }
+
+    /**
+     * Updates the speed estimate with a new current sample
+     * @param current mean motor current, amps. Always positive
+     * @param busVoltage Jaguar bus voltage
+     * @param sampleTime Clock time the current was read at, seconds
+     * @return the estimated wheel speed, RPM
+     */
+    double update(double current, double busVoltage, double sampleTime) {
+        double dt = (lastSampleTime < 0) ? 0 : sampleTime - lastSampleTime;
+        lastSampleTime = sampleTime;
+        double output = outputAt(sampleTime);
+        double applied = Math.abs(output) * busVoltage;
+        double sign = (output < 0) ? -1 : 1;
+        double floor = applied * kV * gearRatio;   //Coasting: EMF is at least the applied voltage
+        if (current >= MIN_CURRENT) {
+            double emf = applied - current * resistance;
+            double speed = Math.max(emf, 0) * kV * gearRatio;
+            estimate += FILTER_GAIN * (sign * speed - estimate);
+            trusted = Math.abs(estimate) >= MIN_SPEED;
+        } else {
+            //Nothing to measure. Assume the wheel coasts down, so a closed loop
+            //on the estimate soon drives the motors again and gets a reading
+            double speed = Math.max(Math.abs(estimate) - coastRate * dt, floor);
+            estimate = sign * speed;
+            trusted = false;
+        }
+        return estimate;
+    }
+
+    /**
+     * Compares the encoder against the estimate
+     * @param encoderRate encoder speed, RPM
+     * @param now Clock time, ms
+     * @return true if the encoder is faulted
+     */
+    boolean checkEncoder(double encoderRate, long now) {
+        if (!trusted) {
+            disagreeSince = -1;
+            agreeSince = -1;
+            return encoderFaulted;
+        }
+        boolean agrees = Math.abs(encoderRate - estimate) <= Constants.SHOOTER_ENCODER_FAULT_ERROR;
+        if (agrees) {
+            disagreeSince = -1;
+            if (agreeSince < 0) {
+                agreeSince = now;
+            }
+            if (encoderFaulted && now - agreeSince >= Constants.SHOOTER_ENCODER_RECOVER_TIME) {
+                encoderFaulted = false;
+            }
+        } else {
+            agreeSince = -1;
+            if (disagreeSince < 0) {
+                disagreeSince = now;
+            }
+            if (!encoderFaulted && now - disagreeSince >= Constants.SHOOTER_ENCODER_FAULT_TIME) {
+                encoderFaulted = true;
+                faultCount++;
+            }
+        }
+        return encoderFaulted;
+    }
+
+    /**
+     * @return the last estimated wheel speed, RPM
+     */
+    public double getEstimate() {
+        return estimate;
+    }
+
+    /**
+     * @return true if the encoder is faulted, or disagrees with a trusted
+     * estimate and may be about to be. Its speed should not be relied on
+     */
+    public boolean isEncoderSuspect() {
+        return encoderFaulted || disagreeSince >= 0;
+    }
+
+    /**
+     * @return true if the encoder has been judged faulted and the shooter is
+     * running on the estimate
+     */
+    public boolean isEncoderFaulted() {
+        return encoderFaulted;
+    }
+
+    /**
+     * @return the number of times the encoder has faulted
+     */
+    public int getFaultCount() {
+        return faultCount;
+    }
+}
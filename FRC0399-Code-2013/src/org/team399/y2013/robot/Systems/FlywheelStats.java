@@ -0,0 +1,97 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems;
+
+/**
+ * Time-to-ready and shot recovery statistics for one flywheel controller.
+ * Time-to-ready runs from a setpoint change until the shooter is ready.
+ * Recovery runs from a kick at a constant setpoint until the wheel is back
+ * up to speed; see Shooter.updateStats()
+ * @author Jeremy
+ */
+public class FlywheelStats {
+
+    private int readyCount = 0;
+    private long readyTotal = 0;
+    private long readyMax = 0;
+    private long readyLast = 0;
+    private int recoveryCount = 0;
+    private long recoveryTotal = 0;
+    private long recoveryMax = 0;
+    private long recoveryLast = 0;
+
+    synchronized void recordTimeToReady(long ms) {
+        readyCount++;
+        readyTotal += ms;
+        readyLast = ms;
+        if (ms > readyMax) {
+            readyMax = ms;
+        }
+    }
+
+    synchronized void recordRecovery(long ms) {
+        recoveryCount++;
+        recoveryTotal += ms;
+        recoveryLast = ms;
+        if (ms > recoveryMax) {
+            recoveryMax = ms;
+        }
+    }
+
+    public synchronized int getTimeToReadyCount() {
+        return readyCount;
+    }
+
+    /**
+     * @return mean time-to-ready, ms. 0 if none recorded
+     */
+    public synchronized double getMeanTimeToReady() {
+        return (readyCount == 0) ? 0 : (double) readyTotal / readyCount;
+    }
+
+    public synchronized long getMaxTimeToReady() {
+        return readyMax;
+    }
+
+    public synchronized long getLastTimeToReady() {
+        return readyLast;
+    }
+
+    public synchronized int getRecoveryCount() {
+        return recoveryCount;
+    }
+
+    /**
+     * @return mean recovery time, ms. 0 if none recorded
+     */
+    public synchronized double getMeanRecovery() {
+        return (recoveryCount == 0) ? 0 : (double) recoveryTotal / recoveryCount;
+    }
+
+    public synchronized long getMaxRecovery() {
+        return recoveryMax;
+    }
+
+    public synchronized long getLastRecovery() {
+        return recoveryLast;
+    }
+
+    public synchronized void reset() {
+        readyCount = 0;
+        readyTotal = 0;
+        readyMax = 0;
+        readyLast = 0;
+        recoveryCount = 0;
+        recoveryTotal = 0;
+        recoveryMax = 0;
+        recoveryLast = 0;
+    }
+
+    public synchronized String toString() {
+        return "time to ready " + (long) getMeanTimeToReady() + " ms mean, " + readyMax + " ms max ("
+                + readyCount + "), recovery " + (long) getMeanRecovery() + " ms mean, "
+                + recoveryMax + " ms max (" + recoveryCount + ")";
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems;
+
+/**
+ * Feed forward plus PI with the gains scheduled on the setpoint. The gains
+ * are interpolated between breakpoints, so the wheel can be run softer at
+ * the low intake and pass speeds and stiffer at full shot speed
+ * @author Jeremy
+ */
+public class GainScheduledFlywheelController implements FlywheelController {
+
+    private final double[] speeds;
+    private final double[] kP;
+    private final double[] kI;
+    private final PIFlywheelController pi;
+    private double scheduledSetpoint = Double.NaN;
+    private final FlywheelStats stats = new FlywheelStats();
+
+    /**
+     * Constructor
+     * @param kV wheel RPM per volt
+     * @param speeds breakpoint setpoints in RPM, ascending
+     * @param kP proportional gain at each breakpoint
+     * @param kI integral gain at each breakpoint
+     */
+    public GainScheduledFlywheelController(double kV, double[] speeds, double[] kP, double[] kI) {
+        this.speeds = speeds;
+        this.kP = kP;
+        this.kI = kI;
+        pi = new PIFlywheelController(kV, kP[0], kI[0]);
+    }
+
+    public double calculate(double setpoint, double velocity, double busVoltage, double dt) {
+        if (setpoint != scheduledSetpoint) {
+            schedule(Math.abs(setpoint));
+            scheduledSetpoint = setpoint;
+        }
+        return pi.calculate(setpoint, velocity, busVoltage, dt);
+    }
+
+    private void schedule(double speed) {
+        int last = speeds.length - 1;
+        if (speed <= speeds[0]) {
+            pi.setGains(kP[0], kI[0]);
+        } else if (speed >= speeds[last]) {
+            pi.setGains(kP[last], kI[last]);
+        } else {
+            int i = 0;
+            while (speed > speeds[i + 1]) {
+                i++;
+            }
+            double t = (speed - speeds[i]) / (speeds[i + 1] - speeds[i]);
+            pi.setGains(kP[i] + t * (kP[i + 1] - kP[i]), kI[i] + t * (kI[i + 1] - kI[i]));
+        }
+    }
+
+    public void setFeedforward(double kV, double kS) {
+        pi.setFeedforward(kV, kS);
+    }
+
+    public void reset() {
+        pi.reset();
+        scheduledSetpoint = Double.NaN;
+    }
+
+    public String getName() {
+        return "Gain scheduled";
+    }
+
+    public FlywheelStats getStats() {
+        return stats;
+    }
+}
@@ -0,0 +1,22 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems.HAL;
+
+/**
+ * An analog input
+ * @author Jeremy
+ */
+public interface AnalogSensor {
+
+    /**
+     * @return the latest sample, volts
+     */
+    double getVoltage();
+
+    /**
+     * @return the oversampled and averaged value, volts
+     */
+    double getAverageVoltage();
+}
@@ -0,0 +1,19 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems.HAL;
+
+/**
+ * A heading sensor, such as a gyro
+ * @author Jeremy
+ */
+public interface AngleSensor {
+
+    /**
+     * @return the angle since the last reset, degrees
+     */
+    double getAngle();
+
+    void reset();
+}
@@ -0,0 +1,19 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems.HAL;
+
+/**
+ * An on/off output: a solenoid, a double solenoid or a relay
+ * @author Jeremy
+ */
+public interface BinaryActuator {
+
+    void set(boolean on);
+
+    /**
+     * @return the last state set
+     */
+    boolean get();
+}
@@ -0,0 +1,14 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems.HAL;
+
+/**
+ * A digital input, such as a limit switch
+ * @author Jeremy
+ */
+public interface BinarySensor {
+
+    boolean get();
+}
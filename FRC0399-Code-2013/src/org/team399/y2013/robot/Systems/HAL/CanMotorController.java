@@ -0,0 +1,75 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems.HAL;
+
+/**
+ * A motor controller on the CAN bus (CANJaguar). Every call is a bus
+ * transaction that can time out, so every call can throw DeviceException.
+ * The methods mirror the CANJaguar calls the subsystems make
+ * @author Jeremy
+ */
+public interface CanMotorController {
+
+    public static final int PERCENT_VBUS = 0;
+    public static final int POSITION = 1;
+    public static final int VOLTAGE = 2;
+    public static final int SPEED = 3;
+    public static final int QUAD_ENCODER = 0;
+    public static final int POTENTIOMETER = 1;
+
+    /**
+     * @return the CAN ID
+     */
+    int getDeviceId();
+
+    /**
+     * Sets the output in the current control mode
+     * @param value the setpoint
+     * @param syncGroup group the output is latched with, 0 to apply it now
+     */
+    void set(double value, byte syncGroup) throws DeviceException;
+
+    double getPosition() throws DeviceException;
+
+    double getOutputCurrent() throws DeviceException;
+
+    double getBusVoltage() throws DeviceException;
+
+    double getOutputVoltage() throws DeviceException;
+
+    double getTemperature() throws DeviceException;
+
+    /**
+     * @return true once after the controller lost power and its configuration
+     */
+    boolean getPowerCycled() throws DeviceException;
+
+    /**
+     * @param mode one of PERCENT_VBUS, POSITION, VOLTAGE, SPEED
+     */
+    void changeControlMode(int mode) throws DeviceException;
+
+    /**
+     * @param brake true for brake, false for coast
+     */
+    void configNeutralMode(boolean brake) throws DeviceException;
+
+    /**
+     * @param reference QUAD_ENCODER or POTENTIOMETER
+     */
+    void setPositionReference(int reference) throws DeviceException;
+
+    void configEncoderCodesPerRev(int codes) throws DeviceException;
+
+    void configPotentiometerTurns(int turns) throws DeviceException;
+
+    void setPID(double p, double i, double d) throws DeviceException;
+
+    void setVoltageRampRate(double rate) throws DeviceException;
+
+    void configFaultTime(double seconds) throws DeviceException;
+
+    void enableControl() throws DeviceException;
+}
@@ -0,0 +1,16 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems.HAL;
+
+/**
+ * Thrown when a device does not answer, such as a CAN timeout
+ * @author Jeremy
+ */
+public class DeviceException extends Exception {
+
+    public DeviceException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems.HAL;
+
+/**
+ * In-memory BinaryActuator. Also counts how many times it changed state
+ * @author Jeremy
+ */
+public class FakeBinaryActuator extends FakeDevice implements BinaryActuator {
+
+    private boolean state = false;
+    private long transitions = 0;
+
+    public FakeBinaryActuator(String name) {
+        super(name);
+    }
+
+    public synchronized void set(boolean on) {
+        write();
+        if (on != state) {
+            transitions++;
+        }
+        state = on;
+    }
+
+    public synchronized boolean get() {
+        read();
+        return state;
+    }
+
+    /**
+     * @return the last state set, without counting a call
+     */
+    public synchronized boolean getState() {
+        return state;
+    }
+
+    public synchronized long getTransitionCount() {
+        return transitions;
+    }
+}
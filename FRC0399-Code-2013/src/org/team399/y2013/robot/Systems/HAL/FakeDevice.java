@@ -0,0 +1,83 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems.HAL;
+
+/**
+ * Base of the in-memory fake devices. Counts reads and writes, and charges
+ * each one a simulated latency, so a benchmark can see how many device
+ * calls a loop makes and how long they would have taken on the robot. The
+ * latency is only added up, never slept, so fakes run as fast as the
+ * desktop allows
+ * @author Jeremy
+ */
+public class FakeDevice {
+
+    private final String name;
+    private long reads = 0;
+    private long writes = 0;
+    private long latency = 0;       //Simulated time per call, microseconds
+    private long totalLatency = 0;  //Microseconds
+
+    public FakeDevice(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records a read. Call at the start of each getter
+     */
+    protected synchronized void read() {
+        reads++;
+        totalLatency += latency;
+    }
+
+    /**
+     * Records a write. Call at the start of each setter
+     */
+    protected synchronized void write() {
+        writes++;
+        totalLatency += latency;
+    }
+
+    /**
+     * @param micros simulated time each call takes, microseconds
+     */
+    public synchronized void setLatency(long micros) {
+        latency = micros;
+    }
+
+    public synchronized long getReadCount() {
+        return reads;
+    }
+
+    public synchronized long getWriteCount() {
+        return writes;
+    }
+
+    public synchronized long getCallCount() {
+        return reads + writes;
+    }
+
+    /**
+     * @return the simulated time spent in calls so far, microseconds
+     */
+    public synchronized long getTotalLatency() {
+        return totalLatency;
+    }
+
+    public synchronized void resetCounts() {
+        reads = 0;
+        writes = 0;
+        totalLatency = 0;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String toString() {
+        return name + ": " + getReadCount() + " reads, " + getWriteCount()
+                + " writes, " + getTotalLatency() + "us";
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems.HAL;
+
+/**
+ * In-memory CanMotorController. Status values are set by the test or
+ * simulator. Outputs sent with a sync group are held until the group is
+ * updated, like on a real Jaguar. setFailing() makes every call time out
+ * @author Jeremy
+ */
+public class FakeJaguar extends FakeDevice implements CanMotorController {
+
+    private final int canId;
+    private int mode;
+    private double output = 0;      //Applied output
+    private double pending = 0;     //Output waiting for a sync group update
+    private byte pendingGroup = 0;
+    private double position = 0;
+    private double current = 0;
+    private double busVoltage = 12.0;
+    private double temperature = 25.0;
+    private boolean powerCycled = true;     //A real Jaguar reports a power cycle on the first call
+    private boolean failing = false;
+    private boolean brake = false;
+    private int positionReference = QUAD_ENCODER;
+    private double p = 0, i = 0, d = 0;
+    private boolean controlEnabled = false;
+
+    public FakeJaguar(int canId, int mode) {
+        super("Jaguar " + canId);
+        this.canId = canId;
+        this.mode = mode;
+    }
+
+    private void check() throws DeviceException {
+        if (failing) {
+            throw new DeviceException("Jaguar " + canId + ": timeout");
+        }
+    }
+
+    public int getDeviceId() {
+        return canId;
+    }
+
+    public synchronized void set(double value, byte syncGroup) throws DeviceException {
+        write();
+        check();
+        if (syncGroup != 0) {
+            pending = value;
+            pendingGroup = syncGroup;
+        } else {
+            output = value;
+        }
+    }
+
+    /**
+     * Applies the held output if it belongs to one of the groups
+     * @param syncGroups bit mask of groups
+     */
+    synchronized void updateSyncGroup(byte syncGroups) {
+        if ((pendingGroup & syncGroups) != 0) {
+            output = pending;
+            pendingGroup = 0;
+        }
+    }
+
+    public synchronized double getPosition() throws DeviceException {
+        read();
+        check();
+        return position;
+    }
+
+    public synchronized double getOutputCurrent() throws DeviceException {
+        read();
+        check();
+        return current;
+    }
+
+    public synchronized double getBusVoltage() throws DeviceException {
+        read();
+        check();
+        return busVoltage;
+    }
+
+    public synchronized double getOutputVoltage() throws DeviceException {
+        read();
+        check();
+        return (mode == PERCENT_VBUS) ? output * busVoltage : output;
+    }
+
+    public synchronized double getTemperature() throws DeviceException {
+        read();
+        check();
+        return temperature;
+    }
+
+    public synchronized boolean getPowerCycled() throws DeviceException {
+        read();
+        check();
+        boolean cycled = powerCycled;
+        powerCycled = false;
+        return cycled;
+    }
+
+    public synchronized void changeControlMode(int mode) throws DeviceException {
+        write();
+        check();
+        this.mode = mode;
+    }
+
+    public synchronized void configNeutralMode(boolean brake) throws DeviceException {
+        write();
+        check();
+        this.brake = brake;
+    }
+
+    public synchronized void setPositionReference(int reference) throws DeviceException {
+        write();
+        check();
+        positionReference = reference;
+    }
+
+    public synchronized void configEncoderCodesPerRev(int codes) throws DeviceException {
+        write();
+        check();
+    }
+
+    public synchronized void configPotentiometerTurns(int turns) throws DeviceException {
+        write();
+        check();
+    }
+
+    public synchronized void setPID(double p, double i, double d) throws DeviceException {
+        write();
+        check();
+        this.p = p;
+        this.i = i;
+        this.d = d;
+    }
+
+    public synchronized void setVoltageRampRate(double rate) throws DeviceException {
+        write();
+        check();
+    }
+
+    public synchronized void configFaultTime(double seconds) throws DeviceException {
+        write();
+        check();
+    }
+
+    public synchronized void enableControl() throws DeviceException {
+        write();
+        check();
+        controlEnabled = true;
+    }
+
+    /**
+     * @return the applied output, without counting a call
+     */
+    public synchronized double getOutput() {
+        return output;
+    }
+
+    public synchronized int getControlMode() {
+        return mode;
+    }
+
+    public synchronized boolean isBrake() {
+        return brake;
+    }
+
+    public synchronized int getPositionReference() {
+        return positionReference;
+    }
+
+    public synchronized double getP() {
+        return p;
+    }
+
+    public synchronized double getI() {
+        return i;
+    }
+
+    public synchronized double getD() {
+        return d;
+    }
+
+    public synchronized boolean isControlEnabled() {
+        return controlEnabled;
+    }
+
+    public synchronized void setPosition(double position) {
+        this.position = position;
+    }
+
+    public synchronized void setCurrent(double current) {
+        this.current = current;
+    }
+
+    public synchronized void setBusVoltage(double busVoltage) {
+        this.busVoltage = busVoltage;
+    }
+
+    public synchronized void setTemperature(double temperature) {
+        this.temperature = temperature;
+    }
+
+    /**
+     * Simulates a brownout: the next getPowerCycled() returns true
+     */
+    public synchronized void powerCycle() {
+        powerCycled = true;
+        output = 0;
+    }
+
+    /**
+     * @param failing true to make every call throw, as if the Jaguar fell off the bus
+     */
+    public synchronized void setFailing(boolean failing) {
+        this.failing = failing;
+    }
+
+    public synchronized boolean isFailing() {
+        return failing;
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems.HAL;
+
+/**
+ * In-memory MotorController
+ * @author Jeremy
+ */
+public class FakeMotorController extends FakeDevice implements MotorController {
+
+    private double output = 0;
+
+    public FakeMotorController(String name) {
+        super(name);
+    }
+
+    public synchronized void set(double output) {
+        write();
+        this.output = output;
+    }
+
+    public synchronized double get() {
+        read();
+        return output;
+    }
+
+    /**
+     * @return the last output set, without counting a call
+     */
+    public synchronized double getOutput() {
+        return output;
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems.HAL;
+
+import java.util.Hashtable;
+import java.util.Vector;
+
+/**
+ * In-memory robot hardware for running the subsystems on a desktop JVM.
+ * Asking for the same port twice returns the same fake, so a test can
+ * fetch a device after the subsystem made it and cast it to its Fake class
+ * to drive sensor values and read back outputs and call counts
+ * @author Jeremy
+ */
+public class FakeRobotHardware implements RobotHardware {
+
+    private final Hashtable devices = new Hashtable();
+    private final Vector all = new Vector();
+    private long syncUpdates = 0;
+
+    private synchronized Object find(String key) {
+        return devices.get(key);
+    }
+
+    private synchronized Object add(String key, Object device) {
+        devices.put(key, device);
+        all.addElement(device);
+        return device;
+    }
+
+    private synchronized Object motor(String key) {
+        Object device = find(key);
+        return (device != null) ? device : add(key, new FakeMotorController(key));
+    }
+
+    private synchronized Object actuator(String key) {
+        Object device = find(key);
+        return (device != null) ? device : add(key, new FakeBinaryActuator(key));
+    }
+
+    private synchronized Object sensor(String key) {
+        Object device = find(key);
+        return (device != null) ? device : add(key, new FakeSensor(key));
+    }
+
+    public MotorController getTalon(int port) {
+        return (MotorController) motor("Talon " + port);
+    }
+
+    public MotorController getVictor(int port) {
+        return (MotorController) motor("Victor " + port);
+    }
+
+    public synchronized CanMotorController getJaguar(int canId, int mode) throws DeviceException {
+        String key = "Jaguar " + canId;
+        CanMotorController jag = (CanMotorController) find(key);
+        if (jag == null) {
+            jag = (CanMotorController) add(key, new FakeJaguar(canId, mode));
+        }
+        if (jag instanceof FakeJaguar && ((FakeJaguar) jag).isFailing()) {
+            throw new DeviceException("Jaguar " + canId + ": not on the bus");
+        }
+        jag.changeControlMode(mode);
+        return jag;
+    }
+
+    /**
+     * Installs a custom CAN device, such as a simulated motor, in place of a FakeJaguar.
+     * Must be called before a subsystem asks for that ID
+     * @param canId CAN ID
+     * @param device the device
+     */
+    public void setJaguar(int canId, CanMotorController device) {
+        add("Jaguar " + canId, device);
+    }
+
+    public synchronized void updateSyncGroup(byte syncGroups) throws DeviceException {
+        syncUpdates++;
+        for (int i = 0; i < all.size(); i++) {
+            if (all.elementAt(i) instanceof FakeJaguar) {
+                ((FakeJaguar) all.elementAt(i)).updateSyncGroup(syncGroups);
+            }
+        }
+    }
+
+    public BinaryActuator getSolenoid(int port) {
+        return (BinaryActuator) actuator("Solenoid " + port);
+    }
+
+    public BinaryActuator getDoubleSolenoid(int forwardPort, int reversePort) {
+        return (BinaryActuator) actuator("DoubleSolenoid " + forwardPort + "/" + reversePort);
+    }
+
+    public BinaryActuator getRelay(int port) {
+        return (BinaryActuator) actuator("Relay " + port);
+    }
+
+    public AngleSensor getGyro(int channel) {
+        return (AngleSensor) sensor("Gyro " + channel);
+    }
+
+    public BinarySensor getDigitalInput(int channel) {
+        return (BinarySensor) sensor("DigitalInput " + channel);
+    }
+
+    public AnalogSensor getAnalogInput(int channel) {
+        return (AnalogSensor) sensor("AnalogInput " + channel);
+    }
+
+    /**
+     * @param name device name, such as "Talon 1", "Jaguar 2" or "Solenoid 4"
+     * @return the device, or null if nothing has asked for it
+     */
+    public Object getDevice(String name) {
+        return find(name);
+    }
+
+    /**
+     * @return the number of sync group updates
+     */
+    public synchronized long getSyncUpdateCount() {
+        return syncUpdates;
+    }
+
+    /**
+     * @return the total call count of every fake device
+     */
+    public synchronized long getCallCount() {
+        long calls = 0;
+        for (int i = 0; i < all.size(); i++) {
+            if (all.elementAt(i) instanceof FakeDevice) {
+                calls += ((FakeDevice) all.elementAt(i)).getCallCount();
+            }
+        }
+        return calls;
+    }
+
+    /**
+     * @return the total simulated call latency of every fake device, microseconds
+     */
+    public synchronized long getTotalLatency() {
+        long latency = 0;
+        for (int i = 0; i < all.size(); i++) {
+            if (all.elementAt(i) instanceof FakeDevice) {
+                latency += ((FakeDevice) all.elementAt(i)).getTotalLatency();
+            }
+        }
+        return latency;
+    }
+
+    /**
+     * Sets the simulated latency of every fake device made so far
+     * @param micros time per call, microseconds
+     */
+    public synchronized void setLatency(long micros) {
+        for (int i = 0; i < all.size(); i++) {
+            if (all.elementAt(i) instanceof FakeDevice) {
+                ((FakeDevice) all.elementAt(i)).setLatency(micros);
+            }
+        }
+    }
+
+    /**
+     * Prints the counts of every fake device
+     */
+    public synchronized void printReport() {
+        for (int i = 0; i < all.size(); i++) {
+            System.out.println(all.elementAt(i));
+        }
+    }
+}
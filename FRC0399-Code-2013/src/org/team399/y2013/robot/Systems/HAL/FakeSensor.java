@@ -0,0 +1,53 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems.HAL;
+
+/**
+ * In-memory sensor. The test or simulator sets the value; the subsystem
+ * reads it as a digital input (nonzero is true), an analog input in volts
+ * or a gyro angle in degrees
+ * @author Jeremy
+ */
+public class FakeSensor extends FakeDevice implements BinarySensor, AnalogSensor, AngleSensor {
+
+    private double value = 0;
+
+    public FakeSensor(String name) {
+        super(name);
+    }
+
+    public synchronized void setValue(double value) {
+        this.value = value;
+    }
+
+    public synchronized void setValue(boolean state) {
+        value = state ? 1 : 0;
+    }
+
+    public synchronized boolean get() {
+        read();
+        return value != 0;
+    }
+
+    public synchronized double getVoltage() {
+        read();
+        return value;
+    }
+
+    public synchronized double getAverageVoltage() {
+        read();
+        return value;
+    }
+
+    public synchronized double getAngle() {
+        read();
+        return value;
+    }
+
+    public synchronized void reset() {
+        write();
+        value = 0;
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems.HAL;
+
+/**
+ * Holds the RobotHardware the subsystems are built from. Defaults to the
+ * real WPILib hardware; a desktop harness sets a FakeRobotHardware before
+ * the robot is constructed
+ * @author Jeremy
+ */
+public class Hardware {
+
+    private static RobotHardware instance = null;
+
+    private Hardware() {
+    }
+
+    public static synchronized RobotHardware getInstance() {
+        if (instance == null) {
+            instance = new WPIRobotHardware();
+        }
+        return instance;
+    }
+
+    /**
+     * Replaces the hardware. Only affects subsystems constructed afterwards
+     * @param hardware the hardware to use
+     */
+    public static synchronized void setInstance(RobotHardware hardware) {
+        instance = hardware;
+    }
+}
@@ -0,0 +1,22 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems.HAL;
+
+/**
+ * A PWM speed controller (Talon, Victor)
+ * @author Jeremy
+ */
+public interface MotorController {
+
+    /**
+     * @param output motor output, -1 to 1
+     */
+    void set(double output);
+
+    /**
+     * @return the last output set
+     */
+    double get();
+}
@@ -0,0 +1,50 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems.HAL;
+
+/**
+ * Source of every device the subsystems use. The robot uses WPIRobotHardware;
+ * FakeRobotHardware lets the subsystems run on a desktop JVM
+ * @author Jeremy
+ */
+public interface RobotHardware {
+
+    MotorController getTalon(int port);
+
+    MotorController getVictor(int port);
+
+    /**
+     * Connects to a CAN motor controller
+     * @param canId CAN ID
+     * @param mode initial control mode, one of the CanMotorController modes
+     * @return the controller
+     * @throws DeviceException if it does not answer
+     */
+    CanMotorController getJaguar(int canId, int mode) throws DeviceException;
+
+    /**
+     * Latches the outputs of every CAN motor controller in the sync groups
+     * @param syncGroups bit mask of groups
+     */
+    void updateSyncGroup(byte syncGroups) throws DeviceException;
+
+    BinaryActuator getSolenoid(int port);
+
+    /**
+     * @return a double solenoid. On is forward, off is reverse
+     */
+    BinaryActuator getDoubleSolenoid(int forwardPort, int reversePort);
+
+    /**
+     * @return a relay. On is forward, off is off
+     */
+    BinaryActuator getRelay(int port);
+
+    AngleSensor getGyro(int channel);
+
+    BinarySensor getDigitalInput(int channel);
+
+    AnalogSensor getAnalogInput(int channel);
+}
@@ -0,0 +1,28 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems.HAL;
+
+import edu.wpi.first.wpilibj.AnalogChannel;
+
+/**
+ * AnalogSensor backed by a WPILib AnalogChannel
+ * @author Jeremy
+ */
+public class WPIAnalogInput implements AnalogSensor {
+
+    private final AnalogChannel channel;
+
+    public WPIAnalogInput(int channel) {
+        this.channel = new AnalogChannel(channel);
+    }
+
+    public double getVoltage() {
+        return channel.getVoltage();
+    }
+
+    public double getAverageVoltage() {
+        return channel.getAverageVoltage();
+    }
+}
@@ -0,0 +1,24 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems.HAL;
+
+import edu.wpi.first.wpilibj.DigitalInput;
+
+/**
+ * BinarySensor backed by a WPILib DigitalInput
+ * @author Jeremy
+ */
+public class WPIDigitalInput implements BinarySensor {
+
+    private final DigitalInput input;
+
+    public WPIDigitalInput(int channel) {
+        input = new DigitalInput(channel);
+    }
+
+    public boolean get() {
+        return input.get();
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems.HAL;
+
+import edu.wpi.first.wpilibj.DoubleSolenoid;
+
+/**
+ * BinaryActuator backed by a WPILib DoubleSolenoid. On is forward, off is reverse
+ * @author Jeremy
+ */
+public class WPIDoubleSolenoid implements BinaryActuator {
+
+    private final DoubleSolenoid solenoid;
+    private boolean state = false;
+
+    public WPIDoubleSolenoid(int forwardPort, int reversePort) {
+        solenoid = new DoubleSolenoid(forwardPort, reversePort);
+    }
+
+    public void set(boolean on) {
+        state = on;
+        solenoid.set(on ? DoubleSolenoid.Value.kForward : DoubleSolenoid.Value.kReverse);
+    }
+
+    public boolean get() {
+        return state;
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems.HAL;
+
+import edu.wpi.first.wpilibj.Gyro;
+
+/**
+ * AngleSensor backed by a WPILib Gyro
+ * @author Jeremy
+ */
+public class WPIGyro implements AngleSensor {
+
+    private final Gyro gyro;
+
+    public WPIGyro(int channel) {
+        gyro = new Gyro(channel);
+    }
+
+    public double getAngle() {
+        return gyro.getAngle();
+    }
+
+    public void reset() {
+        gyro.reset();
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems.HAL;
+
+import edu.wpi.first.wpilibj.CANJaguar;
+
+/**
+ * CanMotorController backed by a WPILib CANJaguar. CAN timeouts are
+ * rethrown as DeviceException
+ * @author Jeremy
+ */
+public class WPIJaguar implements CanMotorController {
+
+    private final int canId;
+    private final CANJaguar jag;
+
+    /**
+     * Constructor
+     * @param canId CAN ID
+     * @param mode initial control mode
+     * @throws DeviceException if the Jaguar does not answer
+     */
+    public WPIJaguar(int canId, int mode) throws DeviceException {
+        this.canId = canId;
+        try {
+            jag = new CANJaguar(canId, toControlMode(mode));
+        } catch (Exception e) {
+            throw timeout(e);
+        }
+    }
+
+    private static CANJaguar.ControlMode toControlMode(int mode) {
+        switch (mode) {
+            case POSITION:
+                return CANJaguar.ControlMode.kPosition;
+            case VOLTAGE:
+                return CANJaguar.ControlMode.kVoltage;
+            case SPEED:
+                return CANJaguar.ControlMode.kSpeed;
+            default:
+                return CANJaguar.ControlMode.kPercentVbus;
+        }
+    }
+
+    private DeviceException timeout(Exception e) {
+        return new DeviceException("Jaguar " + canId + ": " + e);
+    }
+
+    public int getDeviceId() {
+        return canId;
+    }
+
+    public void set(double value, byte syncGroup) throws DeviceException {
+        try {
+            if (syncGroup != 0) {
+                jag.setX(value, syncGroup);
+            } else {
+                jag.setX(value);
+            }
+        } catch (Exception e) {
+            throw timeout(e);
+        }
+    }
+
+    public double getPosition() throws DeviceException {
+        try {
+            return jag.getPosition();
+        } catch (Exception e) {
+            throw timeout(e);
+        }
+    }
+
+    public double getOutputCurrent() throws DeviceException {
+        try {
+            return jag.getOutputCurrent();
+        } catch (Exception e) {
+            throw timeout(e);
+        }
+    }
+
+    public double getBusVoltage() throws DeviceException {
+        try {
+            return jag.getBusVoltage();
+        } catch (Exception e) {
+            throw timeout(e);
+        }
+    }
+
+    public double getOutputVoltage() throws DeviceException {
+        try {
+            return jag.getOutputVoltage();
+        } catch (Exception e) {
+            throw timeout(e);
+        }
+    }
+
+    public double getTemperature() throws DeviceException {
+        try {
+            return jag.getTemperature();
+        } catch (Exception e) {
+            throw timeout(e);
+        }
+    }
+
+    public boolean getPowerCycled() throws DeviceException {
+        try {
+            return jag.getPowerCycled();
+        } catch (Exception e) {
+            throw timeout(e);
+        }
+    }
+
+    public void changeControlMode(int mode) throws DeviceException {
+        try {
+            jag.changeControlMode(toControlMode(mode));
+        } catch (Exception e) {
+            throw timeout(e);
+        }
+    }
+
+    public void configNeutralMode(boolean brake) throws DeviceException {
+        try {
+            jag.configNeutralMode(brake ? CANJaguar.NeutralMode.kBrake : CANJaguar.NeutralMode.kCoast);
+        } catch (Exception e) {
+            throw timeout(e);
+        }
+    }
+
+    public void setPositionReference(int reference) throws DeviceException {
+        try {
+            jag.setPositionReference(reference == POTENTIOMETER
+                    ? CANJaguar.PositionReference.kPotentiometer
+                    : CANJaguar.PositionReference.kQuadEncoder);
+        } catch (Exception e) {
+            throw timeout(e);
+        }
+    }
+
+    public void configEncoderCodesPerRev(int codes) throws DeviceException {
+        try {
+            jag.configEncoderCodesPerRev(codes);
+        } catch (Exception e) {
+            throw timeout(e);
+        }
+    }
+
+    public void configPotentiometerTurns(int turns) throws DeviceException {
+        try {
+            jag.configPotentiometerTurns(turns);
+        } catch (Exception e) {
+            throw timeout(e);
+        }
+    }
+
+    public void setPID(double p, double i, double d) throws DeviceException {
+        try {
+            jag.setPID(p, i, d);
+        } catch (Exception e) {
+            throw timeout(e);
+        }
+    }
+
+    public void setVoltageRampRate(double rate) throws DeviceException {
+        try {
+            jag.setVoltageRampRate(rate);
+        } catch (Exception e) {
+            throw timeout(e);
+        }
+    }
+
+    public void configFaultTime(double seconds) throws DeviceException {
+        try {
+            jag.configFaultTime(seconds);
+        } catch (Exception e) {
+            throw timeout(e);
+        }
+    }
+
+    public void enableControl() throws DeviceException {
+        try {
+            jag.enableControl();
+        } catch (Exception e) {
+            throw timeout(e);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems.HAL;
+
+import edu.wpi.first.wpilibj.SpeedController;
+
+/**
+ * MotorController backed by a WPILib Talon or Victor
+ * @author Jeremy
+ */
+public class WPIMotorController implements MotorController {
+
+    private final SpeedController controller;
+
+    public WPIMotorController(SpeedController controller) {
+        this.controller = controller;
+    }
+
+    public void set(double output) {
+        controller.set(output);
+    }
+
+    public double get() {
+        return controller.get();
+    }
+}
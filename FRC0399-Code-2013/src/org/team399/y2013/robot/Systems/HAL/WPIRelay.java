@@ -0,0 +1,30 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems.HAL;
+
+import edu.wpi.first.wpilibj.Relay;
+
+/**
+ * BinaryActuator backed by a WPILib Relay. On is forward, off is off
+ * @author Jeremy
+ */
+public class WPIRelay implements BinaryActuator {
+
+    private final Relay relay;
+    private boolean state = false;
+
+    public WPIRelay(int port) {
+        relay = new Relay(port);
+    }
+
+    public void set(boolean on) {
+        state = on;
+        relay.set(on ? Relay.Value.kForward : Relay.Value.kOff);
+    }
+
+    public boolean get() {
+        return state;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems.HAL;
+
+import edu.wpi.first.wpilibj.CANJaguar;
+import edu.wpi.first.wpilibj.Talon;
+import edu.wpi.first.wpilibj.Victor;
+
+/**
+ * The real robot hardware, through WPILib
+ * @author Jeremy
+ */
+public class WPIRobotHardware implements RobotHardware {
+
+    public MotorController getTalon(int port) {
+        return new WPIMotorController(new Talon(port));
+    }
+
+    public MotorController getVictor(int port) {
+        return new WPIMotorController(new Victor(port));
+    }
+
+    public CanMotorController getJaguar(int canId, int mode) throws DeviceException {
+        return new WPIJaguar(canId, mode);
+    }
+
+    public void updateSyncGroup(byte syncGroups) throws DeviceException {
+        try {
+            CANJaguar.updateSyncGroup(syncGroups);
+        } catch (Exception e) {
+            throw new DeviceException("Sync group update failed: " + e);
+        }
+    }
+
+    public BinaryActuator getSolenoid(int port) {
+        return new WPISolenoid(port);
+    }
+
+    public BinaryActuator getDoubleSolenoid(int forwardPort, int reversePort) {
+        return new WPIDoubleSolenoid(forwardPort, reversePort);
+    }
+
+    public BinaryActuator getRelay(int port) {
+        return new WPIRelay(port);
+    }
+
+    public AngleSensor getGyro(int channel) {
+        return new WPIGyro(channel);
+    }
+
+    public BinarySensor getDigitalInput(int channel) {
+        return new WPIDigitalInput(channel);
+    }
+
+    public AnalogSensor getAnalogInput(int channel) {
+        return new WPIAnalogInput(channel);
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems.HAL;
+
+import edu.wpi.first.wpilibj.Solenoid;
+
+/**
+ * BinaryActuator backed by a WPILib Solenoid
+ * @author Jeremy
+ */
+public class WPISolenoid implements BinaryActuator {
+
+    private final Solenoid solenoid;
+
+    public WPISolenoid(int port) {
+        solenoid = new Solenoid(port);
+    }
+
+    public void set(boolean on) {
+        solenoid.set(on);
+    }
+
+    public boolean get() {
+        return solenoid.get();
+    }
+}
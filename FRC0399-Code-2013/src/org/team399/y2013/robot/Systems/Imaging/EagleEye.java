@@ -68,7 +68,9 @@ public class EagleEye extends Thread {
 
                 long timeElapsed = (System.currentTimeMillis() - procStartTime);
                 framerate = EagleMath.truncate((1000.0 / (double) timeElapsed), 2);
-                m_ps.println("Processing Images at " + framerate + " fps");
+                if (m_ps.isEnabled()) {
+                    m_ps.println("Processing Images at " + framerate + " fps");
+                }
                 
                 if (targets != null && targets.length > 0) {    //If targets are detected
                     targetsFound = true;                        //Set flag to true
@@ -4,24 +4,25 @@
  */
 package org.team399.y2013.robot.Systems;
 
-import edu.wpi.first.wpilibj.AnalogChannel;
-import edu.wpi.first.wpilibj.Victor;
 import org.team399.y2013.Utilities.EagleMath;
 import org.team399.y2013.robot.Constants;
+import org.team399.y2013.robot.Systems.HAL.AnalogSensor;
+import org.team399.y2013.robot.Systems.HAL.MotorController;
+import org.team399.y2013.robot.Systems.HAL.RobotHardware;
 
 /**
  *
  * @author Jeremy
  */
 public class Intake {
-    private AnalogChannel discSensor;
-    private Victor intake_motor;
+    private AnalogSensor discSensor;
+    private MotorController intake_motor;
     
     private final double discThresh = Constants.INTAKE_DISC_THRESH;
     
-    public Intake(int motor_port, int sensor_port) {
-        discSensor = new AnalogChannel(sensor_port);
-        intake_motor = new Victor(motor_port);
+    public Intake(RobotHardware hardware, int motor_port, int sensor_port) {
+        discSensor = hardware.getAnalogInput(sensor_port);
+        intake_motor = hardware.getVictor(motor_port);
     }
     
     public void set(double in) {
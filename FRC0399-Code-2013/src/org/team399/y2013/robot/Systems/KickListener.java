@@ -0,0 +1,18 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems;
+
+/**
+ * Notified when the feeder fires the kicker
+ * @author Jeremy
+ */
+public interface KickListener {
+
+    /**
+     * Called on the thread that fired the kicker. Keep it short
+     * @param timestamp Clock time the kicker was fired, ms
+     */
+    void kickerFired(long timestamp);
+}
@@ -0,0 +1,70 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems;
+
+/**
+ * Feed forward plus PI. The feed forward is the voltage the wheel needs at
+ * the setpoint, scaled by the bus voltage, so battery sag is compensated
+ * before the loop sees any error. The integrator only runs while the output
+ * is not saturated in the direction it would push
+ * @author Jeremy
+ */
+public class PIFlywheelController implements FlywheelController {
+
+    private double kV;
+    private double kS = 0;
+    private volatile double kP;
+    private volatile double kI;
+    private double integral = 0;
+    private final FlywheelStats stats = new FlywheelStats();
+
+    /**
+     * Constructor
+     * @param kV wheel RPM per volt
+     * @param kP output per RPM of error
+     * @param kI output per RPM of error per second
+     */
+    public PIFlywheelController(double kV, double kP, double kI) {
+        this.kV = kV;
+        this.kP = kP;
+        this.kI = kI;
+    }
+
+    public void setGains(double kP, double kI) {
+        this.kP = kP;
+        this.kI = kI;
+    }
+
+    public void setFeedforward(double kV, double kS) {
+        this.kV = kV;
+        this.kS = kS;
+    }
+
+    public double calculate(double setpoint, double velocity, double busVoltage, double dt) {
+        double error = setpoint - velocity;
+        double feedFwd = (setpoint / kV + ((setpoint > 0) ? kS : -kS)) / busVoltage;
+        double output = feedFwd + kP * error + integral;
+
+        boolean saturatedHigh = output >= 1 && error > 0;
+        boolean saturatedLow = output <= -1 && error < 0;
+        if (!saturatedHigh && !saturatedLow) {
+            integral += kI * error * dt;
+        }
+        output = feedFwd + kP * error + integral;
+        return (output > 1) ? 1 : (output < -1) ? -1 : output;
+    }
+
+    public void reset() {
+        integral = 0;
+    }
+
+    public String getName() {
+        return "Feed forward + PI";
+    }
+
+    public FlywheelStats getStats() {
+        return stats;
+    }
+}
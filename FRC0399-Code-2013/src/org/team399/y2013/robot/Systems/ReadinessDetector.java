@@ -0,0 +1,178 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems;
+
+import org.team399.y2013.Utilities.Clock;
+
+/**
+ * Time-windowed shooter readiness with hysteresis. Updated once per
+ * iteration by the shooter thread, so readiness does not depend on who
+ * polls it or how often.
+ *
+ * Becomes ready once the error has stayed inside the enter tolerance for the
+ * hold time. Stays ready until the error leaves the wider exit tolerance.
+ * Changes are published three ways: isReady() for pollers, a transition
+ * count so a poller can tell it missed an edge, and events that threads
+ * can wait on or listeners subscribe to.
+ * @author Jeremy
+ */
+public class ReadinessDetector {
+
+    private final double enterTolerance;
+    private final double exitTolerance;
+    private final long holdTime;
+    private long inBandSince = -1;  //Shooter thread only
+    private volatile boolean ready = false;
+    private volatile long lastChange = 0;
+    private volatile int transitions = 0;
+    private final Object lock = new Object();
+    private volatile ReadinessListener[] listeners = new ReadinessListener[0];  //Copied on add, so notifying never locks
+
+    /**
+     * Constructor
+     * @param enterTolerance error to get within to become ready, RPM
+     * @param exitTolerance error that ends readiness, RPM. At least enterTolerance
+     * @param holdTime time the error must stay within enterTolerance, ms
+     */
+    public ReadinessDetector(double enterTolerance, double exitTolerance, long holdTime) {
+        this.enterTolerance = enterTolerance;
+        this.exitTolerance = Math.max(enterTolerance, exitTolerance);
+        this.holdTime = holdTime;
+    }
+
+    /**
+     * Updates the state. Only called by the shooter thread
+     * @param error speed error, RPM
+     * @param inBand true to count as within tolerance regardless of the error, as in open loop
+     * @param now Clock time, ms
+     * @return the new state
+     */
+    boolean update(double error, boolean inBand, long now) {
+        double magnitude = Math.abs(error);
+        if (ready) {
+            if (!inBand && magnitude > exitTolerance) {
+                inBandSince = -1;
+                change(false, now);
+            }
+        } else if (inBand || magnitude < enterTolerance) {
+            if (inBandSince < 0) {
+                inBandSince = now;
+            }
+            if (now - inBandSince >= holdTime) {
+                change(true, now);
+            }
+        } else {
+            inBandSince = -1;
+        }
+        return ready;
+    }
+
+    /**
+     * Drops readiness and restarts the hold time, for a new setpoint. Only
+     * called by the shooter thread
+     * @param now Clock time, ms
+     */
+    void reset(long now) {
+        inBandSince = -1;
+        if (ready) {
+            change(false, now);
+        }
+    }
+
+    private void change(boolean state, long now) {
+        synchronized (lock) {
+            ready = state;
+            lastChange = now;
+            transitions++;
+            lock.notifyAll();
+        }
+        ReadinessListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            try {
+                current[i].readinessChanged(state, now);
+            } catch (Throwable t) {
+                System.err.println("[SHOOTER] Readiness listener failed: " + t);
+            }
+        }
+    }
+
+    /**
+     * @return true if the shooter is ready
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return the number of changes so far. Compare with a saved count to
+     * catch a ready/not-ready pair that happened between two polls
+     */
+    public int getTransitionCount() {
+        return transitions;
+    }
+
+    /**
+     * @return Clock time of the last change, ms
+     */
+    public long getLastChange() {
+        return lastChange;
+    }
+
+    /**
+     * Blocks until the shooter is in a state
+     * @param state true to wait for ready, false for not ready
+     * @param timeout longest wait, Clock time, ms
+     * @return true if the state was reached, false on timeout
+     */
+    public boolean waitFor(boolean state, long timeout) {
+        long end = Clock.millis() + timeout;
+        synchronized (lock) {
+            while (ready != state) {
+                long remaining = end - Clock.millis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    lock.wait(remaining);
+                } catch (InterruptedException e) {
+                    return ready == state;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Blocks until the shooter is ready
+     * @param timeout longest wait, ms
+     * @return true if ready, false on timeout
+     */
+    public boolean waitForReady(long timeout) {
+        return waitFor(true, timeout);
+    }
+
+    /**
+     * Subscribes to changes
+     * @param listener called on the shooter thread on every change
+     */
+    public synchronized void addListener(ReadinessListener listener) {
+        ReadinessListener[] newListeners = new ReadinessListener[listeners.length + 1];
+        System.arraycopy(listeners, 0, newListeners, 0, listeners.length);
+        newListeners[listeners.length] = listener;
+        listeners = newListeners;
+    }
+
+    public synchronized void removeListener(ReadinessListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                ReadinessListener[] newListeners = new ReadinessListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, newListeners, 0, i);
+                System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+                listeners = newListeners;
+                return;
+            }
+        }
+    }
+}
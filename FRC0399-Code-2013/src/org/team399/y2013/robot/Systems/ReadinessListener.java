@@ -0,0 +1,20 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems;
+
+/**
+ * Notified when the shooter becomes ready or stops being ready
+ * @author Jeremy
+ */
+public interface ReadinessListener {
+
+    /**
+     * Called on the shooter thread. Keep it short; record the event and act
+     * on it from your own loop
+     * @param ready the new state
+     * @param timestamp Clock time of the change, ms
+     */
+    void readinessChanged(boolean ready, long timestamp);
+}
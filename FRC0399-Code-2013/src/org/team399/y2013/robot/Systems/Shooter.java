@@ -1,50 +1,153 @@
 package org.team399.y2013.robot.Systems;
 
-import edu.wpi.first.wpilibj.*;
+import org.team399.y2013.Utilities.Clock;
 import org.team399.y2013.Utilities.EagleMath;
 import org.team399.y2013.Utilities.FIRFilter;
-import org.team399.y2013.Utilities.MovingAverage;
+import org.team399.y2013.Utilities.LeastSquaresVelocityEstimator;
+import org.team399.y2013.Utilities.LogSite;
+import org.team399.y2013.Utilities.Logger;
+import org.team399.y2013.Utilities.Parameters;
+import org.team399.y2013.Utilities.PeriodicExecutor;
+import org.team399.y2013.Utilities.VelocityEstimator;
 import org.team399.y2013.robot.Constants;
+import org.team399.y2013.robot.Systems.HAL.BinaryActuator;
+import org.team399.y2013.robot.Systems.HAL.CanMotorController;
+import org.team399.y2013.robot.Systems.HAL.DeviceException;
+import org.team399.y2013.robot.Systems.HAL.Hardware;
+import org.team399.y2013.robot.Systems.HAL.RobotHardware;
 
 /**
  * Code to control the 3 motor shooter on Team 399's 2013 robot.
- * Uses Bang-Bang with Feed Forward to control the rotational velocity of the shooter wheel
+ * The control law is a FlywheelController, swappable at runtime. Defaults to
+ * Bang-Bang with Feed Forward to control the rotational velocity of the shooter wheel
  * Also uses logic to help with graceful degradation - 
  * @author Jeremy
  */
-public class Shooter implements Runnable {
+public class Shooter implements Runnable, KickListener, DeviceInitializer {
 
-    final double maxSpeed = 1;	//Max shooter output value
-    final double kV = Constants.SHOOTER_KV * Constants.SHOOTER_GEAR_RATIO;
+    //Feedforward, fitted by the SystemIdentifier if it has been run. Shooter thread only
+    private double kV = Parameters.get("SHOOTER_KV", Constants.SHOOTER_KV * Constants.SHOOTER_GEAR_RATIO);
+    private double kS = Parameters.get("SHOOTER_KS", 0);
     //kV by motor:
     //CIM      = 443 RPM/V
     //RS550    = 1608 RPM/V
     //Mini-CIM = 525 RPM/V
-    double kT = Constants.SHOOTER_KT; 	//Tuning constant for closed loop velocity control
-    double kO = Constants.SHOOTER_KO;  //Tuning constant for open loop failsafe mode control
+    volatile double kO = Parameters.get("SHOOTER_KO", Constants.SHOOTER_KO);  //Tuning constant for open loop failsafe mode control
     final byte SHOOTER_SYNC_GROUP = Constants.SHOOTER_SYNC_GROUP;
     final int SHOOTER_A_ID = Constants.SHOOTER_A_ID;
     final int SHOOTER_B_ID = Constants.SHOOTER_B_ID;
     final int SHOOTER_C_ID = Constants.SHOOTER_C_ID;
-    private double shooter_setpoint;
-    private CANJaguar shooterA = null;
-    private CANJaguar shooterB = null;
-    private CANJaguar shooterC = null;
-    private Solenoid indicator = new Solenoid(Constants.SHOOTER_INDICATOR_PORT);
-    private boolean running = false;
-    private boolean isClosedLoop = true;
-    private boolean initialized = false;
+    //Setpoint mailbox. Written by the main loop, read once per iteration by the shooter thread
+    private volatile double shooter_setpoint;
+    private final RobotHardware hardware;
+    private CanMotorController shooterA = null;
+    private CanMotorController shooterB = null;
+    private CanMotorController shooterC = null;
+    //Configured by the bring-up thread; the shooter thread adopts each one as it comes up
+    private DeviceFuture futureA, futureB, futureC;
+    private BinaryActuator indicator;
+    private volatile boolean isClosedLoop = true;
+    private volatile boolean initialized = false;
     private static Shooter singleInstance = null;
-    private Thread thread = new Thread(this);
-    private double velocity = 0.0;
+    private PeriodicExecutor executor = new PeriodicExecutor(this, Constants.SHOOTER_LOOP_RATE, "Shooter");
     //private FIRFilter velocityFilter = new FIRFilter();
-    private MovingAverage velFilt = new MovingAverage(10);
-    private int stable_counter = 0;
-    public Relay aimLight = new Relay(2);
+    //Status values are read by the CAN poller thread; the control loop only reads the cache
+    private CANSignal positionSignal = CANStatusPoller.getInstance().register(
+            Constants.SHOOTER_A_ID, CANSignal.POSITION, Constants.SHOOTER_POSITION_POLL_RATE);
+    private CANSignal[] currentSignals = {
+        CANStatusPoller.getInstance().register(Constants.SHOOTER_A_ID, CANSignal.OUTPUT_CURRENT, Constants.SHOOTER_CURRENT_POLL_RATE),
+        CANStatusPoller.getInstance().register(Constants.SHOOTER_B_ID, CANSignal.OUTPUT_CURRENT, Constants.SHOOTER_CURRENT_POLL_RATE),
+        CANStatusPoller.getInstance().register(Constants.SHOOTER_C_ID, CANSignal.OUTPUT_CURRENT, Constants.SHOOTER_CURRENT_POLL_RATE)
+    };
+    private CANSignal busVoltageSignal = CANStatusPoller.getInstance().register(
+            Constants.SHOOTER_A_ID, CANSignal.BUS_VOLTAGE, Constants.BUS_VOLTAGE_POLL_RATE);
+    private CANSignal[] driveEncoderSignals = {   //Left on B, right on C
+        CANStatusPoller.getInstance().register(Constants.SHOOTER_B_ID, CANSignal.POSITION, Constants.DRIVE_ENCODER_POLL_RATE),
+        CANStatusPoller.getInstance().register(Constants.SHOOTER_C_ID, CANSignal.POSITION, Constants.DRIVE_ENCODER_POLL_RATE)
+    };
+    //Motor outputs are buffered and written once per iteration by setMotors()
+    private CANCommandBuffer commands;
+    private CANCommand commandA, commandB, commandC;
+    private double[] positionSample = new double[2];
+    private long lastPositionUpdate = -1;
+    private volatile VelocityEstimator velocityEstimator =
+            new LeastSquaresVelocityEstimator(Constants.SHOOTER_VELOCITY_WINDOW);
+    private ReadinessDetector readiness = new ReadinessDetector(Constants.SHOOTER_READY_TOLERANCE,
+            Constants.SHOOTER_READY_EXIT_TOLERANCE, Constants.SHOOTER_READY_TIME);
+    private ShotDetector shots = new ShotDetector();
+    //Feedforward boost timed to each kick, so the wheel pushes back as the disc lands
+    private volatile long lastKick = -1;
+    //Motor model speed estimate, used if the encoder fails
+    private FlywheelObserver observer = new FlywheelObserver(Constants.SHOOTER_KV,
+            Constants.SHOOTER_MOTOR_RESISTANCE, Constants.SHOOTER_GEAR_RATIO, Constants.SHOOTER_COAST_RATE);
+    private double[] currentSample = new double[2];
+    private long lastCurrentUpdate = -1;
+    private boolean wasFaulted = false;
+    private volatile double kickBoost = Constants.SHOOTER_KICK_BOOST;
+    private volatile long kickBoostDelay = Constants.SHOOTER_KICK_BOOST_DELAY;
+    private volatile long kickBoostTime = Constants.SHOOTER_KICK_BOOST_TIME;
+    //Control laws. The main loop requests a change; the shooter thread makes it
+    private BangBangFlywheelController bangBang = new BangBangFlywheelController(kV,
+            Parameters.get("SHOOTER_KT", Constants.SHOOTER_KT));
+    //Runs whenever the encoder is faulted. Bang-bang and take-back-half act on
+    //every wobble in the speed, and the motor model estimate wobbles
+    private GainScheduledFlywheelController scheduled = new GainScheduledFlywheelController(kV,
+            Constants.SHOOTER_SCHEDULE_SPEEDS, Constants.SHOOTER_SCHEDULE_P, Constants.SHOOTER_SCHEDULE_I);
+    private FlywheelController[] controllers = {
+        bangBang,
+        new TakeBackHalfFlywheelController(kV, Constants.SHOOTER_TBH_GAIN),
+        new PIFlywheelController(kV, Constants.SHOOTER_PI_P, Constants.SHOOTER_PI_I),
+        scheduled
+    };
+    private volatile FlywheelController requestedController = bangBang;
+    private volatile double[] requestedFeedforward = null;  //{kV, kS}. Replaced, never modified
+    private double[] feedforward = null;
+    //Open loop voltage for the SystemIdentifier, or NaN for normal control
+    private volatile double testVoltage = Double.NaN;
+    private FlywheelController controller = bangBang;
+    private double lastControlTime = -1;
+    //Time-to-ready and recovery timing, shooter thread only
+    private double lastSetpoint = 0;
+    private boolean wasReady = false;
+    private long spinUpStart = -1;
+    private long statsKick = -1;        //Last kick the stats have seen
+    private long recoveryStart = -1;    //Kick being timed, or -1
+    private double kickSpeed = 0;       //Wheel speed when the disc went in, RPM
+    private boolean kickDipped = false; //The disc has reached the wheel
+    private static final long KICK_TIMEOUT = 1000;  //A kick that hasn't dipped the wheel by now fired nothing, ms
+    private long iteration = 0;
+    //Latest control loop snapshot. Replaced, never modified, once per iteration
+    private volatile ShooterState state = new ShooterState(0, 0, 0, 0, 0, 0, false, 0, 0);
+    public BinaryActuator aimLight;
+    private static final LogSite failsafeLog = new LogSite("[SHOOTER] ", Logger.WARN, 1000);
+    private static final LogSite encoderLog = new LogSite("[SHOOTER] ", Logger.WARN, 1000);
+    //One site per device, so a suppressed count is reported with the device it belongs to
+    private static final LogSite canLogA = new LogSite("[SHOOTER] ", Logger.ERROR, 500);
+    private static final LogSite canLogB = new LogSite("[SHOOTER] ", Logger.ERROR, 500);
+    private static final LogSite canLogC = new LogSite("[SHOOTER] ", Logger.ERROR, 500);
+    private static final LogSite syncLog = new LogSite("[SHOOTER] ", Logger.ERROR, 500);
 
-    public Shooter() // make sure that only this class can make instances of Shooter
-    {
-        //LEAVE THIS BLANK FOR THREADED OPERATION
+    /**
+     * Constructor. Only creates the devices; the Jaguars are configured by
+     * the DeviceBringup thread once it starts
+     * @param hardware the hardware to build the shooter from
+     */
+    public Shooter(RobotHardware hardware) {
+        //DON'T TOUCH THE CAN BUS HERE, FOR THREADED OPERATION
+        this.hardware = hardware;
+        indicator = hardware.getSolenoid(Constants.SHOOTER_INDICATOR_PORT);
+        aimLight = hardware.getRelay(2);
+        commands = new CANCommandBuffer(hardware);
+        commandA = commands.register(Constants.SHOOTER_SYNC_GROUP);
+        commandB = commands.register(Constants.SHOOTER_SYNC_GROUP);
+        commandC = commands.register(Constants.SHOOTER_SYNC_GROUP);
+        DeviceBringup bringup = DeviceBringup.getInstance();
+        futureA = bringup.register("Shooter A", SHOOTER_A_ID, this);
+        futureB = bringup.register("Shooter B", SHOOTER_B_ID, this);
+        futureC = bringup.register("Shooter C", SHOOTER_C_ID, this);
+        for (int i = 0; i < controllers.length; i++) {
+            controllers[i].setFeedforward(kV, kS);
+        }
     }
 
     /** 
@@ -55,7 +158,7 @@ public class Shooter implements Runnable {
      */
     public static Shooter getInstance() {
         if (singleInstance == null) {
-            singleInstance = new Shooter();
+            singleInstance = new Shooter(Hardware.getInstance());
         }
         return singleInstance;
     }
@@ -64,7 +167,7 @@ public class Shooter implements Runnable {
      * Stop running thread
      */
     public synchronized void stop() {
-        running = false;
+        executor.stop();
     }
 
     /**
@@ -72,43 +175,52 @@ public class Shooter implements Runnable {
      * @return flag indicating a successful start
      */
     public synchronized boolean start() {
-        if (!running) {
-            running = true;
-            try {
-                thread.start();
-                System.out.println("Shooter thread started");
-            } catch (Exception error) {
-                System.out.println(error);
-                running = false;
-                return false;
-            }
-        }
         // Tell the calling code that the shooter thread started correctly
-        return true;
+        return executor.start();
+    }
+
+    /**
+     * Returns the executor running the control loop, for rate changes and
+     * overrun/jitter statistics
+     * @return the shooter control loop executor
+     */
+    public PeriodicExecutor getExecutor() {
+        return executor;
     }
 
     /**
      * 
-     * @return a flag indicating a successful initialization
+     * @return a flag indicating all 3 motors are configured and in use
      */
-    public synchronized boolean isInitialized() {
+    public boolean isInitialized() {
         return initialized;
     }
 
     /**
-     * initialize the shooter thread
+     * Picks up Jaguars the bring-up thread has configured, and drops ones
+     * that have been handed back to it. The shooter runs on whichever motors
+     * are up; without motor A there is no encoder, so it runs open loop
      */
-    private void init() {
-        // Don't allow shooter code to run until all 3 motors in the shooter 
-        // are properly configured
-        while (shooterA == null || shooterB == null || shooterC == null) {
-            initialized = false;
-            shooterA = initializeJaguar(shooterA, SHOOTER_A_ID);
-            shooterB = initializeJaguar(shooterB, SHOOTER_B_ID);
-            shooterC = initializeJaguar(shooterC, SHOOTER_C_ID);
+    private void adoptDevices() {
+        shooterA = adopt(shooterA, futureA, commandA);
+        shooterB = adopt(shooterB, futureB, commandB);
+        shooterC = adopt(shooterC, futureC, commandC);
+        boolean all = shooterA != null && shooterB != null && shooterC != null;
+        if (all && !initialized) {
+            System.out.println("Shooter initialized!");
         }
-        initialized = true;
-        System.out.println("Shooter initialized!");
+        initialized = all;
+    }
+
+    private CanMotorController adopt(CanMotorController current, DeviceFuture future, CANCommand command) {
+        int canId = future.getCanId();
+        // A Jag that has been reinitialized too many times is counted out
+        CanMotorController wanted = (getErrorCount(canId) < errorThresh) ? future.get() : null;
+        if (wanted != current) {
+            CANStatusPoller.getInstance().setDevice(canId, wanted);
+            command.setDevice(wanted);
+        }
+        return wanted;
     }
     
     int errorThresh = 10;
@@ -118,8 +230,17 @@ public class Shooter implements Runnable {
      * Returns the calculated velocity. Thread safe version
      * @return 
      */
-    public synchronized double getVelocity() {
-        return velocity;
+    public double getVelocity() {
+        return state.velocity;
+    }
+
+    /**
+     * Returns the snapshot published by the last control loop iteration.
+     * Never blocks; read it once and use its fields for a consistent view
+     * @return the latest shooter state
+     */
+    public ShooterState getState() {
+        return state;
     }
 
     private void incrementErrCount(int CAN_ID) {
@@ -158,112 +279,97 @@ public class Shooter implements Runnable {
     }
 
     /**
-     * Initialize the CAN Jaguars for the shooter in one simple function
-     * @param toBeInitialized
+     * Initialize the CAN Jaguars for the shooter in one simple function.
+     * Called on the bring-up thread
      * @param CAN_ID
+     * @param toBeInitialized
      * @return 
      */
-    private CANJaguar initializeJaguar(CANJaguar toBeInitialized, int CAN_ID) {
+    public CanMotorController initialize(int CAN_ID, CanMotorController toBeInitialized) throws DeviceException {
+        if (toBeInitialized == null) {
+            toBeInitialized = hardware.getJaguar(CAN_ID, CanMotorController.PERCENT_VBUS);
+        }
 
+        if (toBeInitialized.getPowerCycled()) // Should be true on first call; like if the bot was just turned on, or a brownout.
+        {
+            toBeInitialized.configNeutralMode(false);    //Coast to prevent shock loading
+//            // Change Jag to position mode, so that the encoder configuration can be stored in its RAM
+            toBeInitialized.changeControlMode(CanMotorController.POSITION); //Position mode to get encoder input
+            toBeInitialized.setPositionReference(CanMotorController.QUAD_ENCODER); //quad encoder config'd
+            toBeInitialized.configEncoderCodesPerRev(360);      //we use a 360 CPR encoder
+            toBeInitialized.changeControlMode(CanMotorController.PERCENT_VBUS);  //back to percentVBus so we can use our own algorithm
+            toBeInitialized.setVoltageRampRate(0.0);    //VRamp configuration, maybe no ramp at all
+            toBeInitialized.configFaultTime(0.5); //0.5 second is min time.
+        }
+        return toBeInitialized;
+    }
+
+    /**
+     * Hands a Jaguar that failed back to the bring-up thread. The shooter
+     * thread drops it until it has been reconfigured
+     * @param CAN_ID
+     */
+    private void reinitialize(int CAN_ID) {
         incrementErrCount(CAN_ID); // record how many times this jag has been reinitialized.
         // if the count is less than the threshold, try again.
         // otherwise, count this Jag out, and don't saturate the CAN bus trying 
         // to reconfigure it again and again
         if (getErrorCount(CAN_ID) < errorThresh) {
-            try {
-                if (toBeInitialized == null) {
-                    toBeInitialized = new CANJaguar(CAN_ID, CANJaguar.ControlMode.kPercentVbus);
-                }
-
-                if (toBeInitialized.getPowerCycled()) // Should be true on first call; like if the bot was just turned on, or a brownout.
-                {
-                    toBeInitialized.configNeutralMode(CANJaguar.NeutralMode.kCoast);    //Coast to prevent shock loading
-//                    // Change Jag to position mode, so that the encoder configuration can be stored in its RAM
-                    toBeInitialized.changeControlMode(CANJaguar.ControlMode.kPosition); //Position mode to get encoder input
-                    toBeInitialized.setPositionReference(CANJaguar.PositionReference.kQuadEncoder); //quad encoder config'd
-                    toBeInitialized.configEncoderCodesPerRev(360);      //we use a 360 CPR encoder
-                    toBeInitialized.changeControlMode(CANJaguar.ControlMode.kPercentVbus);  //back to percentVBus so we can use our own algorithm
-                    toBeInitialized.setVoltageRampRate(0.0);    //VRamp configuration, maybe no ramp at all
-                    toBeInitialized.configFaultTime(0.5); //0.5 second is min time.
-                }
-            } catch (Throwable e) {
-                toBeInitialized = null; // If a jaguar fails to be initialized, then set it to null, and try initializing at a later time
-                System.err.println("Jaguar Init CAN ERROR. ID: " + CAN_ID);
-                System.out.println(e);
+            if (CAN_ID == SHOOTER_A_ID) {
+                DeviceBringup.getInstance().retry(futureA);
+            } else if (CAN_ID == SHOOTER_B_ID) {
+                DeviceBringup.getInstance().retry(futureB);
+            } else if (CAN_ID == SHOOTER_C_ID) {
+                DeviceBringup.getInstance().retry(futureC);
             }
         }
-
-        return toBeInitialized;
     }
 
     /**
-     * Thread run method. 
+     * Thread run method. Called once per period by the executor, which keeps
+     * the loop at a constant Constants.SHOOTER_LOOP_RATE
      */
     public void run() {
-        init();
-        while (running && initialized) {
-            long startTime = System.currentTimeMillis();
-            velocityControl(shooter_setpoint);
-            long endTime = System.currentTimeMillis();
-            
-            long dT = endTime - startTime;
-            // Try to keep execution rate at a constant 100Hz.
-            // If a thread execution takes longer, it starts the next iteration sooner
-            // or if it takes shorter, it starts later.
-            try {
-                Thread.sleep(Math.abs(Math.min(0, 10 - dT)));//1 / (10 mS) = 100 Hz; code iterates 100 times per second
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
+        adoptDevices();
+        velocityControl(shooter_setpoint);
     }
     
     long aimStart = 0;
     long MIN_AIM_TIME = 500;
     public void setAimLight(boolean state) {
         if(state) {
-            aimStart = System.currentTimeMillis();
-            aimLight.set(Relay.Value.kForward);
+            aimStart = Clock.millis();
+            aimLight.set(true);
         } else {
-            if(System.currentTimeMillis() - aimStart > MIN_AIM_TIME) {
-                aimLight.set(Relay.Value.kOff);
+            if(Clock.millis() - aimStart > MIN_AIM_TIME) {
+                aimLight.set(false);
             }
         }
     }
     
     /**
-     * Drivetrain encoders are plugged into the shooter jaguars for wiring simplicity
-     * @return the left drivetrain encoder position
+     * Drivetrain encoders are plugged into the shooter jaguars for wiring simplicity.
+     * Returns the poller's cached reading; does not touch the CAN bus
+     * @return the left drivetrain encoder position, -1 if it is not being read
      */
-    public synchronized double getLeftDriveEncoder() {
-        double answer = -1;
-        try {
-            answer = shooterB.getPosition();
-        } catch(Throwable t) {
-            shooterB = this.initializeJaguar(shooterB, SHOOTER_B_ID);
-        }
-        return answer;
+    public double getLeftDriveEncoder() {
+        return driveEncoderSignals[0].isValid() ? driveEncoderSignals[0].getValue() : -1;
     }
     
     /**
-     * Drivetrain encoders are plugged into the shooter jaguars for wiring simplicity
-     * @return the right drivetrain encoder position
+     * Drivetrain encoders are plugged into the shooter jaguars for wiring simplicity.
+     * Returns the poller's cached reading; does not touch the CAN bus
+     * @return the right drivetrain encoder position, -1 if it is not being read
      */
-    public synchronized double getRightDriveEncoder() {
-        double answer = -1;
-        try {
-            answer = shooterC.getPosition();
-        } catch(Throwable t) {
-            shooterC = this.initializeJaguar(shooterC, SHOOTER_C_ID);
-        }
-        return answer;
+    public double getRightDriveEncoder() {
+        return driveEncoderSignals[1].isValid() ? driveEncoderSignals[1].getValue() : -1;
     }
 
     /**
      * Sets the target velocity
      * @param newSetpoint target vel in RPM
      */
-    public synchronized void setShooterSpeed(double newSetpoint) {
+    public void setShooterSpeed(double newSetpoint) {
         shooter_setpoint = newSetpoint;
     }
 
@@ -271,45 +377,49 @@ public class Shooter implements Runnable {
      * 
      * @return the set velocity
      */
-    public synchronized double getShooterSetSpeed() {
+    public double getShooterSetSpeed() {
         return shooter_setpoint;
     }
-    private double vel = 0;
-    private final double a = 0.0;
-    private double prevT = System.currentTimeMillis();
-    private double pos = 0, prevPos = 0;
+    /**
+     * Replaces the velocity estimator used by the control loop. The new
+     * estimator is reset and picked up on the next iteration
+     * @param estimator the new estimator
+     */
+    public void setVelocityEstimator(VelocityEstimator estimator) {
+        estimator.reset();
+        velocityEstimator = estimator;
+    }
+
+    /**
+     * @return the velocity estimator used by the control loop
+     */
+    public VelocityEstimator getVelocityEstimator() {
+        return velocityEstimator;
+    }
+
     /**
      * Gets the rotational velocity of the encoder
      * @return 
      */
     private double getEncoderRate() {
-        try {
-            prevPos = pos;
-            pos = shooterA.getPosition(); // is it ShooterA's jag that has the encoder?
-            //System.out.println("ShooterEncoderPosition: " + pos);
-            //Probably. Will change if different
-            double time = System.currentTimeMillis();
-            double newVel = (pos - prevPos) / (((time - prevT) * (.0000166666666))); //Velocity is change in position divided by change in unit time, converted to minutes
-            prevT = time;
-
-            //vel = velocityFilter.filter(newVel);
-            vel = velFilt.calculate(newVel);
-            //vel = newVel;
-
-            //vel /= 2;			//Testing showed that output was approx 2x of actual
-            if (Math.abs(vel) < 50) {	//zero out any unusually tiny outputs
-                vel = 0;
-            }
-            vel *= -2;
-            velocity = vel;
-            return vel;
-        } catch (Throwable e) {
-            shooterA = initializeJaguar(shooterA, SHOOTER_A_ID);
-            System.err.println("Error in Velocity calculations");
-            System.out.println(e);
+        // ShooterA's jag has the encoder. The poller samples it; the sample
+        // carries the Clock time it was read at. On the robot that is FPGA time, with microsecond resolution
+        if (!positionSignal.isValid()) {
+            return 0.0; //Returns 0 if the encoder is not being read
         }
+        VelocityEstimator estimator = velocityEstimator;
+        long update = positionSignal.read(positionSample);
+        if (update != lastPositionUpdate) {     //Only feed the estimator new samples
+            lastPositionUpdate = update;
+            estimator.update(positionSample[0], positionSample[1]);
+        }
+        double vel = estimator.getVelocity() * 60.0;       //Rotations per second to RPM
 
-        return 0.0; //Returns 0 if there was a fault in above code
+        if (Math.abs(vel) < Constants.SHOOTER_VELOCITY_DEADBAND) {	//zero out any unusually tiny outputs
+            vel = 0;
+        }
+        vel *= Constants.SHOOTER_ENCODER_SCALE;
+        return vel;
     }
     private double error = 0;
 
@@ -318,46 +428,125 @@ public class Shooter implements Runnable {
      * @param kT Closed loop tuning constant
      * @param kO Open loop tuning constant
      */
-    public synchronized void setTuningConstants(double kT, double kO) {
-        this.kT = kT;
+    public void setTuningConstants(double kT, double kO) {
+        bangBang.setKT(kT);
         this.kO = kO;
     }
+
+    /**
+     * Requests a new control law. The shooter thread resets it and switches
+     * over on its next iteration. While the encoder is faulted the gain
+     * scheduled controller runs instead, and this one comes back after
+     * @param newController one of getControllers(), or any other control law
+     */
+    public void setController(FlywheelController newController) {
+        requestedController = newController;
+    }
+
+    /**
+     * Replaces the feedforward model for every control law. The shooter
+     * thread picks it up on its next iteration
+     * @param kV wheel RPM per volt
+     * @param kS volts to overcome friction
+     */
+    public void setFeedforward(double kV, double kS) {
+        requestedFeedforward = new double[]{kV, kS};
+    }
+
+    /**
+     * Runs the motors open loop at a fixed voltage instead of controlling
+     * speed, for system identification. Speed is still measured
+     * @param volts voltage to apply, compensated for the bus voltage. NaN
+     * goes back to normal control
+     */
+    public void setTestVoltage(double volts) {
+        testVoltage = volts;
+    }
+
+    /**
+     * @return the control law requested most recently
+     */
+    public FlywheelController getController() {
+        return requestedController;
+    }
+
+    /**
+     * @return the control laws the shooter ships with, bang-bang first
+     */
+    public FlywheelController[] getControllers() {
+        return controllers;
+    }
     
     /**
      * Velocity control loop
      * @param setpoint target velocity
      */
     private void velocityControl(double setpoint) {
+        double currentA = this.getCurrent(0);
+        double currentB = this.getCurrent(1);
+        double currentC = this.getCurrent(2);
+        int running = (shooterA != null ? 1 : 0) + (shooterB != null ? 1 : 0) + (shooterC != null ? 1 : 0);
+        double currentDraw = (currentA + currentB + currentC) / Math.max(running, 1);   //Mean of the motors in use
+
         double rate = getEncoderRate();
-        velocity = rate;
+        long currentUpdate = currentSignals[0].read(currentSample);
+        if (currentUpdate != lastCurrentUpdate) {   //Only feed the observer new samples
+            lastCurrentUpdate = currentUpdate;
+            observer.update(currentDraw, getBusVoltage(), currentSample[1]);
+        }
+        boolean faulted = observer.checkEncoder(rate, Clock.millis());
+        if (faulted != wasFaulted) {
+            wasFaulted = faulted;
+            controller.reset();     //Its state was built on the other speed source
+        }
+        if (faulted) {
+            rate = observer.getEstimate();  //Encoder has failed; stay closed loop on the motor model
+            encoderLog.log("Shooter encoder faulted, running gain scheduled on the motor model");
+        }
         error = rate-setpoint;	//Calculate error
         double output = 0.0;				//initialize output
         
 
+        double[] ff = requestedFeedforward;
+        if (ff != feedforward) {
+            feedforward = ff;
+            kV = ff[0];
+            kS = ff[1];
+            for (int i = 0; i < controllers.length; i++) {
+                controllers[i].setFeedforward(kV, kS);
+            }
+        }
+
         double feedFwd;
-        feedFwd = (Math.abs(setpoint) / kV);
+        feedFwd = (Math.abs(setpoint) / kV + kS);
         feedFwd = fromVolts(feedFwd);
-        //feedFwd *= kT;
 
-        //If the shooter is spinning slower than the setpoint, then apply full
-        // power. Else, go with the feed forward amount.
-        double speedScalar = 1;
-        if(Math.abs(setpoint) < 2000) {
-            speedScalar = .3;
+        FlywheelController wanted = faulted ? scheduled : requestedController;
+        if (wanted != controller) {
+            controller = wanted;
+            controller.reset();
+            spinUpStart = -1;   //Don't charge the new controller for the old one's spin-up
+            recoveryStart = -1;
         }
-        
-        if(EagleMath.signum(setpoint) > 0) {
-            output = ((error < 0) ? maxSpeed*speedScalar : feedFwd * kT);
+        double now = Clock.seconds();
+        double dt = (lastControlTime < 0) ? 1.0 / Constants.SHOOTER_LOOP_RATE : now - lastControlTime;
+        lastControlTime = now;
+        output = controller.calculate(setpoint, rate, getBusVoltage(), dt);
+
+        //The estimate is good enough to control on, but not to promise a shot
+        //will go where it is aimed, or to tell a shot from the encoder failing
+        boolean estimated = isClosedLoop && observer.isEncoderSuspect();
+        if (setpoint != lastSetpoint || estimated) {
+            readiness.reset(Clock.millis());    //Ready was for the old setpoint. updateStats() moves lastSetpoint on
+        }
+        boolean ready = !estimated && readiness.update(error, !isClosedLoop, Clock.millis());
+        if (estimated) {
+            shots.disarm();
         } else {
-            output = ((error > 0) ? -maxSpeed*speedScalar : -feedFwd * kT);
+            shots.update(setpoint, rate, currentDraw, ready, lastKick, Clock.millis());
         }
-        
-        double currentDraw = this.getCurrent(0) + 
-                this.getCurrent(1) +
-                this.getCurrent(2);
-        currentDraw /= 3;
-        
-        indicator.set(isAtTargetSpeed() || Math.abs(currentDraw) < 10.0);
+
+        indicator.set(ready || Math.abs(currentDraw) < 10.0);
         
         
 
@@ -366,10 +555,11 @@ public class Shooter implements Runnable {
           //  System.out.println("Shooter in open loop/feed fwd mode");
             //maybe scale it a bit differently once we are relying on it for speed control
             output = feedFwd * kO*EagleMath.signum(setpoint);
+            controller.reset();     //Start clean once the encoder is back
             if (!isClosedLoop) // if we are running in open loop mode, don't print that we are in failsafe, as the operator should be 
             // aware of the malfunction, or has decided that they like open loop control.
             {
-                System.err.println("Shooter velocity control in failsafe mode");
+                failsafeLog.log("Shooter velocity control in failsafe mode");
 
                 // This is a failsafe mechanism.
                 // If the encoder has failed, and is not returning any rate, this code will run.
@@ -384,30 +574,151 @@ public class Shooter implements Runnable {
         
         if(Math.abs(setpoint) < 50) {
             output = 0;
+            controller.reset();
         }
         
+        output = applyKickBoost(output, setpoint);
+        double test = testVoltage;
+        if (!Double.isNaN(test)) {
+            output = EagleMath.cap(test / getBusVoltage(), -1.0, 1.0);
+        }
+        observer.outputSent(output, Clock.seconds());
         setMotors(output*1);//EagleMath.signum(setpoint));
+        updateStats(setpoint, rate, ready);
+
+        iteration++;
+        state = new ShooterState(rate, setpoint, error, currentA, currentB, currentC,
+                ready, Clock.seconds(), iteration);
     }
 
     /**
-     * 
-     * @return a flag indicating shooter is at target speed
+     * Adds the kick boost while it is due
+     * @param output controller output
+     * @param setpoint target velocity
+     * @return the output to send
      */
-    public synchronized boolean isAtTargetSpeed() {
-        boolean flag = (Math.abs(error) < 700) || !isClosedLoop;
-        if(flag) {
-            this.stable_counter++;
-        } else {
-            this.stable_counter = 0;
+    private double applyKickBoost(double output, double setpoint) {
+        long kick = lastKick;
+        if (kick < 0 || Math.abs(setpoint) < 50) {
+            return output;
+        }
+        long sinceKick = Clock.millis() - kick;
+        if (sinceKick < kickBoostDelay || sinceKick >= kickBoostDelay + kickBoostTime) {
+            return output;
+        }
+        return EagleMath.cap(output + kickBoost * EagleMath.signum(setpoint), -1.0, 1.0);
+    }
+
+    /**
+     * Called by the feeder when the kicker fires. Schedules the kick boost;
+     * the shooter thread applies it
+     * @param timestamp Clock time of the kick, ms
+     */
+    public void kickerFired(long timestamp) {
+        lastKick = timestamp;
+    }
+
+    /**
+     * Tunes the kick boost
+     * @param boost output added while the boost runs, 0 to disable
+     * @param delay time from the kick to the start of the boost, ms. Set to
+     * the kicker-to-contact delay, which getShots().getKickToShot() bounds
+     * @param duration how long the boost runs, ms
+     */
+    public void setKickBoost(double boost, long delay, long duration) {
+        kickBoost = boost;
+        kickBoostDelay = delay;
+        kickBoostTime = duration;
+    }
+
+    /**
+     * Times spin-up and shot recovery for the active controller. Recovery
+     * runs from a kick until the error is back inside
+     * SHOOTER_READY_TOLERANCE and the wheel is back within
+     * SHOOTER_SHOT_RECOVERY_TOLERANCE of its speed when the disc went in.
+     * Readiness can't time it: the exit tolerance is wider than most dips,
+     * so a shot seldom drops the shooter out of ready
+     */
+    private void updateStats(double setpoint, double rate, boolean ready) {
+        long now = Clock.millis();
+        double speed = (setpoint < 0) ? -rate : rate;
+        long kick = lastKick;
+        if (setpoint != lastSetpoint) {
+            spinUpStart = (Math.abs(setpoint) < 50) ? -1 : now;
+            recoveryStart = -1;
+            lastSetpoint = setpoint;
+            wasReady = false;   //A wheel already in the new band counts as ready immediately
+        }
+        if (ready && !wasReady && spinUpStart >= 0) {
+            controller.getStats().recordTimeToReady(now - spinUpStart);
+            spinUpStart = -1;
+        }
+        wasReady = ready;
+
+        if (kick != statsKick) {
+            statsKick = kick;
+            if (spinUpStart < 0 && Math.abs(setpoint) >= 50) {
+                recoveryStart = kick;
+                kickSpeed = speed;
+                kickDipped = false;
+            }
         }
-        return flag && this.stable_counter >= 25;
+        if (recoveryStart < 0) {
+            return;
+        }
+        if (!kickDipped) {
+            kickSpeed = Math.max(kickSpeed, speed);     //Speed at contact, if it was still speeding up
+            kickDipped = speed < kickSpeed - Constants.SHOOTER_SHOT_DIP;
+            if (!kickDipped && now - recoveryStart >= KICK_TIMEOUT) {
+                recoveryStart = -1;     //Empty kick
+            }
+        } else if (Math.abs(rate - setpoint) < Constants.SHOOTER_READY_TOLERANCE
+                && speed >= kickSpeed - Constants.SHOOTER_SHOT_RECOVERY_TOLERANCE) {
+            controller.getStats().recordRecovery(now - recoveryStart);
+            recoveryStart = -1;
+        }
+    }
+
+    /**
+     * The wheel counts as ready once it has been within
+     * SHOOTER_READY_TOLERANCE for SHOOTER_READY_TIME, and stays ready until
+     * the error leaves SHOOTER_READY_EXIT_TOLERANCE. A new setpoint starts
+     * it over, and it is false until the control loop has run with the
+     * setpoint last set, so a caller that just changed it never sees the
+     * old setpoint's readiness
+     * @return a flag indicating shooter is at target speed
+     */
+    public boolean isAtTargetSpeed() {
+        ShooterState current = state;
+        return current.ready && current.setpoint == shooter_setpoint;
+    }
+
+    /**
+     * @return the readiness detector, to wait on or subscribe to ready events
+     */
+    public ReadinessDetector getReadiness() {
+        return readiness;
+    }
+
+    /**
+     * @return the motor model observer, with the speed estimate and encoder fault state
+     */
+    public FlywheelObserver getObserver() {
+        return observer;
+    }
+
+    /**
+     * @return the shot detector, with dip, recovery and shot interval histograms
+     */
+    public ShotDetector getShots() {
+        return shots;
     }
 
     /**
      * enables or disables closed loop control
      * @param flag 
      */
-    public synchronized void setIsClosedLoop(boolean flag) {
+    public void setIsClosedLoop(boolean flag) {
         isClosedLoop = flag;
     }
 
@@ -420,69 +731,69 @@ public class Shooter implements Runnable {
         return input / 12.0;
     }
     
+    /**
+     * Returns the cached output current of a shooter motor. Does not touch the CAN bus
+     * @param motor motor index, 0-2
+     * @return output current in amps, 0 if it is not being read
+     */
     public double getCurrent(int motor) {
-        double answer = 0;
-        CANJaguar thisJag = null;
-        if(motor == 0) {
-            thisJag = shooterA;
-        } else if(motor == 1) {
-            thisJag = shooterB;
-        } else if(motor == 2) {
-            thisJag = shooterC;
+        if (motor < 0 || motor >= currentSignals.length || !currentSignals[motor].isValid()) {
+            return 0;
         }
-        try {
-            answer = thisJag.getOutputCurrent();
-        } catch (Throwable e) {
-                System.err.println("CAN ERROR");
-                System.out.println(e);
+        return currentSignals[motor].getValue();
+    }
+
+    /**
+     * @return the cached battery voltage at the shooter Jaguars, 12 if it is not being read
+     */
+    public double getBusVoltage() {
+        if (!busVoltageSignal.isValid()) {
+            return 12.0;
         }
-        return answer;
+        return busVoltageSignal.getValue();
     }
 
     /**
-     * output signal to the shooter motors
+     * output signal to the shooter motors. Only call this from the shooter thread
      * @param output 
      */
     public void setMotors(double output) {
         output *=-1;
         if (getErrorCount(SHOOTER_A_ID) < errorThresh) {
-            try {
-                shooterA.setX(output, (byte) SHOOTER_SYNC_GROUP);
-            } catch (Throwable e) {
-                shooterA = initializeJaguar(shooterA, SHOOTER_A_ID);
-                System.err.println("Shooter motor A CAN ERROR");
-                System.out.println(e);
-            }
+            commandA.set(output);
         }
         if (getErrorCount(SHOOTER_B_ID) < errorThresh) {
-            try {
-                shooterB.setX(output, (byte) SHOOTER_SYNC_GROUP);
-            } catch (Throwable e) {
-                shooterB = initializeJaguar(shooterB, SHOOTER_B_ID);
-                System.err.println("Shooter motor B CAN ERROR");
-                System.out.println(e);
-            }
+            commandB.set(output);
         }
         if (getErrorCount(SHOOTER_C_ID) < errorThresh) {
-            try {
-                shooterC.setX(output, (byte) SHOOTER_SYNC_GROUP);
-            } catch (Throwable e) {
-                shooterC = initializeJaguar(shooterC, SHOOTER_C_ID);
-                System.err.println("Shooter motor C CAN ERROR");
-                System.out.println(e);
-            }
+            commandC.set(output);
         }
 
-        try {
-            // Only update the shooter values if one (or more) of the shooter motors are active.
-            if (getErrorCount(SHOOTER_A_ID) < errorThresh
-                    || getErrorCount(SHOOTER_B_ID) < errorThresh
-                    || getErrorCount(SHOOTER_C_ID) < errorThresh) {
-                CANJaguar.updateSyncGroup((byte) SHOOTER_SYNC_GROUP);
-            }
-        } catch (Throwable e) {
-            System.err.println("Shooter Sync group CAN ERROR. Take note if this prints...");
-            System.out.println(e);
+        // Unchanged outputs are dropped, and the sync group is only updated
+        // if one (or more) of the shooter motors was sent a new value.
+        commands.flush();
+
+        if (commandA.takeFailure()) {
+            reinitialize(SHOOTER_A_ID);
+            canLogA.log("Shooter motor A CAN ERROR");
+        }
+        if (commandB.takeFailure()) {
+            reinitialize(SHOOTER_B_ID);
+            canLogB.log("Shooter motor B CAN ERROR");
+        }
+        if (commandC.takeFailure()) {
+            reinitialize(SHOOTER_C_ID);
+            canLogC.log("Shooter motor C CAN ERROR");
+        }
+        if (commands.takeSyncFailure()) {
+            syncLog.log("Shooter Sync group CAN ERROR. Take note if this prints...");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * @return the buffer the shooter motor outputs are written through
+     */
+    public CANCommandBuffer getCommandBuffer() {
+        return commands;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems;
+
+/**
+ * Immutable snapshot of the shooter control loop state. A new snapshot is
+ * published by the shooter thread once per iteration, so readers always see
+ * a consistent set of values without taking the shooter's monitor.
+ * @author Jeremy
+ */
+public class ShooterState {
+
+    public final double velocity;   //Measured wheel velocity, RPM
+    public final double setpoint;   //Setpoint the iteration ran with, RPM
+    public final double error;      //velocity - setpoint, RPM
+    public final double currentA;   //Output current per motor, amps
+    public final double currentB;
+    public final double currentC;
+    public final boolean ready;     //Wheel is stable at the setpoint
+    public final double timestamp;  //Time the snapshot was taken, Clock.seconds()
+    public final long iteration;    //Control loop iteration number
+
+    public ShooterState(double velocity, double setpoint, double error,
+            double currentA, double currentB, double currentC,
+            boolean ready, double timestamp, long iteration) {
+        this.velocity = velocity;
+        this.setpoint = setpoint;
+        this.error = error;
+        this.currentA = currentA;
+        this.currentB = currentB;
+        this.currentC = currentC;
+        this.ready = ready;
+        this.timestamp = timestamp;
+        this.iteration = iteration;
+    }
+
+    /**
+     * Returns the output current of one of the shooter motors
+     * @param motor motor index, 0-2
+     * @return output current in amps
+     */
+    public double getCurrent(int motor) {
+        if (motor == 0) {
+            return currentA;
+        } else if (motor == 1) {
+            return currentB;
+        } else if (motor == 2) {
+            return currentC;
+        }
+        return 0;
+    }
+}
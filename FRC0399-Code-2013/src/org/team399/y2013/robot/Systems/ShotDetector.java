@@ -0,0 +1,240 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems;
+
+import org.team399.y2013.Utilities.Histogram;
+import org.team399.y2013.robot.Constants;
+
+/**
+ * Detects discs leaving the shooter wheel. Updated once per iteration by the
+ * shooter thread.
+ *
+ * A shot is a sharp drop in velocity together with a rise in motor current,
+ * both measured against baselines tracked while the wheel is ready and
+ * holding a constant setpoint. Requiring both keeps encoder glitches and
+ * setpoint changes from counting. Each kick latches the baselines at the
+ * speed and current just before it, so a shot is measured against where the
+ * wheel was when its disc went in, wherever in its ripple that was. Each
+ * shot records its dip depth, the time to get back within
+ * SHOOTER_SHOT_RECOVERY_TOLERANCE of the pre-shot speed, and the time since
+ * the previous shot. A shot that has not recovered by RECOVERY_TIMEOUT, or
+ * by the next kick, is counted as a timeout instead of a recovery.
+ * @author Jeremy
+ */
+public class ShotDetector {
+
+    private static final int DISARMED = 0;  //Not ready, or the setpoint changed
+    private static final int ARMED = 1;     //Tracking baselines, watching for a shot
+    private static final int SHOT = 2;      //Shot detected, waiting for recovery
+    private static final double BASELINE_GAIN = 0.05;   //Baseline filter gain per iteration
+    private static final long RECOVERY_TIMEOUT = 1000;  //A shot not recovered by now is counted as a timeout, ms
+    private static final long KICK_WINDOW = 500;        //A shot this soon after a kick was fired by it, ms
+    private int phase = DISARMED;
+    private double lastSetpoint = 0;
+    private double velocityBaseline = 0;
+    private double currentBaseline = 0;
+    private long dipTime = -1;      //Time the velocity dropped past the threshold
+    private long spikeTime = -1;    //Time the current rose past the threshold
+    private long shotTime = -1;
+    private long lastShotTime = -1;
+    private long kickSeen = -1;     //Last kick the baselines were latched for
+    private double deepest = 0;
+    private volatile int shotCount = 0;
+    private volatile int timeouts = 0;
+    private final Histogram dipDepth = new Histogram(25, 80);   //RPM
+    private final Histogram recovery = new Histogram(10, 100);  //ms
+    private final Histogram interval = new Histogram(50, 100);  //ms
+    private final Histogram kickToShot = new Histogram(10, 50); //ms
+
+    /**
+     * Updates the detector. Only called by the shooter thread
+     * @param setpoint shooter setpoint, RPM
+     * @param velocity measured velocity, RPM
+     * @param current mean motor current, amps
+     * @param ready shooter readiness this iteration
+     * @param lastKick Clock time of the last kick, ms, or -1 if none
+     * @param now Clock time, ms
+     */
+    void update(double setpoint, double velocity, double current, boolean ready, long lastKick, long now) {
+        if (setpoint != lastSetpoint || Math.abs(setpoint) < 50) {
+            lastSetpoint = setpoint;
+            phase = DISARMED;   //A shot in progress has no recovery to record
+            return;
+        }
+        double speed = (setpoint < 0) ? -velocity : velocity;
+        boolean kicked = lastKick != kickSeen;
+        kickSeen = lastKick;
+
+        if (kicked && phase == SHOT) {
+            endShot(false, now);    //The next disc is on its way; rearming latches new baselines
+        }
+        if (phase == DISARMED) {
+            if (ready) {
+                velocityBaseline = speed;
+                currentBaseline = current;
+                dipTime = -1;
+                spikeTime = -1;
+                phase = ARMED;
+            }
+        } else if (phase == ARMED) {
+            if (!ready && dipTime < 0 && spikeTime < 0) {
+                phase = DISARMED;   //A dip deep enough to end readiness stays armed for its current rise
+                return;
+            }
+            if (kicked) {
+                velocityBaseline = speed;   //The disc reaches the wheel after this
+                currentBaseline = current;
+                dipTime = -1;
+                spikeTime = -1;
+            }
+            double dip = velocityBaseline - speed;
+            if (dip > Constants.SHOOTER_SHOT_DIP) {
+                if (dipTime < 0) {
+                    dipTime = now;
+                }
+            } else {
+                dipTime = -1;
+            }
+            if (current - currentBaseline > Constants.SHOOTER_SHOT_CURRENT_RISE) {
+                if (spikeTime < 0) {
+                    spikeTime = now;
+                }
+            } else if (spikeTime >= 0 && now - spikeTime > Constants.SHOOTER_SHOT_WINDOW) {
+                spikeTime = -1;
+            }
+
+            if (dipTime >= 0 && spikeTime >= 0
+                    && Math.abs(dipTime - spikeTime) <= Constants.SHOOTER_SHOT_WINDOW) {
+                shotTime = Math.min(dipTime, spikeTime);
+                if (lastShotTime >= 0) {
+                    interval.add(shotTime - lastShotTime);
+                }
+                lastShotTime = shotTime;
+                if (lastKick >= 0 && shotTime >= lastKick && shotTime - lastKick < KICK_WINDOW) {
+                    kickToShot.add(shotTime - lastKick);
+                }
+                deepest = dip;
+                shotCount++;
+                phase = SHOT;
+            } else if (lastKick >= 0 && now - lastKick < KICK_WINDOW) {
+                //Hold the pre-kick baselines until the disc has had time to land, but
+                //follow a wheel still speeding up, so the dip is from its speed at contact
+                if (dipTime < 0) {
+                    velocityBaseline = Math.max(velocityBaseline, speed);
+                }
+            } else if (dipTime >= 0 && now - dipTime > Constants.SHOOTER_SHOT_WINDOW) {
+                velocityBaseline = speed;   //Settled lower with no current rise; not a shot
+                dipTime = -1;
+            } else if (spikeTime >= 0 && now - spikeTime > Constants.SHOOTER_SHOT_WINDOW) {
+                currentBaseline = current;  //Settled at a higher load with no drop in speed
+                spikeTime = -1;
+            } else if (dipTime < 0 && spikeTime < 0) {
+                //Quiet; follow slow drift in speed and load
+                velocityBaseline += BASELINE_GAIN * (speed - velocityBaseline);
+                currentBaseline += BASELINE_GAIN * (current - currentBaseline);
+            }
+        } else {
+            double dip = velocityBaseline - speed;
+            if (dip > deepest) {
+                deepest = dip;
+            }
+            if (dip < Constants.SHOOTER_SHOT_RECOVERY_TOLERANCE) {
+                endShot(true, now);
+            } else if (now - shotTime >= RECOVERY_TIMEOUT) {
+                endShot(false, now);
+            }
+        }
+    }
+
+    /**
+     * Stops watching until the shooter is ready again, dropping any shot in
+     * progress. For when the speed can't be trusted. Only called by the
+     * shooter thread
+     */
+    void disarm() {
+        phase = DISARMED;
+    }
+
+    /**
+     * Records the shot in progress and disarms, so the baselines are taken
+     * again from after the shot rather than kept from before it
+     * @param recovered true if the wheel got back up to speed
+     */
+    private void endShot(boolean recovered, long now) {
+        dipDepth.add(deepest);
+        if (recovered) {
+            recovery.add(now - shotTime);
+        } else {
+            timeouts++;     //Kept out of the histogram, where it would pass for a slow recovery
+        }
+        dipTime = -1;
+        spikeTime = -1;
+        phase = DISARMED;
+    }
+
+    /**
+     * @return shots detected since the last reset
+     */
+    public int getShotCount() {
+        return shotCount;
+    }
+
+    /**
+     * @return deepest velocity drop of each shot, RPM
+     */
+    public Histogram getDipDepth() {
+        return dipDepth;
+    }
+
+    /**
+     * @return time from each shot until the wheel was back within tolerance,
+     * ms. Shots that never got back are counted by getRecoveryTimeouts()
+     */
+    public Histogram getRecovery() {
+        return recovery;
+    }
+
+    /**
+     * @return shots since the last reset that had not recovered after
+     * RECOVERY_TIMEOUT, or when the next disc was kicked
+     */
+    public int getRecoveryTimeouts() {
+        return timeouts;
+    }
+
+    /**
+     * @return time between consecutive shots, ms
+     */
+    public Histogram getInterval() {
+        return interval;
+    }
+
+    /**
+     * @return time from each kick to the shot it fired, ms. Includes the
+     * velocity estimate's lag, so it is an upper bound on kicker-to-contact
+     */
+    public Histogram getKickToShot() {
+        return kickToShot;
+    }
+
+    /**
+     * Clears the histograms. The detector state is left alone
+     */
+    public void reset() {
+        shotCount = 0;
+        timeouts = 0;
+        lastShotTime = -1;
+        dipDepth.reset();
+        recovery.reset();
+        interval.reset();
+        kickToShot.reset();
+    }
+
+    public String toString() {
+        return shotCount + " shots, dip " + dipDepth + " RPM, recovery " + recovery
+                + " ms (" + timeouts + " timed out), interval " + interval + " ms, kick to shot "
+                + kickToShot + " ms";
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems.Simulation;
+
+import org.team399.y2013.Utilities.Clock;
+import org.team399.y2013.Utilities.VirtualTimeSource;
+import org.team399.y2013.robot.Constants;
+import org.team399.y2013.robot.Systems.Arm;
+import org.team399.y2013.robot.Systems.CANStatusPoller;
+import org.team399.y2013.robot.Systems.DeviceBringup;
+import org.team399.y2013.robot.Systems.HAL.FakeRobotHardware;
+
+/* HOW TO USE:
+ *  Runs on a desktop JVM with the robot classes on the classpath:
+ *      java org.team399.y2013.robot.Systems.Simulation.ArmBenchmark [jaguar|crio|all]
+ *  Defaults to both modes, each on a fresh model.
+ */
+/**
+ * Offline benchmark of the arm control modes against the arm simulator.
+ * The real Arm and CAN status poller run unchanged on virtual time, like
+ * the ShooterBenchmark, with the arm thread called at whatever rate its
+ * executor is set to.
+ *
+ * Runs the autonomous arm moves and reports, for each, when the arm
+ * reported settled, when the true position last left the settle band, the
+ * overshoot and the error left at the end.
+ * @author Jeremy
+ */
+public class ArmBenchmark {
+
+    private static final long PHYSICS_STEP = 250;   //us
+    private static final double MOVE_TIME = 3.0;    //Time each move is watched for, seconds
+    private final VirtualTimeSource time = new VirtualTimeSource();
+    private final FakeRobotHardware hardware = new FakeRobotHardware();
+    private final ArmSimulator model = new ArmSimulator(Constants.ARM_STOW_UP);
+    private final Arm arm;
+    private final long pollPeriod = (long) (1e6 / Constants.CAN_POLL_RATE);
+
+    public ArmBenchmark(boolean crio) {
+        Clock.setInstance(time, time);
+        hardware.setJaguar(Constants.ARM_ID, model.getMotor());
+        CANStatusPoller.getInstance().setDevice(Constants.ARM_ID, null);   //Not the last run's model
+        arm = new Arm(hardware);
+        arm.setCrioControl(crio);
+        arm.setPointRotations(Constants.ARM_STOW_UP);
+    }
+
+    /**
+     * Advances the model one physics step, running the poller and the arm
+     * loop when they are due
+     */
+    public void step() {
+        model.step(PHYSICS_STEP / 1e6);
+        time.advanceMicros(PHYSICS_STEP);
+        long now = time.getMicros();
+        if (now % pollPeriod == 0) {
+            DeviceBringup.getInstance().attemptDue();
+            CANStatusPoller.getInstance().pollAll();
+        }
+        if (now % (arm.getExecutor().getPeriod() * 1000) == 0) {
+            arm.run();
+        }
+    }
+
+    public void run(double seconds) {
+        long end = time.getMicros() + (long) (seconds * 1e6);
+        while (time.getMicros() < end) {
+            step();
+        }
+    }
+
+    /**
+     * Moves the arm and prints how it got there
+     * @param name name of the move
+     * @param goal setpoint, rotations
+     */
+    public void move(String name, double goal) {
+        double from = model.getPosition();
+        double direction = (goal >= from) ? 1 : -1;
+        arm.setPointRotations(goal);
+        double start = time.getSeconds();
+        double settled = -1, lastOutside = 0, overshoot = 0;
+        while (time.getSeconds() - start < MOVE_TIME) {
+            step();
+            double t = time.getSeconds() - start;
+            double error = model.getPosition() - goal;
+            if (settled < 0 && arm.isSettled()) {
+                settled = t;
+            }
+            if (Math.abs(error) > Constants.ARM_SETTLE_ERROR) {
+                lastOutside = t;
+            }
+            overshoot = Math.max(overshoot, error * direction);
+        }
+        System.out.println("  " + name + " (" + round(arm.toDegrees(from)) + " to "
+                + round(arm.toDegrees(goal)) + " deg): settled " + format(settled)
+                + ", in band from " + format(lastOutside) + ", overshoot "
+                + round(overshoot * Constants.DEGREES_PER_TURN) + " deg, final error "
+                + round((model.getPosition() - goal) * Constants.DEGREES_PER_TURN) + " deg");
+    }
+
+    /**
+     * Brings the arm up, then runs the autonomous moves
+     */
+    public void measure() {
+        long wallStart = System.currentTimeMillis();
+        run(1.0);   //Bring-up and first poll
+        System.out.println((arm.isCrioControl() ? "cRIO PID" : "Jaguar PID") + ", loop "
+                + arm.getExecutor().getPeriod() + " ms");
+        move("Auton shot", Constants.ARM_AUTON_SHOT);
+        move("Stow up", Constants.ARM_STOW_UP);
+        move("Intake", Constants.ARM_INTAKE_LOAD);
+        move("High shot", Constants.ARM_HIGH_SHOT);
+        move("Mid shot", Constants.ARM_MID_SHOT);
+        System.out.println("  " + round(time.getSeconds()) + " s simulated in "
+                + (System.currentTimeMillis() - wallStart) + " ms");
+    }
+
+    private static String format(double seconds) {
+        return (seconds < 0) ? "never" : round(seconds * 1000) + " ms";
+    }
+
+    private static double round(double x) {
+        return Math.floor(x * 10 + 0.5) / 10;
+    }
+
+    public static void main(String[] args) {
+        String mode = (args.length > 0) ? args[0] : "all";
+        if (mode.equals("all") || mode.equals("jaguar")) {
+            new ArmBenchmark(false).measure();
+        }
+        if (mode.equals("all") || mode.equals("crio")) {
+            new ArmBenchmark(true).measure();
+        }
+        System.exit(0);
+    }
+}
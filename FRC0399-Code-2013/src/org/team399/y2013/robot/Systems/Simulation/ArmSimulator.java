@@ -0,0 +1,182 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems.Simulation;
+
+import org.team399.y2013.robot.Constants;
+import org.team399.y2013.robot.Systems.HAL.FakeJaguar;
+
+/**
+ * Physics model of the arm. Stands in for the arm Jag: install the
+ * FakeJaguar from getMotor() in a FakeRobotHardware, then call step() to
+ * move the model forward. Nothing here reads the clock.
+ *
+ * Model: one RS550 geared down to the arm pivot, a back-EMF source behind
+ * its winding resistance on a stiff 12 V bus. The arm has inertia, gearbox
+ * friction, and gravity acting on its center of mass, with the same
+ * horizontal as Constants.ARM_HORIZONTAL_ANGLE. It stops dead at the pot
+ * limits. The pot is read through the Jag's 10 bit ADC over 10 turns.
+ *
+ * In position mode the Jag's own PID is modelled as a 1 kHz loop on the
+ * quantized pot with its output scaled by JAGUAR_GAIN_SCALE. That scale is
+ * an assumption, not a measurement: it puts ARM_P at about the same
+ * proportional gain as ARM_KP, so the two modes differ by their structure
+ * rather than their tuning. The arm's mass and gearing are estimates too.
+ * @author Jeremy
+ */
+public class ArmSimulator {
+
+    private static final double JAGUAR_GAIN_SCALE = 1.0 / 256.0;   //Output fraction per Jag gain unit per rotation
+    private static final double JAGUAR_PERIOD = 0.001;     //s
+    private static final double POT_TURNS = 10.0;
+    private static final double POT_COUNTS = 1023.0;
+    private static final double RADIANS_PER_TURN = Math.toRadians(Constants.DEGREES_PER_TURN);  //Arm per pot turn
+    private final FakeJaguar motor;
+    //Motor
+    private double kV = 165.8;          //rad/s per volt, RS550
+    private double resistance = 0.14;   //Ohms
+    private double gearRatio = 300.0;   //Motor turns per arm turn
+    private double rotorInertia = 1.0e-5;   //kg m^2
+    private double busVoltage = 12.0;
+    //Arm
+    private double mass = 4.0;          //kg, net of the spring
+    private double comRadius = 0.32;    //m, pivot to center of mass
+    private double armInertia = 0.6;    //kg m^2 about the pivot
+    private double frictionTorque = 2.0;    //Nm at the pivot
+    //Jag position loop
+    private double jaguarTimer = 0;
+    private double jaguarIntegral = 0;
+    private double jaguarLastError = 0;
+    private double jaguarOutput = 0;
+    //State
+    private double turns;       //Pot position, rotations
+    private double omega = 0;   //Arm speed, rad/s
+    private double current = 0;
+    private double time = 0;
+
+    /**
+     * Constructor
+     * @param position starting pot position, rotations
+     */
+    public ArmSimulator(double position) {
+        motor = new FakeJaguar(Constants.ARM_ID, FakeJaguar.POSITION);
+        turns = position;
+        motor.setPosition(potReading());
+    }
+
+    public FakeJaguar getMotor() {
+        return motor;
+    }
+
+    /**
+     * Moves the model forward
+     * @param dt time step, seconds. 250us is plenty
+     */
+    public void step(double dt) {
+        double volts = 0;
+        if (motor.isControlEnabled()) {
+            int mode = motor.getControlMode();
+            if (mode == FakeJaguar.POSITION) {
+                jaguarTimer += dt;
+                if (jaguarTimer >= JAGUAR_PERIOD) {
+                    jaguarTimer -= JAGUAR_PERIOD;
+                    double error = motor.getOutput() - potReading();
+                    jaguarIntegral += error;
+                    double out = motor.getP() * error + motor.getI() * jaguarIntegral
+                            + motor.getD() * (error - jaguarLastError);
+                    jaguarLastError = error;
+                    jaguarOutput = clamp(out * JAGUAR_GAIN_SCALE, 1.0);
+                }
+                volts = jaguarOutput * busVoltage;
+            } else if (mode == FakeJaguar.VOLTAGE) {
+                volts = clamp(motor.getOutput(), busVoltage);
+            } else {
+                volts = clamp(motor.getOutput(), 1.0) * busVoltage;
+            }
+        }
+
+        double backEmf = omega * gearRatio / kV;
+        current = (volts - backEmf) / resistance;
+        if (volts == 0 && !motor.isBrake()) {
+            current = 0;
+        }
+        double torque = current / kV * gearRatio;      //Kt equals 1/Kv in SI units
+        double angle = Math.toRadians(Constants.DEGREES_PER_TURN * (turns - Constants.ARM_STOW_UP)
+                - Constants.ARM_HORIZONTAL_ANGLE);
+        torque += mass * 9.81 * comRadius * Math.cos(angle);
+        double inertia = armInertia + rotorInertia * gearRatio * gearRatio;
+
+        if (Math.abs(omega) < 1e-3 && Math.abs(torque) <= frictionTorque) {
+            omega = 0;  //Static friction holds the arm
+        } else {
+            double speed = omega + (torque - frictionTorque * signum(omega != 0 ? omega : torque)) / inertia * dt;
+            omega = (omega != 0 && speed * omega < 0) ? 0 : speed;
+        }
+        turns += omega * dt / RADIANS_PER_TURN;
+        if (turns < Constants.ARM_LOWER_LIM) {
+            turns = Constants.ARM_LOWER_LIM;
+            omega = 0;
+        } else if (turns > Constants.ARM_UPPER_LIM) {
+            turns = Constants.ARM_UPPER_LIM;
+            omega = 0;
+        }
+        time += dt;
+
+        motor.setPosition(potReading());
+        motor.setCurrent(Math.abs(current));
+        motor.setBusVoltage(busVoltage);
+    }
+
+    private double potReading() {
+        return Math.floor(turns / POT_TURNS * POT_COUNTS + 0.5) / POT_COUNTS * POT_TURNS;
+    }
+
+    private static double clamp(double x, double limit) {
+        return (x > limit) ? limit : (x < -limit) ? -limit : x;
+    }
+
+    private static double signum(double x) {
+        return (x > 0) ? 1 : (x < 0) ? -1 : 0;
+    }
+
+    /**
+     * @return the true pot position, rotations
+     */
+    public double getPosition() {
+        return turns;
+    }
+
+    /**
+     * @return the true arm speed, pot rotations/s
+     */
+    public double getVelocity() {
+        return omega / RADIANS_PER_TURN;
+    }
+
+    public double getCurrent() {
+        return current;
+    }
+
+    public double getTime() {
+        return time;
+    }
+
+    /**
+     * @param mass kg, net of any counterbalance
+     * @param comRadius pivot to center of mass, m
+     * @param inertia about the pivot, kg m^2
+     */
+    public void setArm(double mass, double comRadius, double inertia) {
+        this.mass = mass;
+        this.comRadius = comRadius;
+        this.armInertia = inertia;
+    }
+
+    /**
+     * @param friction gearbox friction torque at the pivot, Nm
+     */
+    public void setFriction(double friction) {
+        this.frictionTorque = friction;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems.Simulation;
+
+import org.team399.y2013.robot.Constants;
+import org.team399.y2013.robot.Systems.HAL.FakeBinaryActuator;
+import org.team399.y2013.robot.Systems.HAL.FakeMotorController;
+import org.team399.y2013.robot.Systems.HAL.FakeRobotHardware;
+import org.team399.y2013.robot.Systems.HAL.FakeSensor;
+
+/**
+ * Lumped model of the drivetrain. Reads the four drive Talons and the
+ * shifter from a FakeRobotHardware, moves the robot, and sets the yaw gyro.
+ * Build it after the DriveTrain so it finds the same fakes. Nothing here
+ * reads the clock.
+ *
+ * Model: each side is a first order system per gear, the usual
+ * V = kS + v / kV + kA * a fit, on a 12 V bus. The side's speed is held at
+ * zero until the voltage beats kS. Pose is integrated from the two side
+ * speeds across TRACK_WIDTH, with no wheel slip. The constants are
+ * estimates, deliberately a little off the DriveTrain's nominal
+ * feedforward, so open loop drives come up short the way they do on carpet.
+ *
+ * DriveTrain.tankDrive() sends its right argument to the LEFT ports and
+ * the negated left argument to the RIGHT ports. The left side here follows
+ * the left argument.
+ * @author Jeremy
+ */
+public class DriveSimulator {
+
+    private static final double TRACK_WIDTH = 2.0;  //Feet between the wheel centers
+    private static final double BUS_VOLTAGE = 12.0;
+    //Per gear: feet/sec per volt, volts to overcome friction, volts per foot/sec^2
+    private double highKV = 15.5 / 12.0, highKS = 1.0, highKA = 0.45 * 12.0 / 15.5;
+    private double lowKV = 5.8 / 12.0, lowKS = 0.8, lowKA = 0.2 * 12.0 / 5.8;
+    private final FakeMotorController leftPort, rightPort;
+    private final FakeBinaryActuator shifter;
+    private final FakeSensor gyro;
+    //State
+    private double leftSpeed = 0, rightSpeed = 0;   //Feet/sec
+    private double leftDistance = 0, rightDistance = 0; //Feet
+    private double x = 0, y = 0;    //Feet. Starts facing +x
+    private double heading = 0;     //Radians, counterclockwise
+    private double time = 0;
+
+    /**
+     * @param hardware the hardware the DriveTrain was built from
+     */
+    public DriveSimulator(FakeRobotHardware hardware) {
+        leftPort = (FakeMotorController) hardware.getTalon(Constants.DRIVE_LEFT_A);
+        rightPort = (FakeMotorController) hardware.getTalon(Constants.DRIVE_RIGHT_A);
+        shifter = (FakeBinaryActuator) hardware.getSolenoid(Constants.SHIFTER_PORT);
+        gyro = (FakeSensor) hardware.getGyro(1);
+    }
+
+    /**
+     * Moves the model forward
+     * @param dt time step, seconds
+     */
+    public void step(double dt) {
+        boolean high = shifter.getState() == Constants.HIGH_GEAR;
+        double kV = high ? highKV : lowKV;
+        double kS = high ? highKS : lowKS;
+        double kA = high ? highKA : lowKA;
+        leftSpeed = side(leftSpeed, -rightPort.getOutput(), kV, kS, kA, dt);
+        rightSpeed = side(rightSpeed, leftPort.getOutput(), kV, kS, kA, dt);
+
+        leftDistance += leftSpeed * dt;
+        rightDistance += rightSpeed * dt;
+        double speed = (leftSpeed + rightSpeed) / 2;
+        heading += (rightSpeed - leftSpeed) / TRACK_WIDTH * dt;
+        x += speed * Math.cos(heading) * dt;
+        y += speed * Math.sin(heading) * dt;
+        gyro.setValue(Math.toDegrees(heading));
+        time += dt;
+    }
+
+    private double side(double v, double output, double kV, double kS, double kA, double dt) {
+        output = (output > 1) ? 1 : (output < -1) ? -1 : output;
+        double volts = output * BUS_VOLTAGE;
+        if (v == 0 && Math.abs(volts) <= kS) {
+            return 0;   //Stiction
+        }
+        double friction = kS * ((v != 0) ? signum(v) : signum(volts));
+        double next = v + (volts - friction - v / kV) / kA * dt;
+        if (v != 0 && signum(next) != signum(v) && Math.abs(volts) <= kS) {
+            return 0;   //Friction stops the side, it doesn't reverse it
+        }
+        return next;
+    }
+
+    private static double signum(double x) {
+        return (x > 0) ? 1 : (x < 0) ? -1 : 0;
+    }
+
+    /**
+     * Puts the robot back at the origin, stopped, facing +x
+     */
+    public void reset() {
+        leftSpeed = rightSpeed = 0;
+        leftDistance = rightDistance = 0;
+        x = y = heading = 0;
+        gyro.setValue(0);
+    }
+
+    /**
+     * @param high true for the high gear constants
+     * @param kV feet/sec per volt
+     * @param kS volts to overcome friction
+     * @param kA volts per foot/sec^2
+     */
+    public void setGear(boolean high, double kV, double kS, double kA) {
+        if (high) {
+            highKV = kV;
+            highKS = kS;
+            highKA = kA;
+        } else {
+            lowKV = kV;
+            lowKS = kS;
+            lowKA = kA;
+        }
+    }
+
+    /**
+     * @return distance driven along the robot's path, the mean of the two
+     * sides, feet. Negative when driven backwards
+     */
+    public double getDistance() {
+        return (leftDistance + rightDistance) / 2;
+    }
+
+    /**
+     * @return speed, feet/sec
+     */
+    public double getSpeed() {
+        return (leftSpeed + rightSpeed) / 2;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * @return heading, degrees counterclockwise from the start
+     */
+    public double getHeading() {
+        return Math.toDegrees(heading);
+    }
+
+    public double getTime() {
+        return time;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems.Simulation;
+
+import org.team399.y2013.robot.Constants;
+import org.team399.y2013.robot.Systems.HAL.FakeBinaryActuator;
+import org.team399.y2013.robot.Systems.HAL.FakeMotorController;
+import org.team399.y2013.robot.Systems.HAL.FakeRobotHardware;
+
+/**
+ * Model of the discs between the hopper and the wheel. Reads the feeder
+ * roller and the kicker from a FakeRobotHardware and fires discs into a
+ * FlywheelSimulator. Build it after the Feeder so it finds the same fakes.
+ * Nothing here reads the clock.
+ *
+ * Model: one disc sits at the kicker and the rest wait in the hopper. The
+ * kicker going out pushes the staged disc into the wheel KICK_TO_CONTACT
+ * later. With the kicker back in, the roller moves the next disc up to the
+ * kicker in FEED_TIME at full speed, slower in proportion below that. A
+ * kick with nothing staged fires nothing.
+ * @author Jeremy
+ */
+public class FeederSimulator {
+
+    private static final double KICK_TO_CONTACT = 0.06;    //Kicker travel before the disc reaches the wheel, seconds
+    private static final double FEED_TIME = 0.4;    //Hopper to kicker at full roller, seconds
+    private final FakeMotorController roller;
+    private final FakeBinaryActuator kicker;
+    private final FlywheelSimulator flywheel;
+    //State
+    private int hopper = 0;
+    private boolean staged = false;
+    private double feedProgress = 0;    //Fraction of the way to the kicker
+    private boolean kickerWasOut = false;
+    private double contactIn = -1;      //Time until a kicked disc reaches the wheel, seconds. -1 if none
+    private int fired = 0;
+    private int emptyKicks = 0;
+    private double time = 0;
+
+    /**
+     * @param hardware the hardware the Feeder was built from
+     * @param flywheel the wheel discs are fired into
+     */
+    public FeederSimulator(FakeRobotHardware hardware, FlywheelSimulator flywheel) {
+        roller = (FakeMotorController) hardware.getVictor(Constants.FEEDER_MOTOR);
+        kicker = (FakeBinaryActuator) hardware.getSolenoid(Constants.KICKER_PORT);
+        this.flywheel = flywheel;
+    }
+
+    /**
+     * Moves the model forward
+     * @param dt time step, seconds
+     */
+    public void step(double dt) {
+        boolean kickerOut = kicker.getState() == Constants.KICKER_OUT;
+        if (kickerOut && !kickerWasOut) {
+            if (staged) {
+                staged = false;
+                contactIn = KICK_TO_CONTACT;
+            } else {
+                emptyKicks++;
+            }
+        }
+        kickerWasOut = kickerOut;
+
+        if (contactIn >= 0) {
+            contactIn -= dt;
+            if (contactIn < 0) {
+                flywheel.loadDisc();
+                fired++;
+            }
+        }
+
+        double speed = roller.getOutput();
+        if (!kickerOut && !staged && hopper > 0 && speed > 0) {
+            feedProgress += speed * dt / FEED_TIME;
+            if (feedProgress >= 1) {
+                feedProgress = 0;
+                hopper--;
+                staged = true;
+            }
+        }
+        time += dt;
+    }
+
+    /**
+     * Loads the robot: one disc at the kicker and the rest in the hopper
+     * @param discs discs on the robot
+     */
+    public void load(int discs) {
+        staged = discs > 0;
+        hopper = (discs > 0) ? discs - 1 : 0;
+        feedProgress = 0;
+        contactIn = -1;
+        fired = 0;
+        emptyKicks = 0;
+    }
+
+    /**
+     * @return discs that have reached the wheel since the last load()
+     */
+    public int getFiredCount() {
+        return fired;
+    }
+
+    /**
+     * @return kicks with no disc at the kicker since the last load()
+     */
+    public int getEmptyKickCount() {
+        return emptyKicks;
+    }
+
+    /**
+     * @return discs still on the robot
+     */
+    public int getDiscsLeft() {
+        return hopper + (staged ? 1 : 0) + (contactIn >= 0 ? 1 : 0);
+    }
+
+    public double getTime() {
+        return time;
+    }
+}
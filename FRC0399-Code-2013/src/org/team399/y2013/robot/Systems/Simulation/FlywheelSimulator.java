@@ -0,0 +1,264 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems.Simulation;
+
+import org.team399.y2013.robot.Constants;
+import org.team399.y2013.robot.Systems.HAL.FakeJaguar;
+
+/**
+ * Physics model of the three motor shooter. Stands in for shooterA/B/C:
+ * install the three FakeJaguars from getMotor() in a FakeRobotHardware, then
+ * call step() to move the model forward. Nothing here reads the clock, so it
+ * runs as fast as it is stepped.
+ *
+ * Model: three RS550s (Constants.SHOOTER_KV) geared to one wheel
+ * (Constants.SHOOTER_GEAR_RATIO). Each motor is a back-EMF source behind its
+ * winding resistance, fed by a battery with internal resistance, so the bus
+ * voltage sags with the total current. The wheel has inertia, coulomb and
+ * viscous friction, and takes a torque impulse from each disc fired. Shooter
+ * A reports the position of a 360 CPR quadrature encoder, quantized to
+ * quarter counts, at the ratio the real encoder is mounted at.
+ * @author Jeremy
+ */
+public class FlywheelSimulator {
+
+    public static final int MOTORS = 3;
+    private static final double RPM_TO_RADS = 2.0 * Math.PI / 60.0;
+    private static final int MOTOR_DIRECTION = -1;  //Shooter.setMotors inverts its output
+    private final FakeJaguar[] motors = new FakeJaguar[MOTORS];
+    private final double[] current = new double[MOTORS];
+    private final double[] drive = new double[MOTORS];
+    private final boolean[] conducting = new boolean[MOTORS];
+    //Motor
+    private double kV = Constants.SHOOTER_KV * RPM_TO_RADS;    //rad/s per volt
+    private double resistance = Constants.SHOOTER_MOTOR_RESISTANCE;    //Ohms
+    private double gearRatio = Constants.SHOOTER_GEAR_RATIO;   //Wheel speed over motor speed
+    //Wheel
+    private double inertia = 0.002;         //kg m^2
+    private double frictionTorque = 0.03;   //Nm
+    private double viscousFriction = 0.0002;    //Nm per rad/s. Enough loss that SHOOTER_KT holds speed
+    private double wheelRadius = 0.0508;    //m
+    //Battery
+    private double batteryVoltage = 12.5;   //Open circuit
+    private double batteryResistance = 0.02;    //Ohms, battery and wiring
+    private double busVoltage = batteryVoltage;
+    //Encoder
+    private double encoderRatio = 1.0 / Constants.SHOOTER_ENCODER_SCALE;   //Encoder turns per wheel turn
+    private int encoderCpr = 360;
+    private boolean encoderConnected = true;
+    //Discs
+    private double discMass = 0.175;        //kg
+    private double discExitRatio = 0.5;     //Disc exit speed over wheel surface speed
+    private double discContactTime = 0.04;  //s
+    private double loadTorque = 0;
+    private double loadTimeLeft = 0;
+    private int discs = 0;
+    //State
+    private double omega = 0;   //Wheel speed, rad/s
+    private double angle = 0;   //Wheel angle, rad
+    private double time = 0;
+
+    /**
+     * Constructor
+     * @param canIds the CAN IDs of shooter A, B and C. A carries the encoder
+     */
+    public FlywheelSimulator(int[] canIds) {
+        for (int i = 0; i < MOTORS; i++) {
+            motors[i] = new FakeJaguar(canIds[i], FakeJaguar.PERCENT_VBUS);
+        }
+    }
+
+    /**
+     * Constructor using the shooter CAN IDs from Constants
+     */
+    public FlywheelSimulator() {
+        this(new int[]{Constants.SHOOTER_A_ID, Constants.SHOOTER_B_ID, Constants.SHOOTER_C_ID});
+    }
+
+    /**
+     * @param motor 0-2 for shooter A-C
+     * @return the simulated Jaguar
+     */
+    public FakeJaguar getMotor(int motor) {
+        return motors[motor];
+    }
+
+    /**
+     * Moves the model forward. Keep dt well under the control loop period;
+     * 250us is plenty
+     * @param dt time step, seconds
+     */
+    public void step(double dt) {
+        double motorSpeed = omega / gearRatio;
+        double backEmf = motorSpeed / kV;
+
+        for (int i = 0; i < MOTORS; i++) {
+            double u = MOTOR_DIRECTION * motors[i].getOutput();
+            drive[i] = (u > 1) ? 1 : (u < -1) ? -1 : u;
+            conducting[i] = true;
+        }
+
+        //Solve bus voltage and motor currents together. A coasting motor
+        //whose back EMF is above its drive voltage stops conducting, and
+        //the solve is repeated without it
+        boolean changed = true;
+        for (int pass = 0; pass <= MOTORS && changed; pass++) {
+            double s1 = 0, s2 = 0;
+            for (int i = 0; i < MOTORS; i++) {
+                if (conducting[i]) {
+                    s1 += drive[i];
+                    s2 += drive[i] * drive[i];
+                }
+            }
+            double k = batteryResistance / resistance;
+            busVoltage = (batteryVoltage + k * backEmf * s1) / (1 + k * s2);
+            changed = false;
+            for (int i = 0; i < MOTORS; i++) {
+                if (!conducting[i]) {
+                    current[i] = 0;
+                    continue;
+                }
+                if (drive[i] == 0) {
+                    current[i] = motors[i].isBrake() ? -backEmf / resistance : 0;
+                    continue;
+                }
+                current[i] = (drive[i] * busVoltage - backEmf) / resistance;
+                if (!motors[i].isBrake() && current[i] * drive[i] < 0) {
+                    conducting[i] = false;
+                    current[i] = 0;
+                    changed = true;
+                }
+            }
+        }
+
+        double torque = 0;
+        for (int i = 0; i < MOTORS; i++) {
+            torque += current[i] / kV / gearRatio;     //Kt equals 1/Kv in SI units
+        }
+        torque -= viscousFriction * omega;
+        if (loadTimeLeft > 0) {
+            torque -= loadTorque * signum(omega);
+            loadTimeLeft -= dt;
+        }
+
+        if (Math.abs(omega) < 1e-3 && Math.abs(torque) <= frictionTorque) {
+            omega = 0;  //Static friction holds the wheel
+        } else {
+            double speed = omega + (torque - frictionTorque * signum(omega != 0 ? omega : torque)) / inertia * dt;
+            omega = (omega != 0 && speed * omega < 0) ? 0 : speed;   //Friction can stop the wheel, not reverse it
+        }
+        angle += omega * dt;
+        time += dt;
+
+        double encoderTurns = angle / (2.0 * Math.PI) * encoderRatio;
+        int quarterCounts = encoderCpr * 4;
+        double position = Math.floor(encoderTurns * quarterCounts) / quarterCounts;
+        if (encoderConnected) {
+            motors[0].setPosition(position);
+        }
+        for (int i = 0; i < MOTORS; i++) {
+            motors[i].setCurrent(Math.abs(current[i]));
+            motors[i].setBusVoltage(busVoltage);
+        }
+    }
+
+    private static double signum(double x) {
+        return (x > 0) ? 1 : (x < 0) ? -1 : 0;
+    }
+
+    /**
+     * Fires a disc. The disc leaves at discExitRatio of the wheel surface
+     * speed; the angular momentum it takes is removed from the wheel over
+     * the contact time
+     */
+    public void loadDisc() {
+        double exitSpeed = discExitRatio * Math.abs(omega) * wheelRadius;
+        double impulse = discMass * exitSpeed * wheelRadius;    //N m s
+        loadTorque = impulse / discContactTime;
+        loadTimeLeft = discContactTime;
+        discs++;
+    }
+
+    /**
+     * @return true while a disc is in contact with the wheel
+     */
+    public boolean isLoaded() {
+        return loadTimeLeft > 0;
+    }
+
+    /**
+     * @return the true wheel speed, RPM
+     */
+    public double getVelocity() {
+        return omega / RPM_TO_RADS;
+    }
+
+    /**
+     * @return the bus voltage at the Jaguars, volts
+     */
+    public double getBusVoltage() {
+        return busVoltage;
+    }
+
+    /**
+     * @param motor 0-2
+     * @return the motor's current, amps. Negative while braking
+     */
+    public double getCurrent(int motor) {
+        return current[motor];
+    }
+
+    public double getTime() {
+        return time;
+    }
+
+    public int getDiscCount() {
+        return discs;
+    }
+
+    /**
+     * Disconnects the encoder. Its position stops changing, as if the cable
+     * came out
+     */
+    public void setEncoderConnected(boolean connected) {
+        encoderConnected = connected;
+    }
+
+    /**
+     * @param inertia wheel moment of inertia, kg m^2
+     */
+    public void setInertia(double inertia) {
+        this.inertia = inertia;
+    }
+
+    /**
+     * @param voltage open circuit voltage
+     * @param resistance internal plus wiring resistance, ohms
+     */
+    public void setBattery(double voltage, double resistance) {
+        this.batteryVoltage = voltage;
+        this.batteryResistance = resistance;
+    }
+
+    /**
+     * @param coulomb constant friction torque, Nm
+     * @param viscous friction torque per rad/s
+     */
+    public void setFriction(double coulomb, double viscous) {
+        this.frictionTorque = coulomb;
+        this.viscousFriction = viscous;
+    }
+
+    /**
+     * @param mass disc mass, kg
+     * @param exitRatio disc exit speed over wheel surface speed
+     * @param contactTime time the disc is in contact with the wheel, s
+     */
+    public void setDisc(double mass, double exitRatio, double contactTime) {
+        this.discMass = mass;
+        this.discExitRatio = exitRatio;
+        this.discContactTime = contactTime;
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems.Simulation;
+
+import org.team399.y2013.Utilities.Clock;
+import org.team399.y2013.Utilities.PeriodicExecutor;
+import org.team399.y2013.Utilities.VirtualTimeSource;
+import org.team399.y2013.robot.Autonomous.AutonCommon;
+import org.team399.y2013.robot.Autonomous.Shoot2CenterlineD;
+import org.team399.y2013.robot.Constants;
+import org.team399.y2013.robot.Main;
+import org.team399.y2013.robot.Systems.HAL.FakeRobotHardware;
+import org.team399.y2013.robot.Systems.HAL.Hardware;
+
+/**
+ * Runs the whole robot program on virtual time against physics models of
+ * the arm, shooter, drive and feeder, faster than real time on a desktop.
+ * Builds Main as the robot does and calls autonomousInit() and
+ * autonomousPeriodic() at the driver station rate. The subsystem threads
+ * run from this one thread, in step with the models. Then it reports how
+ * the routine went.
+ *
+ * Each routine starts like a match. The robot is put back at the origin
+ * with the discs loaded, the arm stowed and the wheel stopped. The routines
+ * share one robot, as they would on a practice field, so a run can leave
+ * state such as shooter statistics behind.
+ *
+ * Usage: RobotSimulator [high|mid|centerline]. Runs all three by default.
+ * @author Jeremy
+ */
+public class RobotSimulator {
+
+    private static final long PHYSICS_STEP = 250;   //us
+    private static final long LOOP_PERIOD = 20000;  //Driver station packet period, us
+    private static final int PRELOADED_DISCS = 3;   //Discs on the robot at the start of a match
+    private static final double AT_SPEED_TOLERANCE = 0.03;  //Fraction of the setpoint a shot counts as at speed
+    private static final double BRINGUP_TIME = 2.0; //Disabled before the first match, seconds
+    private static final double RESET_TIMEOUT = 30.0;   //Longest wait for the robot to come to rest between matches, seconds
+    private final VirtualTimeSource time = new VirtualTimeSource();
+    private final FakeRobotHardware hardware = new FakeRobotHardware();
+    private final ArmSimulator arm = new ArmSimulator(Constants.ARM_STOW_UP);
+    private final FlywheelSimulator flywheel = new FlywheelSimulator();
+    private final Main main;
+    private final DriveSimulator drive;
+    private final FeederSimulator feeder;
+
+    public RobotSimulator() {
+        Clock.setInstance(time, time);
+        PeriodicExecutor.setSimulated(true);    //Before anything starts a thread
+        hardware.setJaguar(Constants.ARM_ID, arm.getMotor());
+        for (int i = 0; i < FlywheelSimulator.MOTORS; i++) {
+            hardware.setJaguar(flywheel.getMotor(i).getDeviceId(), flywheel.getMotor(i));
+        }
+        Hardware.setInstance(hardware);
+        main = new Main();
+        main.robotInit();
+        drive = new DriveSimulator(hardware);
+        feeder = new FeederSimulator(hardware, flywheel);
+        disable(BRINGUP_TIME);  //Let the Jaguars come up
+    }
+
+    /**
+     * Advances the models one physics step, then runs the subsystem loops
+     * that are due
+     */
+    private void step() {
+        double dt = PHYSICS_STEP / 1e6;
+        arm.step(dt);
+        flywheel.step(dt);
+        drive.step(dt);
+        feeder.step(dt);
+        time.advanceMicros(PHYSICS_STEP);
+        PeriodicExecutor.runSimulated();
+    }
+
+    /**
+     * Disables the robot for a time. disabledPeriodic() isn't run: it picks
+     * the routine from the dashboard chooser, and there is no dashboard
+     */
+    private void disable(double seconds) {
+        main.disabledInit();
+        long end = time.getMicros() + (long) (seconds * 1e6);
+        while (time.getMicros() < end) {
+            step();
+        }
+    }
+
+    /**
+     * Disables the robot and waits for the arm to stow and the wheel to
+     * stop, then puts the robot back at the start with the discs loaded
+     */
+    private void reset() {
+        main.disabledInit();
+        double end = time.getSeconds() + RESET_TIMEOUT;
+        while (time.getSeconds() < end && (Math.abs(flywheel.getVelocity()) > 10
+                || !Main.robot.arm.isSettled())) {
+            step();
+        }
+        drive.reset();
+        feeder.load(PRELOADED_DISCS);
+    }
+
+    /**
+     * Runs one autonomous routine from the start of a match and prints how it went
+     * @param name routine name to print
+     * @param routine routine number, see Main.setAuton()
+     * @param distance distance the routine means to drive, feet. NaN if it
+     * drives for a time instead
+     */
+    public void runAuton(String name, int routine, double distance) {
+        reset();
+        long wallStart = System.currentTimeMillis();
+        main.setAuton(routine);
+        double start = time.getSeconds();
+        main.autonomousInit();
+
+        int shots = 0, atSpeed = 0, armSettled = 0;
+        double firstShot = -1, lastShot = -1, finished = -1;
+        long nextLoop = time.getMicros();
+        while (time.getSeconds() - start < Constants.MATCH_AUTON_LENGTH) {
+            if (time.getMicros() >= nextLoop) {
+                main.autonomousPeriodic();
+                nextLoop += LOOP_PERIOD;
+                if (finished < 0 && !AutonCommon.sequencer.isRunning()) {
+                    finished = time.getSeconds() - start;
+                }
+            }
+            step();
+            if (feeder.getFiredCount() > shots) {
+                shots++;
+                lastShot = time.getSeconds() - start;
+                if (firstShot < 0) {
+                    firstShot = lastShot;
+                }
+                double setpoint = Main.robot.shooter.getShooterSetSpeed();
+                double speedError = Math.abs(flywheel.getVelocity()) - Math.abs(setpoint);
+                double armError = arm.getPosition() - Main.robot.arm.getSetpoint();
+                if (Math.abs(speedError) <= Math.abs(setpoint) * AT_SPEED_TOLERANCE) {
+                    atSpeed++;
+                }
+                if (Math.abs(armError) <= Constants.ARM_SETTLE_ERROR) {
+                    armSettled++;
+                }
+                System.out.println("  Disc " + shots + " at " + format(lastShot)
+                        + ": wheel " + round(Math.abs(flywheel.getVelocity())) + " of " + round(setpoint) + " RPM"
+                        + ", arm " + round(Main.robot.arm.toDegrees(arm.getPosition())) + " deg, "
+                        + round(armError * Constants.DEGREES_PER_TURN) + " deg off its setpoint");
+            }
+        }
+        main.disabledInit();
+
+        System.out.println(name + ":");
+        System.out.println("  First shot " + format(firstShot) + ", last " + format(lastShot)
+                + ", " + shots + " of " + PRELOADED_DISCS + " discs fired ("
+                + feeder.getEmptyKickCount() + " empty kicks), " + atSpeed + " at speed, "
+                + armSettled + " with the arm settled");
+        System.out.println("  Routine " + (finished < 0 ? "still running at the end of auton"
+                : "finished at " + format(finished)));
+        String error = Double.isNaN(distance) ? "timed drive"
+                : "error " + round(drive.getDistance() - distance) + " ft of " + round(distance) + " ft";
+        System.out.println("  Drove " + round(drive.getDistance()) + " ft (" + error + "), final pose x "
+                + round(drive.getX()) + " ft, y " + round(drive.getY()) + " ft, heading "
+                + round(drive.getHeading()) + " deg");
+        System.out.println("  " + round(Constants.MATCH_AUTON_LENGTH) + " s simulated in "
+                + (System.currentTimeMillis() - wallStart) + " ms");
+    }
+
+    private static String format(double seconds) {
+        return (seconds < 0) ? "never" : round(seconds) + " s";
+    }
+
+    private static double round(double x) {
+        return Math.floor(x * 100 + 0.5) / 100;
+    }
+
+    public static void main(String[] args) {
+        String which = (args.length > 0) ? args[0] : "all";
+        RobotSimulator sim = new RobotSimulator();
+        if (which.equals("high") || which.equals("all")) {
+            sim.runAuton("HIGH", 0, Double.NaN);
+        }
+        if (which.equals("mid") || which.equals("all")) {
+            sim.runAuton("MID", 1, Double.NaN);
+        }
+        if (which.equals("centerline") || which.equals("all")) {
+            sim.runAuton("ANTICENTERLINE", 2, Shoot2CenterlineD.BACK_DIST);
+        }
+        System.exit(0);     //The logger and telemetry threads don't exit on their own
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems.Simulation;
+
+import org.team399.y2013.Utilities.Clock;
+import org.team399.y2013.Utilities.VirtualTimeSource;
+import org.team399.y2013.robot.Constants;
+import org.team399.y2013.robot.Systems.CANStatusPoller;
+import org.team399.y2013.robot.Systems.DeviceBringup;
+import org.team399.y2013.robot.Systems.HAL.FakeRobotHardware;
+import org.team399.y2013.robot.Systems.HAL.Hardware;
+import org.team399.y2013.robot.Systems.Shooter;
+
+/* HOW TO USE:
+ *  Runs on a desktop JVM with the robot classes on the classpath:
+ *      java org.team399.y2013.robot.Systems.Simulation.ShooterBenchmark [rpm] [discs] [controller] [noboost] [encoderfail]
+ *  controller is bangbang, tbh, pi, scheduled or all. noboost turns off the
+ *  kick boost, to compare against. encoderfail disconnects the encoder once
+ *  the wheel is ready, to test the motor model failsafe. Defaults to 6000 RPM (the teleop preset),
+ *  4 discs and all controllers, each on a fresh model. Full SHOOTER_SHOT is above the modelled top speed at a sagged bus.
+ */
+/**
+ * Offline benchmark of the shooter control loop against the flywheel
+ * simulator. The real Shooter and CAN status poller run unchanged on
+ * virtual time: the model is stepped every 250us, the poller and the
+ * control loop are called at their configured rates, and time only moves
+ * when the benchmark moves it, so a run takes a fraction of real time.
+ *
+ * Reports spin-up time, steady-state ripple about the mean speed and the
+ * mean's offset from the setpoint, and the dip and recovery time
+ * for each disc, both measured from the wheel speed just before the kick,
+ * since not every control law holds the setpoint exactly. Then what the
+ * shooter's own shot detector saw. Discs are kicked no faster than
+ * SHOT_CYCLE apart and reach the wheel KICK_TO_CONTACT after the kick.
+ * Per-disc speeds are the model's true wheel speed, not the estimate the
+ * control loop sees.
+ * @author Jeremy
+ */
+public class ShooterBenchmark {
+
+    private static final long PHYSICS_STEP = 250;   //us
+    private static final double TOLERANCE = 0.03;   //Fraction of the setpoint counted as at speed
+    private static final double SHOT_CYCLE = 0.5;   //Fastest the feeder can fire, seconds
+    private static final double KICK_TO_CONTACT = 0.06;     //Kicker travel before the disc reaches the wheel, seconds
+    private final VirtualTimeSource time = new VirtualTimeSource();
+    private final FakeRobotHardware hardware = new FakeRobotHardware();
+    private final FlywheelSimulator flywheel = new FlywheelSimulator();
+    private final Shooter shooter;
+    private final long loopPeriod = (long) (1e6 / Constants.SHOOTER_LOOP_RATE);
+    private final long pollPeriod = (long) (1e6 / Constants.CAN_POLL_RATE);
+
+    public ShooterBenchmark() {
+        Clock.setInstance(time, time);
+        for (int i = 0; i < FlywheelSimulator.MOTORS; i++) {
+            hardware.setJaguar(flywheel.getMotor(i).getDeviceId(), flywheel.getMotor(i));
+        }
+        Hardware.setInstance(hardware);
+        shooter = new Shooter(hardware);
+    }
+
+    public Shooter getShooter() {
+        return shooter;
+    }
+
+    public FlywheelSimulator getFlywheel() {
+        return flywheel;
+    }
+
+    /**
+     * Advances the model one physics step, running the poller and the
+     * control loop when they are due
+     */
+    public void step() {
+        flywheel.step(PHYSICS_STEP / 1e6);
+        time.advanceMicros(PHYSICS_STEP);
+        long now = time.getMicros();
+        if (now % pollPeriod == 0) {
+            DeviceBringup.getInstance().attemptDue();
+            CANStatusPoller.getInstance().pollAll();
+        }
+        if (now % loopPeriod == 0) {
+            shooter.run();
+        }
+    }
+
+    /**
+     * Runs for a fixed time
+     * @param seconds virtual time to run
+     */
+    public void run(double seconds) {
+        long end = time.getMicros() + (long) (seconds * 1e6);
+        while (time.getMicros() < end) {
+            step();
+        }
+    }
+
+    private boolean atSpeed(double target) {
+        return Math.abs(flywheel.getVelocity() - target) <= Math.abs(target) * TOLERANCE;
+    }
+
+    /**
+     * Runs until the wheel is within tolerance of a speed
+     * @param target the speed, RPM. The setpoint, or the speed before a shot
+     * @param timeout give up after this long, seconds
+     * @return the time taken, seconds, or -1 on timeout
+     */
+    private double runUntilAtSpeed(double target, double timeout) {
+        double start = time.getSeconds();
+        while (!atSpeed(target)) {
+            if (time.getSeconds() - start > timeout) {
+                return -1;
+            }
+            step();
+        }
+        return time.getSeconds() - start;
+    }
+
+    /**
+     * Runs until the control loop reports ready
+     * @return the time taken, seconds, or -1 on timeout
+     */
+    private double runUntilReady(double timeout) {
+        double start = time.getSeconds();
+        while (!shooter.isAtTargetSpeed()) {
+            if (time.getSeconds() - start > timeout) {
+                return -1;
+            }
+            step();
+        }
+        return time.getSeconds() - start;
+    }
+
+    /**
+     * Spins up, holds, then fires discs, printing the results
+     * @param setpoint target speed, RPM
+     * @param discCount discs to fire. Each is fired once the shooter reports ready
+     * @param failEncoder disconnect the encoder once ready, so the rest runs on
+     * the motor model. The shooter is never ready on the model, so discs are
+     * fired SHOT_CYCLE apart instead
+     */
+    public void measure(double setpoint, int discCount, boolean failEncoder) {
+        long wallStart = System.currentTimeMillis();
+        shooter.setShooterSpeed(setpoint);
+        double spinUp = runUntilAtSpeed(setpoint, 10.0);
+        double ready = runUntilReady(10.0);
+        System.out.println(shooter.getController().getName() + ", setpoint " + setpoint + " RPM");
+        System.out.println("  Spin-up to within " + (TOLERANCE * 100) + "%: " + format(spinUp)
+                + ", ready reported " + format(ready) + " later");
+
+        if (failEncoder) {
+            flywheel.setEncoderConnected(false);
+            double start = time.getSeconds();
+            while (!shooter.getObserver().isEncoderFaulted() && time.getSeconds() - start < 5.0) {
+                step();
+            }
+            double detected = shooter.getObserver().isEncoderFaulted() ? time.getSeconds() - start : -1;
+            System.out.println("  Encoder disconnected, fault detected after " + format(detected));
+            run(3.0);   //Let the loop settle on the estimate
+        }
+
+        //Steady state over one second. Ripple is about the mean, the offset is the mean's error
+        double min = Double.MAX_VALUE, max = -Double.MAX_VALUE, sum = 0, sumSquares = 0;
+        int samples = 0;
+        double holdEnd = time.getSeconds() + 1.0;
+        while (time.getSeconds() < holdEnd) {
+            step();
+            double error = flywheel.getVelocity() - setpoint;
+            min = Math.min(min, error);
+            max = Math.max(max, error);
+            sum += error;
+            sumSquares += error * error;
+            samples++;
+        }
+        double offset = sum / samples;
+        double variance = Math.max(0, sumSquares / samples - offset * offset);
+        System.out.println("  Ripple: " + round(max - min) + " RPM p-p, "
+                + round(Math.sqrt(variance)) + " RPM RMS, offset " + round(offset)
+                + " RPM, bus " + round(flywheel.getBusVoltage()) + " V");
+
+        double fired = 0;
+        for (int i = 0; i < discCount; i++) {
+            if (i > 0) {
+                run(SHOT_CYCLE - (time.getSeconds() - fired));
+            }
+            double wait = failEncoder ? 0 : runUntilReady(5.0);
+            double before = flywheel.getVelocity();   //The dip and recovery are from here, not the setpoint
+            shooter.kickerFired(Clock.millis());
+            run(KICK_TO_CONTACT);
+            fired = time.getSeconds();
+            int transitions = shooter.getReadiness().getTransitionCount();
+            flywheel.loadDisc();
+            double lowest = flywheel.getVelocity();
+            while (flywheel.isLoaded() || flywheel.getVelocity() < lowest) {
+                lowest = Math.min(lowest, flywheel.getVelocity());
+                step();
+            }
+            double recovered = runUntilAtSpeed(before, 5.0);
+            double recovery = (recovered < 0) ? -1 : time.getSeconds() - fired;
+            String readiness = "stayed ready";
+            if (failEncoder) {
+                readiness = shooter.isAtTargetSpeed() ? "ready on the estimate" : "not ready";
+            } else if (shooter.getReadiness().getTransitionCount() != transitions || !shooter.isAtTargetSpeed()) {
+                double readyAgain = runUntilReady(5.0);
+                readiness = "ready again " + format(readyAgain < 0 ? -1 : time.getSeconds() - fired);
+            }
+            System.out.println("  Disc " + (i + 1) + ": waited " + format(wait)
+                    + ", dip " + round(before - lowest) + " RPM from " + round(before)
+                    + " RPM, recovery " + format(recovery)
+                    + ", " + readiness);
+        }
+        run(SHOT_CYCLE);    //Let the shooter finish timing the last disc
+        System.out.println("  " + shooter.getController().getName() + ": "
+                + shooter.getController().getStats());
+        System.out.println("  Detected " + shooter.getShots());
+        shooter.getShots().reset();
+        System.out.println("  " + round(time.getSeconds()) + " s simulated in "
+                + (System.currentTimeMillis() - wallStart) + " ms");
+    }
+
+    private static String format(double seconds) {
+        return (seconds < 0) ? "timeout" : round(seconds * 1000) + " ms";
+    }
+
+    private static double round(double x) {
+        return Math.floor(x * 10 + 0.5) / 10;
+    }
+
+    private static final String[] CONTROLLER_NAMES = {"bangbang", "tbh", "pi", "scheduled"};
+
+    public static void main(String[] args) {
+        double setpoint = (args.length > 0) ? Double.parseDouble(args[0]) : 6000.0;
+        int discs = (args.length > 1) ? Integer.parseInt(args[1]) : 4;
+        String name = (args.length > 2) ? args[2] : "all";
+        boolean boost = true;
+        boolean failEncoder = false;
+        for (int i = 3; i < args.length; i++) {
+            boost &= !args[i].equals("noboost");
+            failEncoder |= args[i].equals("encoderfail");
+        }
+        for (int i = 0; i < CONTROLLER_NAMES.length; i++) {
+            if (name.equals("all") || name.equals(CONTROLLER_NAMES[i])) {
+                ShooterBenchmark bench = new ShooterBenchmark();
+                Shooter shooter = bench.getShooter();
+                shooter.setController(shooter.getControllers()[i]);
+                if (!boost) {
+                    shooter.setKickBoost(0, Constants.SHOOTER_KICK_BOOST_DELAY, Constants.SHOOTER_KICK_BOOST_TIME);
+                }
+                bench.measure(setpoint, discs, failEncoder);
+            }
+        }
+        System.exit(0);
+    }
+}
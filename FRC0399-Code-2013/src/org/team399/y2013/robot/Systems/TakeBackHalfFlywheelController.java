@@ -0,0 +1,84 @@
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.team399.y2013.robot.Systems;
+
+/**
+ * Take-back-half. The output integrates the error; each time the error
+ * changes sign the output is set halfway back to where it was at the last
+ * crossing. On a setpoint change the first crossing is aimed at the feed
+ * forward, so the wheel settles in one or two crossings
+ * @author Jeremy
+ */
+public class TakeBackHalfFlywheelController implements FlywheelController {
+
+    private double kV;
+    private double kS = 0;
+    private volatile double gain;
+    private double output = 0;
+    private double tbh = 0;
+    private double lastError = 0;
+    private double lastSetpoint = 0;
+    private final FlywheelStats stats = new FlywheelStats();
+
+    /**
+     * Constructor
+     * @param kV wheel RPM per volt
+     * @param gain output change per RPM of error per second
+     */
+    public TakeBackHalfFlywheelController(double kV, double gain) {
+        this.kV = kV;
+        this.gain = gain;
+    }
+
+    public void setGain(double gain) {
+        this.gain = gain;
+    }
+
+    public void setFeedforward(double kV, double kS) {
+        this.kV = kV;
+        this.kS = kS;
+    }
+
+    public double calculate(double setpoint, double velocity, double busVoltage, double dt) {
+        double error = setpoint - velocity;
+        if (setpoint != lastSetpoint) {
+            double feedFwd = (setpoint / kV + ((setpoint > 0) ? kS : -kS)) / busVoltage;
+            tbh = 2 * feedFwd - ((setpoint > 0) ? 1 : -1);  //Halfway between full power and this is the feed forward
+            output = (setpoint > 0) ? 1 : -1;
+            lastSetpoint = setpoint;
+            lastError = error;
+        }
+
+        output += gain * error * dt;
+        //Never drive against the setpoint
+        if (setpoint > 0) {
+            output = (output > 1) ? 1 : (output < 0) ? 0 : output;
+        } else {
+            output = (output < -1) ? -1 : (output > 0) ? 0 : output;
+        }
+
+        if ((error > 0) != (lastError > 0)) {
+            output = 0.5 * (output + tbh);
+            tbh = output;
+        }
+        lastError = error;
+        return output;
+    }
+
+    public void reset() {
+        output = 0;
+        tbh = 0;
+        lastError = 0;
+        lastSetpoint = 0;
+    }
+
+    public String getName() {
+        return "Take-back-half";
+    }
+
+    public FlywheelStats getStats() {
+        return stats;
+    }
+}
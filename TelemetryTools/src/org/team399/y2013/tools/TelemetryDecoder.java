@@ -0,0 +1,144 @@
+package org.team399.y2013.tools;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/* HOW TO USE:
+ *  Copy telemetry_N.bin off the cRIO (FTP to the robot), then run
+ *      java org.team399.y2013.tools.TelemetryDecoder telemetry_0.bin [out.csv]
+ *  Without an output file the CSV is printed to the console.
+ *
+ *  This is a desktop tool. It is not part of the robot build.
+ */
+/**
+ * Decodes the binary logs written by the robot's TelemetryRecorder to CSV.
+ * The first column is the timestamp in ms, then one column per channel in
+ * the order they were declared on the robot.
+ *
+ * @author Jeremy
+ */
+public class TelemetryDecoder {
+
+    public static final int MAGIC = 0x54333939;     //"T399"
+    public static final int VERSION = 1;
+    public static final byte TYPE_DOUBLE = 0;
+    public static final byte TYPE_FLOAT = 1;
+    public static final byte TYPE_INT = 2;
+    public static final byte TYPE_BOOLEAN = 3;
+    private String[] names;
+    private byte[] types;
+    private int recordSize;
+
+    /**
+     * Reads and checks the file header
+     * @param in stream positioned at the start of the file
+     */
+    public void readHeader(DataInputStream in) throws IOException {
+        int magic = in.readInt();
+        if (magic != MAGIC) {
+            throw new IOException("Not a telemetry file");
+        }
+        int version = in.readShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported telemetry format version " + version);
+        }
+        int count = in.readShort();
+        names = new String[count];
+        types = new byte[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = in.readUTF();
+            types[i] = in.readByte();
+        }
+        recordSize = in.readInt();
+    }
+
+    public String[] getNames() {
+        return names;
+    }
+
+    public byte[] getTypes() {
+        return types;
+    }
+
+    public int getRecordSize() {
+        return recordSize;
+    }
+
+    /**
+     * Converts a whole log to CSV
+     * @param in stream positioned at the start of the file
+     * @param out where the CSV is written
+     * @return the number of records written
+     */
+    public long toCsv(DataInputStream in, Writer out) throws IOException {
+        readHeader(in);
+        out.write("Time");
+        for (int i = 0; i < names.length; i++) {
+            out.write(',');
+            out.write(names[i]);
+        }
+        out.write('\n');
+
+        long records = 0;
+        StringBuilder line = new StringBuilder();
+        while (true) {
+            line.setLength(0);
+            try {
+                line.append(in.readLong());
+                for (int i = 0; i < types.length; i++) {
+                    line.append(',');
+                    switch (types[i]) {
+                        case TYPE_DOUBLE:
+                            line.append(in.readDouble());
+                            break;
+                        case TYPE_FLOAT:
+                            line.append(in.readFloat());
+                            break;
+                        case TYPE_INT:
+                            line.append(in.readInt());
+                            break;
+                        case TYPE_BOOLEAN:
+                            line.append(in.readByte() != 0 ? 1 : 0);
+                            break;
+                        default:
+                            throw new IOException("Unknown channel type " + types[i]);
+                    }
+                }
+            } catch (EOFException e) {
+                break;  //A record cut off by a power loss is dropped
+            }
+            line.append('\n');
+            out.write(line.toString());
+            records++;
+        }
+        out.flush();
+        return records;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: TelemetryDecoder <telemetry.bin> [out.csv]");
+            System.exit(1);
+        }
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(args[0]), 1 << 16));
+        Writer out;
+        if (args.length > 1) {
+            out = new BufferedWriter(new FileWriter(args[1]), 1 << 16);
+        } else {
+            out = new BufferedWriter(new java.io.OutputStreamWriter(System.out));
+        }
+        try {
+            long records = new TelemetryDecoder().toCsv(in, out);
+            System.err.println("Decoded " + records + " records");
+        } finally {
+            in.close();
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package org.team399.y2013.tools;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read-only, memory-mapped view of a telemetry log written by the robot's
+ * TelemetryRecorder. Records are fixed size, so any channel of any record is
+ * read straight out of the mapping and nothing is copied onto the heap.
+ *
+ * Opening a log builds a small columnar index: for every channel, the min
+ * and max of each block of BLOCK_RECORDS records. Threshold queries use it
+ * to skip whole blocks without touching their pages. Timestamps only go up
+ * within a log, so time ranges are found by binary search.
+ *
+ * @author Jeremy
+ */
+public class TelemetryLog {
+
+    public static final int BLOCK_RECORDS = 1024;
+    private final File file;
+    private final MappedByteBuffer data;
+    private final TelemetryDecoder schema = new TelemetryDecoder();
+    private final String[] names;
+    private final byte[] types;
+    private final int[] offsets;
+    private final int recordSize;
+    private final int dataStart;
+    private final int recordCount;
+    private final float[][] blockMin;   //[channel][block]
+    private final float[][] blockMax;
+
+    private TelemetryLog(File file) throws IOException {
+        this.file = file;
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(file + " is too large to map");
+            }
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            raf.close();    //The mapping stays valid after the file is closed
+        }
+        data.order(ByteOrder.BIG_ENDIAN);
+
+        //The header is small and variable length; parse it with the decoder
+        int headerMax = Math.min(data.capacity(), 1 << 16);
+        byte[] header = new byte[headerMax];
+        data.get(header);
+        ByteArrayInputStream headerStream = new ByteArrayInputStream(header);
+        schema.readHeader(new DataInputStream(headerStream));
+        dataStart = headerMax - headerStream.available();
+
+        names = schema.getNames();
+        types = schema.getTypes();
+        recordSize = schema.getRecordSize();
+        offsets = new int[types.length];
+        int offset = 8;     //Timestamp
+        for (int i = 0; i < types.length; i++) {
+            offsets[i] = offset;
+            offset += (types[i] == TelemetryDecoder.TYPE_DOUBLE) ? 8
+                    : (types[i] == TelemetryDecoder.TYPE_BOOLEAN) ? 1 : 4;
+        }
+        if (offset != recordSize) {
+            throw new IOException("Record size in header does not match the channels");
+        }
+        recordCount = (data.capacity() - dataStart) / recordSize;
+
+        int blocks = (recordCount + BLOCK_RECORDS - 1) / BLOCK_RECORDS;
+        blockMin = new float[names.length][blocks];
+        blockMax = new float[names.length][blocks];
+        buildIndex();
+    }
+
+    /**
+     * Maps a log file and builds its index
+     * @param file the telemetry_N.bin file
+     * @return the log
+     */
+    public static TelemetryLog open(File file) throws IOException {
+        return new TelemetryLog(file);
+    }
+
+    private void buildIndex() {
+        for (int block = 0; block < getBlockCount(); block++) {
+            int start = block * BLOCK_RECORDS;
+            int end = Math.min(start + BLOCK_RECORDS, recordCount);
+            for (int c = 0; c < names.length; c++) {
+                float min = Float.POSITIVE_INFINITY;
+                float max = Float.NEGATIVE_INFINITY;
+                for (int r = start; r < end; r++) {
+                    float v = (float) get(r, c);
+                    if (v < min) {
+                        min = v;
+                    }
+                    if (v > max) {
+                        max = v;
+                    }
+                }
+                blockMin[c][block] = min;
+                blockMax[c][block] = max;
+            }
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public String[] getChannelNames() {
+        return names;
+    }
+
+    /**
+     * @param name channel name, as declared on the robot
+     * @return the channel index, or -1 if the log does not have it
+     */
+    public int getChannel(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    public int getBlockCount() {
+        return blockMin.length == 0 ? 0 : blockMin[0].length;
+    }
+
+    /**
+     * @return the timestamp of a record, ms
+     */
+    public long getTime(int record) {
+        return data.getLong(dataStart + record * recordSize);
+    }
+
+    /**
+     * Reads one channel of one record. Booleans read as 0 or 1
+     */
+    public double get(int record, int channel) {
+        int pos = dataStart + record * recordSize + offsets[channel];
+        switch (types[channel]) {
+            case TelemetryDecoder.TYPE_DOUBLE:
+                return data.getDouble(pos);
+            case TelemetryDecoder.TYPE_FLOAT:
+                return data.getFloat(pos);
+            case TelemetryDecoder.TYPE_INT:
+                return data.getInt(pos);
+            default:
+                return data.get(pos) != 0 ? 1 : 0;
+        }
+    }
+
+    /**
+     * Finds the first record at or after a time
+     * @param time timestamp, ms
+     * @return the record index, or getRecordCount() if every record is earlier
+     */
+    public int seek(long time) {
+        int low = 0;
+        int high = recordCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getTime(mid) < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the smallest value of a channel in a block
+     */
+    public double getBlockMin(int channel, int block) {
+        return blockMin[channel][block];
+    }
+
+    /**
+     * @return the largest value of a channel in a block
+     */
+    public double getBlockMax(int channel, int block) {
+        return blockMax[channel][block];
+    }
+}
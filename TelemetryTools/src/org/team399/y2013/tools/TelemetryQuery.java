@@ -0,0 +1,309 @@
+package org.team399.y2013.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/* HOW TO USE:
+ *  Copy the telemetry_N.bin files off the cRIO, then run one of
+ *      java org.team399.y2013.tools.TelemetryQuery dips <rpm> telemetry_*.bin
+ *      java org.team399.y2013.tools.TelemetryQuery above <channel> <value> [mode] telemetry_*.bin
+ *      java org.team399.y2013.tools.TelemetryQuery below <channel> <value> [mode] telemetry_*.bin
+ *      java org.team399.y2013.tools.TelemetryQuery range <startMs> <endMs> telemetry_*.bin
+ *  Modes are the values of the "Mode" channel: 0 disabled, 1 autonomous, 2 teleop.
+ *  Loop overruns in autonomous, for a 20 ms loop:
+ *      TelemetryQuery above "Loop Time" 20 1 telemetry_*.bin
+ *
+ *  This is a desktop tool. It is not part of the robot build.
+ */
+/**
+ * Queries over memory-mapped telemetry logs. Nothing is decoded to CSV
+ * first. Threshold queries skip any block whose min/max index says it cannot
+ * match, so a search over hours of logs only reads the pages around events.
+ *
+ * @author Jeremy
+ */
+public class TelemetryQuery {
+
+    public static final String MODE = "Mode";
+    public static final String SHOOTER_VELOCITY = "Shooter Actual Velocity";
+    public static final String SHOOTER_SETPOINT = "Shooter Set Velocity";
+    public static final int ANY_MODE = -1;
+    public static final double READY_TOLERANCE = 500;   //Error the wheel must get within before a dip counts, RPM
+    public static final long SETTLE_TIME = 500;         //Time a setpoint must hold before a dip counts, ms
+    public static final long DIP_WINDOW = 150;         //A dip is measured from the highest speed this long before it, ms
+    public static final long RECOVERY_TIMEOUT = 1000;  //A drop that takes longer to come back is the wheel slowing, not a dip, ms
+
+    /**
+     * A run of consecutive matching records
+     */
+    public static class Span {
+
+        public final TelemetryLog log;
+        public final int start;     //First record, inclusive
+        public final int end;       //Last record, exclusive
+        public final double extreme;    //Most extreme value in the span
+        public final int extremeRecord;
+
+        Span(TelemetryLog log, int start, int end, double extreme, int extremeRecord) {
+            this.log = log;
+            this.start = start;
+            this.end = end;
+            this.extreme = extreme;
+            this.extremeRecord = extremeRecord;
+        }
+
+        public long getStartTime() {
+            return log.getTime(start);
+        }
+
+        public long getDuration() {
+            return log.getTime(end - 1) - log.getTime(start);
+        }
+
+        public String toString() {
+            return log.getFile().getName() + " t=" + getStartTime() + "ms"
+                    + " for " + getDuration() + "ms (" + (end - start) + " records)"
+                    + " peak " + extreme + " at t=" + log.getTime(extremeRecord) + "ms";
+        }
+    }
+
+    /**
+     * Finds every run of records where a channel is above (or below) a threshold
+     * @param log the log to search
+     * @param channel channel index
+     * @param threshold value to compare against
+     * @param above true to match values above the threshold, false for below
+     * @param mode only match records with this "Mode" value, or ANY_MODE
+     * @return the matching spans in time order
+     */
+    public static List<Span> findWhere(TelemetryLog log, int channel, double threshold, boolean above, int mode) {
+        List<Span> spans = new ArrayList<Span>();
+        int modeChannel = (mode == ANY_MODE) ? -1 : log.getChannel(MODE);
+        int spanStart = -1;
+        double extreme = 0;
+        int extremeRecord = 0;
+
+        for (int block = 0; block < log.getBlockCount(); block++) {
+            int first = block * TelemetryLog.BLOCK_RECORDS;
+            int last = Math.min(first + TelemetryLog.BLOCK_RECORDS, log.getRecordCount());
+            boolean possible = above ? log.getBlockMax(channel, block) > threshold
+                    : log.getBlockMin(channel, block) < threshold;
+            if (possible && modeChannel >= 0) {
+                possible = log.getBlockMin(modeChannel, block) <= mode && log.getBlockMax(modeChannel, block) >= mode;
+            }
+            if (!possible) {
+                if (spanStart >= 0) {
+                    spans.add(new Span(log, spanStart, first, extreme, extremeRecord));
+                    spanStart = -1;
+                }
+                continue;
+            }
+
+            for (int r = first; r < last; r++) {
+                double v = log.get(r, channel);
+                boolean match = above ? v > threshold : v < threshold;
+                if (match && modeChannel >= 0) {
+                    match = (int) log.get(r, modeChannel) == mode;
+                }
+                if (match) {
+                    if (spanStart < 0) {
+                        spanStart = r;
+                        extreme = v;
+                        extremeRecord = r;
+                    } else if (above ? v > extreme : v < extreme) {
+                        extreme = v;
+                        extremeRecord = r;
+                    }
+                } else if (spanStart >= 0) {
+                    spans.add(new Span(log, spanStart, r, extreme, extremeRecord));
+                    spanStart = -1;
+                }
+            }
+        }
+        if (spanStart >= 0) {
+            spans.add(new Span(log, spanStart, log.getRecordCount(), extreme, extremeRecord));
+        }
+        return spans;
+    }
+
+    /**
+     * Finds every dip of the shooter more than a given depth below the speed
+     * it held just before, the way the robot's ShotDetector does, so spin-ups
+     * and setpoint changes don't count. A dip can only start once the
+     * setpoint has been steady and nonzero for SETTLE_TIME and the wheel has
+     * come within READY_TOLERANCE of it. The speed before the dip follows the
+     * wheel up at once, and down once it is DIP_WINDOW old. A drop that
+     * doesn't come back within RECOVERY_TIMEOUT is the wheel slowing down and
+     * is left out. Each span's extreme is the depth of the dip in RPM, and the
+     * span ends when the shooter recovers or the setpoint changes
+     * @param log the log to search
+     * @param depth minimum dip depth, RPM
+     * @return the dips in time order
+     */
+    public static List<Span> findVelocityDips(TelemetryLog log, double depth) {
+        List<Span> dips = new ArrayList<Span>();
+        int vel = log.getChannel(SHOOTER_VELOCITY);
+        int set = log.getChannel(SHOOTER_SETPOINT);
+        if (vel < 0 || set < 0) {
+            return dips;
+        }
+        double setpoint = 0;
+        long setpointTime = 0;      //When the setpoint last changed, ms
+        boolean reached = false;    //Wheel has been within tolerance since then
+        double before = 0;          //Speed before a dip, RPM
+        long beforeTime = 0;
+        int spanStart = -1;
+        double deepest = 0;
+        int deepestRecord = 0;
+
+        for (int block = 0; block < log.getBlockCount(); block++) {
+            int first = block * TelemetryLog.BLOCK_RECORDS;
+            int last = Math.min(first + TelemetryLog.BLOCK_RECORDS, log.getRecordCount());
+            //With a steady setpoint and the speed never spreading by the depth, nothing in the block can dip
+            float indexed = (float) setpoint;   //The index is single precision
+            boolean steady = log.getBlockMin(set, block) == indexed && log.getBlockMax(set, block) == indexed;
+            boolean possible = spanStart >= 0 || !steady
+                    || log.getBlockMax(vel, block) - log.getBlockMin(vel, block) > depth
+                    || before - log.getBlockMin(vel, block) > depth;
+            if (!possible) {
+                before = log.get(last - 1, vel);
+                beforeTime = log.getTime(last - 1);
+                reached |= Math.abs(setpoint - before) < READY_TOLERANCE;
+                continue;
+            }
+
+            for (int r = first; r < last; r++) {
+                long time = log.getTime(r);
+                double velocity = log.get(r, vel);
+                if (log.get(r, set) != setpoint) {
+                    if (spanStart >= 0) {
+                        dips.add(new Span(log, spanStart, r, deepest, deepestRecord));
+                        spanStart = -1;
+                    }
+                    setpoint = log.get(r, set);
+                    setpointTime = time;
+                    reached = false;
+                }
+                reached |= Math.abs(setpoint - velocity) < READY_TOLERANCE;
+                if (spanStart < 0 && (velocity >= before || time - beforeTime > DIP_WINDOW)) {
+                    before = velocity;
+                    beforeTime = time;
+                }
+                double drop = before - velocity;
+                if (spanStart >= 0) {
+                    if (drop > deepest) {
+                        deepest = drop;
+                        deepestRecord = r;
+                    } else if (drop <= depth || time - log.getTime(spanStart) > RECOVERY_TIMEOUT) {
+                        if (drop <= depth) {
+                            dips.add(new Span(log, spanStart, r, deepest, deepestRecord));
+                        }
+                        spanStart = -1;
+                        before = velocity;
+                        beforeTime = time;
+                    }
+                } else if (setpoint > 0 && reached && time - setpointTime >= SETTLE_TIME && drop > depth) {
+                    spanStart = r;
+                    deepest = drop;
+                    deepestRecord = r;
+                }
+            }
+        }
+        if (spanStart >= 0) {
+            dips.add(new Span(log, spanStart, log.getRecordCount(), deepest, deepestRecord));
+        }
+        return dips;
+    }
+
+    /**
+     * Prints the min, max and mean of every channel over a time range
+     * @param log the log
+     * @param startTime range start, ms
+     * @param endTime range end, ms
+     */
+    public static void printRange(TelemetryLog log, long startTime, long endTime) {
+        int first = log.seek(startTime);
+        int last = log.seek(endTime);
+        System.out.println(log.getFile().getName() + ": " + (last - first) + " records");
+        if (last <= first) {
+            return;
+        }
+        String[] names = log.getChannelNames();
+        for (int c = 0; c < names.length; c++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            double sum = 0;
+            for (int r = first; r < last; r++) {
+                double v = log.get(r, c);
+                min = Math.min(min, v);
+                max = Math.max(max, v);
+                sum += v;
+            }
+            System.out.println("  " + names[c] + ": min " + min + " max " + max + " mean " + (sum / (last - first)));
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Usage: TelemetryQuery dips <rpm> <files...>");
+        System.err.println("       TelemetryQuery above|below <channel> <value> [mode] <files...>");
+        System.err.println("       TelemetryQuery range <startMs> <endMs> <files...>");
+        System.exit(1);
+    }
+
+    private static boolean isInteger(String s) {
+        try {
+            Integer.parseInt(s);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            usage();
+        }
+        String query = args[0];
+        int fileArg;
+        if (query.equals("dips")) {
+            fileArg = 2;
+        } else if (query.equals("above") || query.equals("below")) {
+            fileArg = (args.length > 4 && isInteger(args[3])) ? 4 : 3;
+        } else if (query.equals("range")) {
+            fileArg = 3;
+        } else {
+            usage();
+            return;
+        }
+
+        int total = 0;
+        for (int i = fileArg; i < args.length; i++) {
+            TelemetryLog log = TelemetryLog.open(new File(args[i]));
+            List<Span> results = null;
+            if (query.equals("dips")) {
+                results = findVelocityDips(log, Double.parseDouble(args[1]));
+            } else if (query.equals("range")) {
+                printRange(log, Long.parseLong(args[1]), Long.parseLong(args[2]));
+            } else {
+                int channel = log.getChannel(args[1]);
+                if (channel < 0) {
+                    System.err.println(args[i] + ": no channel \"" + args[1] + "\"");
+                    continue;
+                }
+                int mode = (fileArg == 4) ? Integer.parseInt(args[3]) : ANY_MODE;
+                results = findWhere(log, channel, Double.parseDouble(args[2]), query.equals("above"), mode);
+            }
+            if (results != null) {
+                for (int j = 0; j < results.size(); j++) {
+                    System.out.println(results.get(j));
+                }
+                total += results.size();
+            }
+        }
+        if (!query.equals("range")) {
+            System.err.println(total + " matches");
+        }
+    }
+}